@@ -0,0 +1,111 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Guards an async export against the end of its servlet async context, eg: on timeout or when the container reports an
+ * error
+ *
+ * <p>Once the context has ended, the container recycles the response, so the export must stop writing into it: guarded
+ * rows and outputs fail, and the export leaves the context alone instead of completing it.
+ *
+ * @author DreamJM
+ */
+public class AsyncExportGuard {
+
+    private final AtomicBoolean ended = new AtomicBoolean();
+
+    /**
+     * Called by the async listener when the context times out, fails or completes
+     */
+    public void end() {
+        ended.set(true);
+    }
+
+    /**
+     * @return {@code true} if the context has ended, the response must not be touched anymore
+     */
+    public boolean isEnded() {
+        return ended.get();
+    }
+
+    /**
+     * Ends the guard on behalf of the export
+     *
+     * @return {@code true} if the context hadn't ended before, so the export completes it
+     */
+    public boolean finish() {
+        return ended.compareAndSet(false, true);
+    }
+
+    /**
+     * @param rows rows of the export
+     * @return rows failing with {@link CancellationException} once the context has ended
+     */
+    public RowSource guard(RowSource rows) {
+        return row -> {
+            if (ended.get()) {
+                throw new CancellationException("Async export has ended");
+            }
+            return rows.fill(row);
+        };
+    }
+
+    /**
+     * @param out output stream of the response
+     * @return output failing once the context has ended
+     */
+    public OutputStream guard(OutputStream out) {
+        return new FilterOutputStream(out) {
+            @Override
+            public void write(int b) throws IOException {
+                check();
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                check();
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void flush() throws IOException {
+                check();
+                out.flush();
+            }
+
+            @Override
+            public void close() throws IOException {
+                check();
+                out.close();
+            }
+        };
+    }
+
+    private void check() throws IOException {
+        if (ended.get()) {
+            throw new IOException("Async export has ended");
+        }
+    }
+}
@@ -18,13 +18,41 @@ package com.dream.spring.excel;
 
 import org.apache.poi.ss.usermodel.CellType;
 
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.TimeZone;
+
 /**
  * Data of excel cell
  *
+ * <p>Besides text, a cell may hold a typed value (long, double, boolean or date) which is written as a real number or
+ * boolean instead of being formatted into a String.
+ *
  * @author DreamJM
  */
 public class CellData {
 
+    /**
+     * Shared empty cell
+     */
+    public static final CellData EMPTY = new CellData("");
+
+    /**
+     * Text format of dates when exported as text, eg: csv
+     */
+    private static final DateTimeFormatter DATE_TEXT_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /**
+     * Milliseconds of a day
+     */
+    private static final double DAY_MILLIS = 24 * 60 * 60 * 1000d;
+
+    /**
+     * Days from 1900-01-00 (excel epoch, including the fictitious 1900-02-29) to 1970-01-01
+     */
+    private static final int EXCEL_EPOCH_OFFSET = 25569;
+
     /**
      * Cell Value
      */
@@ -40,14 +68,39 @@ public class CellData {
      */
     private CustomStyle style;
 
-    private CellData() {
+    /**
+     * Type of the value
+     */
+    private ValueType valueType = ValueType.STRING;
+
+    /**
+     * Long, boolean (1 or 0) or date (epoch millis) value
+     */
+    private long longValue;
+
+    /**
+     * Double value
+     */
+    private double doubleValue;
+
+    private CellData(String value) {
+        this.value = value;
+    }
 
+    private CellData(ValueType valueType, long longValue, double doubleValue) {
+        this.valueType = valueType;
+        this.longValue = longValue;
+        this.doubleValue = doubleValue;
+        this.type = valueType == ValueType.BOOLEAN ? CellType.BOOLEAN : CellType.NUMERIC;
     }
 
     /**
-     * @return cell value
+     * @return cell value. Typed values are formatted as text on each call, writers use the typed value instead.
      */
     public String getValue() {
+        if (valueType != ValueType.STRING) {
+            return text(valueType, longValue, doubleValue);
+        }
         return value;
     }
 
@@ -65,6 +118,27 @@ public class CellData {
         return style;
     }
 
+    /**
+     * @return type of the value
+     */
+    public ValueType getValueType() {
+        return valueType;
+    }
+
+    /**
+     * @return long value, 1 or 0 of boolean value, or epoch millis of date value
+     */
+    public long getLongValue() {
+        return longValue;
+    }
+
+    /**
+     * @return double value
+     */
+    public double getDoubleValue() {
+        return doubleValue;
+    }
+
     /**
      * Creates Cell Data Builder
      *
@@ -72,15 +146,86 @@ public class CellData {
      * @return Cell Data Builder
      */
     public static Builder builder(String value) {
-        return new Builder(value);
+        return new Builder(new CellData(value));
+    }
+
+    /**
+     * Creates Cell Data Builder of a long value
+     *
+     * @param value cell value
+     * @return Cell Data Builder
+     */
+    public static Builder builder(long value) {
+        return new Builder(new CellData(ValueType.LONG, value, 0));
+    }
+
+    /**
+     * Creates Cell Data Builder of a double value
+     *
+     * @param value cell value
+     * @return Cell Data Builder
+     */
+    public static Builder builder(double value) {
+        return new Builder(new CellData(ValueType.DOUBLE, 0, value));
+    }
+
+    /**
+     * Creates Cell Data Builder of a boolean value
+     *
+     * @param value cell value
+     * @return Cell Data Builder
+     */
+    public static Builder builder(boolean value) {
+        return new Builder(new CellData(ValueType.BOOLEAN, value ? 1 : 0, 0));
+    }
+
+    /**
+     * Creates Cell Data Builder of a date value, which is formatted by the date format of the sheet
+     *
+     * @param epochMillis milliseconds since 1970-01-01T00:00:00Z
+     * @return Cell Data Builder
+     * @see SheetStyle#getDateFormat()
+     */
+    public static Builder dateBuilder(long epochMillis) {
+        return new Builder(new CellData(ValueType.DATE, epochMillis, 0));
+    }
+
+    /**
+     * Converts epoch millis to an excel date serial number in the default time zone
+     *
+     * @param epochMillis milliseconds since 1970-01-01T00:00:00Z
+     * @return days since the excel epoch
+     */
+    public static double toExcelDate(long epochMillis) {
+        return (epochMillis + TimeZone.getDefault().getOffset(epochMillis)) / DAY_MILLIS + EXCEL_EPOCH_OFFSET;
+    }
+
+    /**
+     * Text of a typed value, used where values are exported as text
+     */
+    static String text(ValueType valueType, long longValue, double doubleValue) {
+        switch (valueType) {
+            case LONG:
+                return Long.toString(longValue);
+            case DOUBLE:
+                if (doubleValue == Math.rint(doubleValue) && Math.abs(doubleValue) < 1e15) {
+                    return Long.toString((long) doubleValue);
+                }
+                return Double.toString(doubleValue);
+            case BOOLEAN:
+                return longValue != 0 ? "TRUE" : "FALSE";
+            case DATE:
+                return DATE_TEXT_FORMAT.format(Instant.ofEpochMilli(longValue).atZone(ZoneId.systemDefault()));
+            default:
+                return null;
+        }
     }
 
     public static class Builder {
         private CellData cell;
 
-        private Builder(String value) {
-            this.cell = new CellData();
-            this.cell.value = value;
+        private Builder(CellData cell) {
+            this.cell = cell;
         }
 
         /**
@@ -110,4 +255,30 @@ public class CellData {
         }
 
     }
+
+    /**
+     * Type of cell value
+     */
+    public enum ValueType {
+        /**
+         * Text
+         */
+        STRING,
+        /**
+         * Integral number
+         */
+        LONG,
+        /**
+         * Floating point number
+         */
+        DOUBLE,
+        /**
+         * Boolean
+         */
+        BOOLEAN,
+        /**
+         * Date in epoch millis, written as a number with the date format of the sheet
+         */
+        DATE
+    }
 }
@@ -16,6 +16,8 @@
 
 package com.dream.spring.excel;
 
+import com.dream.spring.excel.bean.ExcelExportConfig;
+
 /**
  * Specifies style for column
  *
@@ -43,6 +45,11 @@ public class Column {
      */
     private CustomStyle style;
 
+    /**
+     * Way string cells are written, the config default if absent
+     */
+    private ExcelExportConfig.StringStrategy stringStrategy;
+
     private Column() {
 
     }
@@ -75,6 +82,13 @@ public class Column {
         return style;
     }
 
+    /**
+     * @return way string cells are written, null for the config default
+     */
+    public ExcelExportConfig.StringStrategy getStringStrategy() {
+        return stringStrategy;
+    }
+
     /**
      * Creates Column Builder
      *
@@ -127,6 +141,17 @@ public class Column {
             return this;
         }
 
+        /**
+         * Way string cells of the column are written, overriding the config default
+         *
+         * @param stringStrategy string strategy
+         * @return Column Builder
+         */
+        public Builder setStringStrategy(ExcelExportConfig.StringStrategy stringStrategy) {
+            column.stringStrategy = stringStrategy;
+            return this;
+        }
+
         public Column build() {
             return column;
         }
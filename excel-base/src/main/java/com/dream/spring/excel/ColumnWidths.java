@@ -0,0 +1,154 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package com.dream.spring.excel;
+
+/**
+ * Estimates column widths from the leading content rows of an export
+ *
+ * <p>Widths are measured in characters, CJK and other full-width characters count double. Columns with a fixed width keep
+ * it. Only the sampled rows are measured, so the widths are known before the rows are flushed and cost nothing afterwards.
+ *
+ * @author DreamJM
+ */
+public class ColumnWidths {
+
+    /**
+     * Max column width of excel (in units of a character width)
+     */
+    private static final int MAX_WIDTH = 255;
+
+    /**
+     * Margin added to the longest value of a column
+     */
+    private static final int PADDING = 2;
+
+    private final Column[] columns;
+
+    /**
+     * Display length of the date format, the width of any date cell
+     */
+    private final int dateLength;
+
+    private final int sampleRows;
+
+    private final int[] lengths;
+
+    private int sampled;
+
+    /**
+     * @param columns    columns of the sheet
+     * @param dateFormat excel data format of date cells
+     * @param sampleRows count of leading content rows measured
+     */
+    public ColumnWidths(Column[] columns, String dateFormat, int sampleRows) {
+        this.columns = columns;
+        this.dateLength = dateFormat == null ? 0 : displayLength(dateFormat);
+        this.sampleRows = sampleRows;
+        this.lengths = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            lengths[i] = displayLength(columns[i].getHeader());
+        }
+    }
+
+    /**
+     * @return {@code true} if more rows are to be measured
+     */
+    public boolean isSampling() {
+        return sampled < sampleRows;
+    }
+
+    /**
+     * Measures a content row, ignored once enough rows are sampled
+     *
+     * @param row content row
+     */
+    public void sample(RowBuffer row) {
+        if (!isSampling()) {
+            return;
+        }
+        sampled++;
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].getWidth() <= 0) {
+                lengths[i] = Math.max(lengths[i], length(row, i));
+            }
+        }
+    }
+
+    /**
+     * @param column column index
+     * @return fixed width of the column, or the estimated one (in units of a character width)
+     */
+    public int getWidth(int column) {
+        if (columns[column].getWidth() > 0) {
+            return columns[column].getWidth();
+        }
+        return Math.min(lengths[column] + PADDING, MAX_WIDTH);
+    }
+
+    private int length(RowBuffer row, int column) {
+        switch (row.getValueType(column)) {
+            case STRING:
+                return displayLength(row.getValue(column));
+            case LONG:
+                return String.valueOf(row.getLong(column)).length();
+            case DOUBLE:
+                return String.valueOf(row.getDouble(column)).length();
+            case BOOLEAN:
+                return 5;
+            default:
+                return dateLength;
+        }
+    }
+
+    /**
+     * @param value cell text
+     * @return character count of the longest line, full-width characters count double
+     */
+    static int displayLength(String value) {
+        if (value == null) {
+            return 0;
+        }
+        int max = 0;
+        int length = 0;
+        for (int i = 0; i < value.length(); ) {
+            int codePoint = value.codePointAt(i);
+            i += Character.charCount(codePoint);
+            if (codePoint == '\n') {
+                max = Math.max(max, length);
+                length = 0;
+            } else {
+                length += isFullWidth(codePoint) ? 2 : 1;
+            }
+        }
+        return Math.max(max, length);
+    }
+
+    private static boolean isFullWidth(int codePoint) {
+        if (codePoint < 0x1100) {
+            return false;
+        }
+        if ((codePoint >= 0x3000 && codePoint <= 0x303F) || (codePoint >= 0xFF01 && codePoint <= 0xFF60) ||
+                (codePoint >= 0xFFE0 && codePoint <= 0xFFE6)) {
+            // CJK symbols and punctuation, full-width forms
+            return true;
+        }
+        Character.UnicodeScript script = Character.UnicodeScript.of(codePoint);
+        return script == Character.UnicodeScript.HAN || script == Character.UnicodeScript.HIRAGANA ||
+                script == Character.UnicodeScript.KATAKANA || script == Character.UnicodeScript.HANGUL;
+    }
+}
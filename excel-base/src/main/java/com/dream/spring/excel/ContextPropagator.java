@@ -0,0 +1,42 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel;
+
+/**
+ * Carries thread-bound context of a thread into tasks run on other threads for it, eg: the locale and request attributes of
+ * Spring MVC, so that data methods, converters and i18n behave the same off the request thread
+ *
+ * @author DreamJM
+ * @see StageExecutor
+ * @see ExportExecutor
+ */
+@FunctionalInterface
+public interface ContextPropagator {
+
+    /**
+     * Propagates nothing
+     */
+    ContextPropagator NONE = task -> task;
+
+    /**
+     * Captures the context of the calling thread
+     *
+     * @param task task to run on another thread
+     * @return the task, which runs with the captured context and restores the context of its thread afterwards
+     */
+    Runnable wrap(Runnable task);
+}
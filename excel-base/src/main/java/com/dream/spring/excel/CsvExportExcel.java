@@ -0,0 +1,164 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Exporting util which writes rows as delimited text (CSV or TSV)
+ *
+ * <p>Accepts the columns and rows of {@link ExportExcel}: the header row is written from the column headers, then content
+ * rows are pulled and written straight to the output through a buffered writer. Styles and categories are ignored. Fields
+ * containing the delimiter, quotes or line breaks are quoted as RFC 4180 describes. Text fields starting with '=', '+', '-',
+ * '@', tab or carriage return are prefixed with a single quote by default, so that spreadsheet applications don't execute
+ * them as formulas (CSV injection). Numbers are written as they are.
+ *
+ * @author DreamJM
+ */
+public class CsvExportExcel {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private ExportFormat format;
+
+    /**
+     * Columns' definition
+     */
+    private Column[] columns;
+
+    /**
+     * Source of content rows
+     */
+    private RowSource rowSource;
+
+    /**
+     * Text output stream
+     */
+    private OutputStream out;
+
+    /**
+     * If true, starts with the UTF-8 byte order mark
+     */
+    private boolean bom;
+
+    /**
+     * If true, text fields that look like formulas are prefixed with a single quote
+     */
+    private boolean formulaEscape = true;
+
+    public CsvExportExcel(ExportFormat format, Column[] columns, RowSource rowSource, OutputStream out) {
+        if (format.getDelimiter() == 0) {
+            throw new IllegalArgumentException(format + " is not a delimited text format");
+        }
+        this.format = format;
+        this.columns = columns;
+        this.rowSource = rowSource;
+        this.out = out;
+    }
+
+    /**
+     * @param bom whether to write the UTF-8 byte order mark, which lets Excel detect the encoding
+     */
+    public void setBom(boolean bom) {
+        this.bom = bom;
+    }
+
+    /**
+     * @param formulaEscape whether to prefix text fields that look like formulas with a single quote, true by default
+     */
+    public void setFormulaEscape(boolean formulaEscape) {
+        this.formulaEscape = formulaEscape;
+    }
+
+    /**
+     * Start to export delimited text
+     *
+     * @return count of content rows
+     * @throws IOException IO Exception
+     */
+    public int exportCsv() throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+        if (bom) {
+            writer.write('\uFEFF');
+        }
+        char delimiter = format.getDelimiter();
+        for (int i = 0; i < columns.length; i++) {
+            if (i > 0) {
+                writer.write(delimiter);
+            }
+            writeField(writer, columns[i].getHeader(), delimiter, formulaEscape);
+        }
+        writer.write("\r\n");
+        RowBuffer row = new RowBuffer(columns.length);
+        int count = 0;
+        while (rowSource.fill(row)) {
+            for (int i = 0; i < columns.length; i++) {
+                if (i > 0) {
+                    writer.write(delimiter);
+                }
+                writeField(writer, row.getValue(i), delimiter,
+                        formulaEscape && row.getValueType(i) == CellData.ValueType.STRING);
+            }
+            writer.write("\r\n");
+            row.reset();
+            count++;
+        }
+        // Flushes without closing the output stream
+        writer.flush();
+        return count;
+    }
+
+    /**
+     * @param escape whether to prefix the value with a single quote if it looks like a formula
+     */
+    private static void writeField(Writer writer, String value, char delimiter, boolean escape) throws IOException {
+        if (value == null || value.isEmpty()) {
+            return;
+        }
+        if (escape && isFormula(value.charAt(0))) {
+            value = "'" + value;
+        }
+        boolean quoted = false;
+        for (int i = 0, length = value.length(); i < length; i++) {
+            char c = value.charAt(i);
+            if (c == delimiter || c == '"' || c == '\n' || c == '\r') {
+                quoted = true;
+                break;
+            }
+        }
+        if (!quoted) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        int start = 0;
+        for (int i = 0, length = value.length(); i < length; i++) {
+            if (value.charAt(i) == '"') {
+                writer.write(value, start, i + 1 - start);
+                writer.write('"');
+                start = i + 1;
+            }
+        }
+        writer.write(value, start, value.length() - start);
+        writer.write('"');
+    }
+
+    private static boolean isFormula(char first) {
+        return first == '=' || first == '+' || first == '-' || first == '@' || first == '\t' || first == '\r';
+    }
+}
@@ -20,6 +20,8 @@ import org.apache.poi.ss.usermodel.HorizontalAlignment;
 import org.apache.poi.ss.usermodel.IndexedColors;
 import org.apache.poi.ss.usermodel.VerticalAlignment;
 
+import java.util.Objects;
+
 /**
  * Customizes style of cell
  *
@@ -103,6 +105,32 @@ public class CustomStyle {
         return verticalAlignment;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        CustomStyle that = (CustomStyle) o;
+        return fontSize == that.fontSize && Objects.equals(bg, that.bg) && Objects.equals(fontColor, that.fontColor) &&
+                Objects.equals(fontName, that.fontName) && horizontalAlignment == that.horizontalAlignment &&
+                verticalAlignment == that.verticalAlignment;
+    }
+
+    @Override
+    public int hashCode() {
+        // Avoids the varargs array of Objects.hash, styles are looked up once per styled cell
+        int result = Objects.hashCode(bg);
+        result = 31 * result + Objects.hashCode(fontColor);
+        result = 31 * result + Objects.hashCode(fontName);
+        result = 31 * result + fontSize;
+        result = 31 * result + Objects.hashCode(horizontalAlignment);
+        result = 31 * result + Objects.hashCode(verticalAlignment);
+        return result;
+    }
+
     public static Builder builder() {
         return new Builder();
     }
@@ -16,15 +16,17 @@
 
 package com.dream.spring.excel;
 
-import org.apache.poi.ss.usermodel.*;
+import com.dream.spring.excel.bean.ExcelExportConfig;
+import com.dream.spring.excel.sxssf.ExportSXSSFWorkbook;
+import com.dream.spring.excel.xlsx.WorkbookParts;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.util.CellRangeAddress;
 import org.apache.poi.xssf.streaming.SXSSFCell;
 import org.apache.poi.xssf.streaming.SXSSFRow;
 import org.apache.poi.xssf.streaming.SXSSFSheet;
 import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.apache.poi.xssf.usermodel.XSSFCellStyle;
-import org.apache.poi.xssf.usermodel.XSSFDataFormat;
-import org.apache.poi.xssf.usermodel.XSSFFont;
 
 import java.io.IOException;
 import java.io.OutputStream;
@@ -53,9 +55,9 @@ public class ExportExcel {
     private HeaderCategory[] categories;
 
     /**
-     * Row Data List
+     * Source of content rows
      */
-    private List<Map<Integer, CellData>> dataset;
+    private RowSource rowSource;
 
     /**
      * Excel output stream
@@ -67,60 +69,225 @@ public class ExportExcel {
      */
     private CustomStyle defaultStyle;
 
+    /**
+     * Cell styles of the workbook being exported
+     */
+    private StyleRegistry styleRegistry;
+
+    /**
+     * Global export config
+     */
+    private ExcelExportConfig config;
+
+    /**
+     * Compression profile overriding the config
+     */
+    private ExcelExportConfig.Compression compression;
+
+    /**
+     * Manager of SXSSF temp files
+     */
+    private TempFileManager tempFileManager = TempFileManager.getDefault();
+
+    /**
+     * Streaming exporter, used if {@link ExcelExportConfig.WriterType#STREAMING} is configured
+     */
+    private StreamExportExcel streamExport;
+
     public ExportExcel(SheetStyle sheetStyle, Column[] columns, List<Map<Integer, CellData>> dataset, OutputStream out) {
         this(sheetStyle, columns, null, dataset, out);
     }
 
     public ExportExcel(SheetStyle sheetStyle, Column[] columns, HeaderCategory[] categories, List<Map<Integer, CellData>> dataset,
                        OutputStream out) {
+        this(sheetStyle, columns, categories, RowSource.of(dataset), out);
+    }
+
+    public ExportExcel(SheetStyle sheetStyle, Column[] columns, HeaderCategory[] categories, RowSource rowSource, OutputStream out) {
         this.sheetStyle = sheetStyle;
         this.columns = columns;
         this.categories = categories;
-        this.dataset = dataset;
+        this.rowSource = rowSource;
         this.defaultStyle = sheetStyle.getDefaultStyle() == null ? CustomStyle.builder().build() : sheetStyle.getDefaultStyle();
         this.out = out;
     }
 
+    /**
+     * @param config global export config, may be null
+     */
+    public void setConfig(ExcelExportConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * @param compression compression profile overriding the config
+     */
+    public void setCompression(ExcelExportConfig.Compression compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * @param tempFileManager manager of SXSSF temp files, {@link TempFileManager#getDefault()} by default
+     */
+    public void setTempFileManager(TempFileManager tempFileManager) {
+        this.tempFileManager = tempFileManager;
+    }
+
     /**
      * Start to export excel
      *
      * @throws IOException IO Exception
      */
     public void exportExcel() throws IOException {
-        SXSSFWorkbook workbook = new SXSSFWorkbook();
-        SXSSFSheet sheet = workbook.createSheet(sheetStyle.getTitle());
-        sheet.setDefaultColumnWidth(sheetStyle.getDefaultWidth());
+        ExcelExportConfig.Compression packageCompression = compression;
+        if (packageCompression == null) {
+            packageCompression = config == null || config.getCompression() == null ? ExcelExportConfig.Compression.BALANCED :
+                    config.getCompression();
+        }
+        if (config != null && config.getWriterType() == ExcelExportConfig.WriterType.STREAMING) {
+            streamExport = new StreamExportExcel(sheetStyle, columns, categories, rowSource, out);
+            streamExport.setCompression(packageCompression);
+            streamExport.setMaxRowsPerSheet(config.getMaxRowsPerSheet());
+            streamExport.setSharedStrings(new SharedStrings(config));
+            streamExport.exportExcel();
+            return;
+        }
+        TempFileManager.Lease lease = tempFileManager.acquire();
+        // SXSSF temp files of this thread are owned by the lease
+        lease.bind();
+        ExportSXSSFWorkbook workbook = null;
+        try {
+            if (config != null) {
+                workbook = new ExportSXSSFWorkbook(config.getRowAccessWindowSize(),
+                        config.getTempStorage() == null ? ExcelExportConfig.TempStorage.FILE : config.getTempStorage(),
+                        config.getOffHeapThreshold(), packageCompression.getLevel());
+            } else {
+                workbook = new ExportSXSSFWorkbook(SXSSFWorkbook.DEFAULT_WINDOW_SIZE, ExcelExportConfig.TempStorage.FILE, 0,
+                        packageCompression.getLevel());
+            }
+            writeWorkbook(workbook);
+        } finally {
+            lease.unbind();
+            if (workbook != null) {
+                // Sheet temp files are deleted even if the export failed or was aborted by the client
+                workbook.dispose();
+            }
+            lease.close();
+        }
+    }
 
-        int contentOffset = prepareHeader(workbook, sheet);
-        if (sheetStyle.isFreezeHeader()) {
-            sheet.createFreezePane(0, contentOffset, 0, contentOffset);
+    private void writeWorkbook(ExportSXSSFWorkbook workbook) throws IOException {
+        styleRegistry = new StyleRegistry(workbook.getXSSFWorkbook().getStylesSource(), defaultStyle);
+        styleRegistry.setDateFormat(sheetStyle.getDateFormat());
+        workbook.setSharedStrings(new SharedStrings(config), columns, sheetStyle.getXOffset(),
+                1 + sheetStyle.getYOffset() + (categories != null && categories.length > 0 ? 1 : 0));
+        SXSSFSheet sheet = workbook.createSheet(sheetStyle.getTitle());
+        int contentOffset = prepareSheet(sheet);
+        int maxRows = SpreadsheetVersion.EXCEL2007.getMaxRows() - contentOffset;
+        if (config != null && config.getMaxRowsPerSheet() > 0) {
+            maxRows = Math.min(maxRows, config.getMaxRowsPerSheet());
         }
 
-        XSSFCellStyle contentStyle = getContentCellStyle(workbook, defaultStyle);
-        Map<Integer, XSSFCellStyle> styleMap = new HashMap<>();
+        XSSFCellStyle contentStyle = styleRegistry.getContentStyle(defaultStyle);
+        XSSFCellStyle[] columnStyles = new XSSFCellStyle[columns.length];
         for (int i = 0; i < columns.length; i++) {
             CustomStyle columnStyle = columns[i].getStyle();
-            styleMap.put(i, columnStyle != null ? getContentCellStyle(workbook, columnStyle) : contentStyle);
+            columnStyles[i] = columnStyle != null ? styleRegistry.getContentStyle(columnStyle) : contentStyle;
         }
-        for (int i = 0; i < dataset.size(); i++) {
-            Map<Integer, CellData> vpd = dataset.get(i);
-            SXSSFRow sheetRow = sheet.createRow(i + contentOffset);
+        // Rows are pulled one by one, so only the SXSSF window is kept in memory
+        RowBuffer row = new RowBuffer(columns.length);
+        int rowNum = contentOffset;
+        int sheetCount = 1;
+        ColumnWidths widths = sheetStyle.getAutoWidthRows() > 0 ?
+                new ColumnWidths(columns, sheetStyle.getDateFormat(), sheetStyle.getAutoWidthRows()) : null;
+        while (rowSource.fill(row)) {
+            if (widths != null) {
+                widths.sample(row);
+            }
+            if (rowNum - contentOffset == maxRows) {
+                // Continuation sheet is only created once a row overflows, so no empty sheet is left at the end
+                sheet = workbook.createSheet(WorkbookParts.numberedSheetName(sheetStyle.getTitle(), ++sheetCount));
+                prepareSheet(sheet);
+                rowNum = contentOffset;
+            }
+            SXSSFRow sheetRow = sheet.createRow(rowNum++);
             if (sheetStyle.getContentRowHeight() > 0) {
                 sheetRow.setHeight((short) (sheetStyle.getContentRowHeight() * 20));
             }
             for (int j = 0; j < columns.length; j++) {
-                CellData cellData = vpd.getOrDefault(j, CellData.builder("").build());
                 SXSSFCell cell = sheetRow.createCell(j + sheetStyle.getXOffset());
-                cell.setCellStyle(cellData.getStyle() != null ? getContentCellStyle(workbook, cellData.getStyle()) : styleMap.get(j));
-                cell.setCellType(cellData.getType() == null ? CellType.STRING : cellData.getType());
-                cell.setCellValue(cellData.getValue());
+                CustomStyle cellStyle = row.getStyle(j);
+                CellData.ValueType valueType = row.getValueType(j);
+                if (valueType != CellData.ValueType.STRING) {
+                    writeTypedCell(cell, row, j, valueType, cellStyle);
+                    continue;
+                }
+                cell.setCellStyle(cellStyle != null ? styleRegistry.getContentStyle(cellStyle) : columnStyles[j]);
+                cell.setCellType(row.getType(j) == null ? CellType.STRING : row.getType(j));
+                cell.setCellValue(row.getValue(j) == null ? "" : row.getValue(j));
+            }
+            row.reset();
+        }
+        if (widths != null) {
+            // Column widths are only written with the workbook, so the flushed rows need no width yet
+            for (int i = 0; i < workbook.getNumberOfSheets(); i++) {
+                for (int j = 0; j < columns.length; j++) {
+                    workbook.getSheetAt(i).setColumnWidth(j + sheetStyle.getXOffset(), widths.getWidth(j) * 256);
+                }
             }
         }
         workbook.write(out);
     }
 
-    private int prepareHeader(SXSSFWorkbook workbook, SXSSFSheet sheet) {
-        XSSFCellStyle headerStyle = getHeaderCellStyle(workbook,
+    /**
+     * Writes a number, boolean or date cell, whose style has the data format of its value type
+     */
+    private void writeTypedCell(SXSSFCell cell, RowBuffer row, int column, CellData.ValueType valueType, CustomStyle cellStyle) {
+        if (cellStyle == null) {
+            cellStyle = columns[column].getStyle() != null ? columns[column].getStyle() : defaultStyle;
+        }
+        cell.setCellStyle(styleRegistry.getContentStyle(cellStyle, valueType));
+        switch (valueType) {
+            case LONG:
+                cell.setCellValue((double) row.getLong(column));
+                break;
+            case DOUBLE:
+                cell.setCellValue(row.getDouble(column));
+                break;
+            case BOOLEAN:
+                cell.setCellValue(row.getLong(column) != 0);
+                break;
+            default:
+                cell.setCellValue(CellData.toExcelDate(row.getLong(column)));
+        }
+    }
+
+    /**
+     * Prepares column widths, header rows and freeze pane of a sheet
+     *
+     * @return content row offset
+     */
+    private int prepareSheet(SXSSFSheet sheet) {
+        sheet.setDefaultColumnWidth(sheetStyle.getDefaultWidth());
+        int contentOffset = prepareHeader(sheet);
+        if (sheetStyle.isFreezeHeader()) {
+            sheet.createFreezePane(0, contentOffset, 0, contentOffset);
+        }
+        return contentOffset;
+    }
+
+    /**
+     * @return count of distinct cell styles created by the last export
+     */
+    public int getStyleCount() {
+        if (streamExport != null) {
+            return streamExport.getStyleCount();
+        }
+        return styleRegistry == null ? 0 : styleRegistry.getStyleCount();
+    }
+
+    private int prepareHeader(SXSSFSheet sheet) {
+        XSSFCellStyle headerStyle = styleRegistry.getHeaderStyle(
                 sheetStyle.getDefaultHeaderStyle() == null ? CustomStyle.builder().build() : sheetStyle.getDefaultHeaderStyle());
         SXSSFRow headerRow = sheet.createRow(sheetStyle.getYOffset() + (categories == null || categories.length == 0 ? 0 : 1));
         headerRow.setHeight((short) (sheetStyle.getHeaderHeight() * 20));
@@ -129,27 +296,27 @@ public class ExportExcel {
         for (int i = 0; i < columns.length; i++) {
             Column header = columns[i];
             SXSSFCell cell = headerRow.createCell(i + sheetStyle.getXOffset());
-            cell.setCellStyle(header.getHeaderStyle() != null ? getHeaderCellStyle(workbook, header.getHeaderStyle()) : headerStyle);
+            cell.setCellStyle(header.getHeaderStyle() != null ? styleRegistry.getHeaderStyle(header.getHeaderStyle()) : headerStyle);
             cell.setCellValue(header.getHeader());
             cell.setCellType(CellType.STRING);
             spanHeaders.add(i);
             if (header.getWidth() > 0) {
-                sheet.setColumnWidth(i, header.getWidth() * 256);
+                sheet.setColumnWidth(i + sheetStyle.getXOffset(), header.getWidth() * 256);
             }
         }
         if (categories != null && categories.length > 0) {
             contentOffset++;
             SXSSFRow categoryRow = sheet.createRow(sheetStyle.getYOffset());
             if (sheetStyle.getCategoryHeight() > 0) {
-                categoryRow.setHeight((short) (sheetStyle.getHeaderHeight() * 20));
+                categoryRow.setHeight((short) (sheetStyle.getCategoryHeight() * 20));
             }
-            XSSFCellStyle categoryStyle = getHeaderCellStyle(workbook,
+            XSSFCellStyle categoryStyle = styleRegistry.getHeaderStyle(
                     sheetStyle.getDefaultCategoryStyle() == null ? CustomStyle.builder().build() : sheetStyle.getDefaultCategoryStyle());
             for (HeaderCategory category : categories) {
                 for (int i = category.getStart(); i <= category.getEnd(); i++) {
                     spanHeaders.remove(i);
                     SXSSFCell cell = categoryRow.createCell(i + sheetStyle.getXOffset());
-                    cell.setCellStyle(category.getStyle() != null ? getHeaderCellStyle(workbook, category.getStyle()) : categoryStyle);
+                    cell.setCellStyle(category.getStyle() != null ? styleRegistry.getHeaderStyle(category.getStyle()) : categoryStyle);
                     cell.setCellValue(i == category.getStart() ? category.getName() : "");
                     cell.setCellType(CellType.STRING);
                 }
@@ -175,68 +342,4 @@ public class ExportExcel {
         return contentOffset;
     }
 
-    private XSSFCellStyle getHeaderCellStyle(SXSSFWorkbook workbook, CustomStyle style) {
-        XSSFCellStyle headerStyle = (XSSFCellStyle) workbook.createCellStyle();
-        headerStyle.setAlignment(HorizontalAlignment.CENTER);
-        headerStyle.setVerticalAlignment(VerticalAlignment.CENTER);
-        XSSFFont headerFont = prepareFont(workbook, style);
-        headerFont.setBold(true);
-        headerStyle.setFont(headerFont);
-        headerStyle.setWrapText(true);
-        if (style.getBg() != null) {
-            headerStyle.setFillForegroundColor(style.getBg());
-            headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-        }
-        setBorder(headerStyle);
-        return headerStyle;
-    }
-
-    private XSSFCellStyle getContentCellStyle(SXSSFWorkbook workbook, CustomStyle style) {
-        XSSFCellStyle contentStyle = (XSSFCellStyle) workbook.createCellStyle();
-        if (style.getBg() != null) {
-            contentStyle.setFillForegroundColor(style.getBg());
-            contentStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-        }
-        contentStyle.setFont(prepareFont(workbook, style));
-        XSSFDataFormat format = (XSSFDataFormat) workbook.createDataFormat();
-        contentStyle.setDataFormat(format.getFormat("@"));
-        contentStyle.setAlignment(style.getHorizontalAlignment());
-        contentStyle.setVerticalAlignment(style.getVerticalAlignment());
-        contentStyle.setWrapText(true);
-        setBorder(contentStyle);
-        return contentStyle;
-    }
-
-    private XSSFFont prepareFont(SXSSFWorkbook workbook, CustomStyle style) {
-        XSSFFont font = (XSSFFont) workbook.createFont();
-        if (style.getFontColor() != null) {
-            font.setColor(style.getFontColor());
-        } else if (defaultStyle.getFontColor() != null) {
-            font.setColor(defaultStyle.getFontColor());
-        }
-        if (style.getFontName() != null && !"".equals(style.getFontName())) {
-            font.setFontName(style.getFontName());
-        } else if (defaultStyle.getFontName() != null && !"".equals(defaultStyle.getFontName())) {
-            font.setFontName(defaultStyle.getFontName());
-        }
-        if (style.getFontSize() > 0) {
-            font.setFontHeightInPoints((short) style.getFontSize());
-        } else if (defaultStyle.getFontSize() > 0) {
-            font.setFontHeightInPoints((short) style.getFontSize());
-        }
-        return font;
-    }
-
-    private void setBorder(XSSFCellStyle cellStyle) {
-        cellStyle.setBorderTop(BorderStyle.THIN);
-        cellStyle.setBorderBottom(BorderStyle.THIN);
-        cellStyle.setBorderLeft(BorderStyle.THIN);
-        cellStyle.setBorderRight(BorderStyle.THIN);
-        cellStyle.setTopBorderColor(IndexedColors.BLACK.getIndex());
-        cellStyle.setBottomBorderColor(IndexedColors.BLACK.getIndex());
-        cellStyle.setLeftBorderColor(IndexedColors.BLACK.getIndex());
-        cellStyle.setRightBorderColor(IndexedColors.BLACK.getIndex());
-    }
-
-
 }
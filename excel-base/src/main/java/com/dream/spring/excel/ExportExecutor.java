@@ -0,0 +1,147 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded executor of async export apis
+ *
+ * <p>Exports of apis with {@link com.dream.spring.excel.annotation.ExcelExport#async() async} enabled run on its threads
+ * instead of the servlet container's request threads, so that slow exports never exhaust the connector pool. At most
+ * {@code threads} exports run at once and {@code queueCapacity} wait, further exports are rejected. Exports run with the
+ * context of the request thread, captured by the {@link ContextPropagator}.
+ *
+ * @author DreamJM
+ */
+public class ExportExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportExecutor.class);
+
+    /**
+     * Default count of export threads
+     */
+    public static final int DEFAULT_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Default count of exports waiting for a thread
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 100;
+
+    private static volatile ExportExecutor defaultExecutor;
+
+    private final ThreadPoolExecutor executor;
+
+    private final ContextPropagator propagator;
+
+    /**
+     * @param threads       max count of exports running at once
+     * @param queueCapacity max count of exports waiting for a thread, 0 for none
+     */
+    public ExportExecutor(int threads, int queueCapacity) {
+        this(threads, queueCapacity, null);
+    }
+
+    /**
+     * @param threads       max count of exports running at once
+     * @param queueCapacity max count of exports waiting for a thread, 0 for none
+     * @param propagator    propagates context of the submitting thread into exports, null for none
+     */
+    public ExportExecutor(int threads, int queueCapacity, ContextPropagator propagator) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Export threads must be positive");
+        }
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                queueCapacity > 0 ? new LinkedBlockingQueue<>(queueCapacity) : new SynchronousQueue<>(), r -> {
+            Thread thread = new Thread(r, "dream-excel-export-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+        this.propagator = propagator == null ? ContextPropagator.NONE : propagator;
+    }
+
+    /**
+     * Executor used when none is injected, created with the default sizes on first use
+     *
+     * @return default export executor
+     */
+    public static ExportExecutor getDefault() {
+        if (defaultExecutor == null) {
+            synchronized (ExportExecutor.class) {
+                if (defaultExecutor == null) {
+                    defaultExecutor = new ExportExecutor(DEFAULT_THREADS, DEFAULT_QUEUE_CAPACITY);
+                }
+            }
+        }
+        return defaultExecutor;
+    }
+
+    /**
+     * Runs the export on an export thread with the context of the calling thread, failures are logged
+     *
+     * @param task export task
+     * @throws RejectedExecutionException if all threads are busy and the queue is full
+     */
+    public void execute(ExportTask task) {
+        executor.execute(propagator.wrap(() -> {
+            try {
+                task.run();
+            } catch (Exception e) {
+                logger.error("Async excel export failed", e);
+            }
+        }));
+    }
+
+    /**
+     * @return count of exports running
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * @return count of exports waiting for a thread
+     */
+    public int getQueueSize() {
+        return executor.getQueue().size();
+    }
+
+    /**
+     * Stops accepting exports, running and queued ones are completed
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * Export that writes the response
+     */
+    @FunctionalInterface
+    public interface ExportTask {
+
+        /**
+         * @throws Exception any failure of the export
+         */
+        void run() throws Exception;
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel;
+
+/**
+ * Output format of an export api
+ *
+ * @author DreamJM
+ * @see com.dream.spring.excel.annotation.ExcelExport#formats()
+ */
+public enum ExportFormat {
+
+    /**
+     * Excel workbook
+     */
+    XLSX("xlsx", "application/msexcel", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet", (char) 0),
+    /**
+     * Comma-separated values, see {@link CsvExportExcel}
+     */
+    CSV("csv", "text/csv;charset=UTF-8", "text/csv", ','),
+    /**
+     * Tab-separated values, see {@link CsvExportExcel}
+     */
+    TSV("tsv", "text/tab-separated-values;charset=UTF-8", "text/tab-separated-values", '\t');
+
+    /**
+     * Name of the request parameter that selects the format
+     */
+    public static final String PARAMETER = "format";
+
+    private final String extension;
+
+    private final String contentType;
+
+    private final String mediaType;
+
+    private final char delimiter;
+
+    ExportFormat(String extension, String contentType, String mediaType, char delimiter) {
+        this.extension = extension;
+        this.contentType = contentType;
+        this.mediaType = mediaType;
+        this.delimiter = delimiter;
+    }
+
+    /**
+     * @return file extension
+     */
+    public String getExtension() {
+        return extension;
+    }
+
+    /**
+     * @return response content type
+     */
+    public String getContentType() {
+        return contentType;
+    }
+
+    /**
+     * @return field delimiter of delimited text formats
+     */
+    public char getDelimiter() {
+        return delimiter;
+    }
+
+    /**
+     * Resolves the format of a request. The request parameter (eg: 'format=csv') takes precedence over the Accept header,
+     * whose media types are matched in order. Falls back to the first supported format.
+     *
+     * @param parameter value of the {@link #PARAMETER format} request parameter, may be null
+     * @param accept    Accept header, may be null
+     * @param supported formats supported by the api, the first one is the default
+     * @return format of the request
+     */
+    public static ExportFormat resolve(String parameter, String accept, ExportFormat... supported) {
+        if (parameter != null && !parameter.isEmpty()) {
+            for (ExportFormat format : supported) {
+                if (format.extension.equalsIgnoreCase(parameter.trim())) {
+                    return format;
+                }
+            }
+        }
+        if (accept != null) {
+            for (String range : accept.split(",")) {
+                String[] segments = range.split(";");
+                if (isRejected(segments)) {
+                    continue;
+                }
+                String mediaType = segments[0].trim();
+                for (ExportFormat format : supported) {
+                    if (format.mediaType.equalsIgnoreCase(mediaType) ||
+                            format.contentType.equalsIgnoreCase(mediaType)) {
+                        return format;
+                    }
+                }
+            }
+        }
+        return supported[0];
+    }
+
+    /**
+     * @return {@code true} if the media range has 'q=0'
+     */
+    private static boolean isRejected(String[] segments) {
+        for (int i = 1; i < segments.length; i++) {
+            String param = segments[i].trim();
+            if (param.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(param.substring(2)) <= 0;
+                } catch (NumberFormatException e) {
+                    return false;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,347 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel;
+
+import com.dream.spring.excel.bean.ExcelExportConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.InterruptedIOException;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Admission control of exports
+ *
+ * <ul>
+ * <li>At most {@code maxConcurrent} exports run at once on the node, and at most the limit of its endpoint (see
+ * {@link com.dream.spring.excel.annotation.ExcelExport#maxConcurrent()}).</li>
+ * <li>Further exports are queued up to {@code maxQueued}, and rejected with {@link ExportRejectedException} once queued
+ * longer than {@code queueTimeout}.</li>
+ * <li>Small exports, estimated at most {@code fastLaneRows} rows, are admitted before queued large ones, and may run on
+ * {@code fastLanePermits} extra permits when the node limit is reached, so they never wait behind large reports.</li>
+ * </ul>
+ * Queue depth and wait time are reported by the getters, eg: for metrics.
+ *
+ * @author DreamJM
+ */
+public class ExportGovernor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportGovernor.class);
+
+    private static volatile ExportGovernor defaultGovernor;
+
+    /**
+     * Queued exports, small ones first and then by arrival
+     */
+    private final TreeSet<Ticket> queue = new TreeSet<>(Comparator.comparing((Ticket ticket) -> !ticket.small)
+            .thenComparingLong(ticket -> ticket.sequence));
+
+    private final Map<String, Integer> endpointRunning = new HashMap<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition released = lock.newCondition();
+
+    private final int maxConcurrent;
+
+    private final int maxQueued;
+
+    private final long queueTimeout;
+
+    private final int fastLanePermits;
+
+    private final long fastLaneRows;
+
+    private long sequence;
+
+    private int running;
+
+    private int fastLaneRunning;
+
+    private long admittedCount;
+
+    private long rejectedCount;
+
+    private long totalWaitNanos;
+
+    private long maxWaitNanos;
+
+    /**
+     * @param config global export config, defaults are used if null
+     */
+    public ExportGovernor(ExcelExportConfig config) {
+        if (config == null) {
+            config = new ExcelExportConfig();
+        }
+        this.maxConcurrent = config.getMaxConcurrentExports();
+        this.maxQueued = config.getMaxQueuedExports();
+        this.queueTimeout = config.getExportQueueTimeout();
+        this.fastLanePermits = config.getFastLanePermits();
+        this.fastLaneRows = config.getFastLaneRows();
+    }
+
+    /**
+     * Governor used when none is injected, created with the default config on first use
+     *
+     * @return default export governor
+     */
+    public static ExportGovernor getDefault() {
+        if (defaultGovernor == null) {
+            synchronized (ExportGovernor.class) {
+                if (defaultGovernor == null) {
+                    defaultGovernor = new ExportGovernor(null);
+                }
+            }
+        }
+        return defaultGovernor;
+    }
+
+    /**
+     * Admits an export, waiting in the queue if limits are reached
+     *
+     * @param endpoint      request path of the export api
+     * @param endpointLimit max count of exports of the endpoint running at once, 0 for no limit
+     * @param estimatedRows estimated row count of the export, negative if unknown
+     * @return permit of the export, should be closed when the export is done
+     * @throws ExportRejectedException if the queue is full or the export has been queued too long
+     * @throws InterruptedIOException  if interrupted while queued
+     */
+    public Permit acquire(String endpoint, int endpointLimit, long estimatedRows) throws ExportRejectedException,
+            InterruptedIOException {
+        long start = System.nanoTime();
+        lock.lock();
+        try {
+            Ticket ticket = new Ticket(endpoint, endpointLimit, estimatedRows >= 0 && estimatedRows <= fastLaneRows, sequence++);
+            queue.add(ticket);
+            try {
+                if (!isNext(ticket) && maxQueued > 0 && queue.size() > maxQueued) {
+                    rejectedCount++;
+                    throw new ExportRejectedException("Export queue of " + endpoint + " is full", running + fastLaneRunning,
+                            queue.size() - 1);
+                }
+                long nanos = TimeUnit.MILLISECONDS.toNanos(queueTimeout);
+                while (!isNext(ticket)) {
+                    if (nanos <= 0) {
+                        rejectedCount++;
+                        throw new ExportRejectedException("Export of " + endpoint + " queued longer than " + queueTimeout + "ms",
+                                running + fastLaneRunning, queue.size() - 1);
+                    }
+                    nanos = released.awaitNanos(nanos);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while queued for export");
+            } finally {
+                queue.remove(ticket);
+                // Exports queued behind may be admissible now
+                released.signalAll();
+            }
+            boolean fastLane = maxConcurrent > 0 && running >= maxConcurrent;
+            if (fastLane) {
+                fastLaneRunning++;
+            } else {
+                running++;
+            }
+            endpointRunning.merge(endpoint, 1, Integer::sum);
+            long wait = System.nanoTime() - start;
+            admittedCount++;
+            totalWaitNanos += wait;
+            maxWaitNanos = Math.max(maxWaitNanos, wait);
+            if (logger.isDebugEnabled() && wait > TimeUnit.MILLISECONDS.toNanos(1)) {
+                logger.debug("Export of {} admitted after {}ms in queue{}", endpoint, TimeUnit.NANOSECONDS.toMillis(wait),
+                        fastLane ? " on fast lane" : "");
+            }
+            return new Permit(endpoint, fastLane);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return whether the ticket is admissible and no queued one before it is
+     */
+    private boolean isNext(Ticket ticket) {
+        for (Ticket queued : queue) {
+            if (isAdmissible(queued)) {
+                return queued == ticket;
+            }
+        }
+        return false;
+    }
+
+    private boolean isAdmissible(Ticket ticket) {
+        if (ticket.endpointLimit > 0 && endpointRunning.getOrDefault(ticket.endpoint, 0) >= ticket.endpointLimit) {
+            return false;
+        }
+        return maxConcurrent <= 0 || running < maxConcurrent || (ticket.small && fastLaneRunning < fastLanePermits);
+    }
+
+    private void release(Permit permit) {
+        lock.lock();
+        try {
+            if (permit.fastLane) {
+                fastLaneRunning--;
+            } else {
+                running--;
+            }
+            endpointRunning.computeIfPresent(permit.endpoint, (key, count) -> count > 1 ? count - 1 : null);
+            released.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return count of exports running, fast lane included
+     */
+    public int getRunning() {
+        lock.lock();
+        try {
+            return running + fastLaneRunning;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return count of exports running on the fast lane
+     */
+    public int getFastLaneRunning() {
+        lock.lock();
+        try {
+            return fastLaneRunning;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return count of exports queued
+     */
+    public int getQueued() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return count of exports admitted so far
+     */
+    public long getAdmittedCount() {
+        lock.lock();
+        try {
+            return admittedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return count of exports rejected so far
+     */
+    public long getRejectedCount() {
+        lock.lock();
+        try {
+            return rejectedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return average time in milliseconds that admitted exports waited
+     */
+    public double getAverageWaitMillis() {
+        lock.lock();
+        try {
+            return admittedCount == 0 ? 0 : totalWaitNanos / 1e6 / admittedCount;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return longest time in milliseconds that an admitted export waited
+     */
+    public long getMaxWaitMillis() {
+        lock.lock();
+        try {
+            return TimeUnit.NANOSECONDS.toMillis(maxWaitNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Admission of an export, released when closed
+     */
+    public class Permit implements AutoCloseable {
+
+        private final String endpoint;
+
+        private final boolean fastLane;
+
+        private boolean closed;
+
+        private Permit(String endpoint, boolean fastLane) {
+            this.endpoint = endpoint;
+            this.fastLane = fastLane;
+        }
+
+        /**
+         * @return whether the export runs on the fast lane
+         */
+        public boolean isFastLane() {
+            return fastLane;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (!closed) {
+                closed = true;
+                release(this);
+            }
+        }
+    }
+
+    private static class Ticket {
+
+        private final String endpoint;
+
+        private final int endpointLimit;
+
+        private final boolean small;
+
+        private final long sequence;
+
+        private Ticket(String endpoint, int endpointLimit, boolean small, long sequence) {
+            this.endpoint = endpoint;
+            this.endpointLimit = endpointLimit;
+            this.small = small;
+            this.sequence = sequence;
+        }
+    }
+}
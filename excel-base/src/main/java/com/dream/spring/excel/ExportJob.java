@@ -0,0 +1,194 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Export running in the background, see {@link ExportJobManager}
+ *
+ * <p>Its getters describe the job to clients polling its status: rows written so far and the estimated total.
+ *
+ * @author DreamJM
+ */
+public class ExportJob {
+
+    /**
+     * Status of an export job
+     */
+    public enum Status {
+        /**
+         * Waiting for an export thread
+         */
+        QUEUED,
+        /**
+         * Being generated
+         */
+        RUNNING,
+        /**
+         * Generated, the file can be downloaded
+         */
+        COMPLETED,
+        /**
+         * Failed, see {@link #getError()}
+         */
+        FAILED
+    }
+
+    private final String id;
+
+    private final String endpoint;
+
+    private final String fileName;
+
+    private final long estimatedRows;
+
+    private final long createdTime = System.currentTimeMillis();
+
+    private final AtomicLong rowsWritten = new AtomicLong();
+
+    /**
+     * Generated file, only exists once completed
+     */
+    private final File file;
+
+    private volatile Status status = Status.QUEUED;
+
+    private volatile long finishedTime;
+
+    private volatile String error;
+
+    ExportJob(String id, String endpoint, String fileName, long estimatedRows, File file) {
+        this.id = id;
+        this.endpoint = endpoint;
+        this.fileName = fileName;
+        this.estimatedRows = estimatedRows;
+        this.file = file;
+    }
+
+    /**
+     * Counts the rows of the export as they are written
+     *
+     * @param rows rows of the export
+     * @return rows counted into {@link #getRowsWritten()}
+     */
+    public RowSource track(RowSource rows) {
+        return row -> {
+            if (rows.fill(row)) {
+                rowsWritten.incrementAndGet();
+                return true;
+            }
+            return false;
+        };
+    }
+
+    /**
+     * @return job id
+     */
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return request path of the export api
+     */
+    public String getEndpoint() {
+        return endpoint;
+    }
+
+    /**
+     * @return file name for downloading
+     */
+    public String getFileName() {
+        return fileName;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    /**
+     * @return count of content rows written so far
+     */
+    public long getRowsWritten() {
+        return rowsWritten.get();
+    }
+
+    /**
+     * @return estimated count of content rows, negative if unknown
+     */
+    public long getEstimatedRows() {
+        return estimatedRows;
+    }
+
+    /**
+     * @return progress in percent, 100 once completed, negative if the total is unknown
+     */
+    public double getProgress() {
+        if (status == Status.COMPLETED) {
+            return 100;
+        }
+        if (estimatedRows <= 0) {
+            return -1;
+        }
+        // The estimate may be exceeded, the job is not done until completed
+        return Math.min(99, rowsWritten.get() * 100.0 / estimatedRows);
+    }
+
+    /**
+     * @return generic failure reason if failed
+     */
+    public String getError() {
+        return error;
+    }
+
+    public long getCreatedTime() {
+        return createdTime;
+    }
+
+    /**
+     * @return time the job completed or failed, 0 if not finished
+     */
+    public long getFinishedTime() {
+        return finishedTime;
+    }
+
+    File getFile() {
+        return file;
+    }
+
+    void start() {
+        status = Status.RUNNING;
+    }
+
+    void complete() {
+        finishedTime = System.currentTimeMillis();
+        status = Status.COMPLETED;
+    }
+
+    void fail() {
+        // The cause is logged, its message may reveal internals to the clients
+        error = "Export failed";
+        finishedTime = System.currentTimeMillis();
+        status = Status.FAILED;
+    }
+
+    boolean isFinished() {
+        return status == Status.COMPLETED || status == Status.FAILED;
+    }
+}
@@ -0,0 +1,218 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel;
+
+import com.dream.spring.excel.bean.ExcelExportConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Registry of background export jobs
+ *
+ * <p>Jobs are generated on the {@link ExportExecutor} into the job directory under the {@link FileUtils cache root}, so that
+ * long exports don't hold HTTP connections: clients submit a job, poll its status and download the file once completed.
+ * Finished jobs and their files are dropped after the retention time, files left by jobs of former runs are reaped
+ * once they are older than the retention time.
+ *
+ * @author DreamJM
+ */
+public class ExportJobManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(ExportJobManager.class);
+
+    /**
+     * Minimum interval in milliseconds between scans of the job directory
+     */
+    private static final long REAP_INTERVAL = 60_000;
+
+    private static volatile ExportJobManager defaultManager;
+
+    private final Map<String, ExportJob> jobs = new ConcurrentHashMap<>();
+
+    /**
+     * Job directory relative to the cache root
+     */
+    private final String jobDir;
+
+    /**
+     * Time in milliseconds that finished jobs are kept
+     */
+    private final long retention;
+
+    /**
+     * Time of the next scan of the job directory
+     */
+    private volatile long nextReap;
+
+    /**
+     * @param config global export config, defaults are used if null
+     */
+    public ExportJobManager(ExcelExportConfig config) {
+        if (config == null) {
+            config = new ExcelExportConfig();
+        }
+        this.jobDir = config.getJobDir();
+        this.retention = config.getJobRetention();
+        purgeExpired();
+    }
+
+    /**
+     * Manager used when none is injected, created with the default config on first use
+     *
+     * @return default job manager
+     */
+    public static ExportJobManager getDefault() {
+        if (defaultManager == null) {
+            synchronized (ExportJobManager.class) {
+                if (defaultManager == null) {
+                    defaultManager = new ExportJobManager(null);
+                }
+            }
+        }
+        return defaultManager;
+    }
+
+    /**
+     * Submits an export job
+     *
+     * @param executor      executor generating the job
+     * @param endpoint      request path of the export api
+     * @param fileName      file name for downloading
+     * @param estimatedRows estimated count of content rows, negative if unknown
+     * @param task          generates the file
+     * @return the job, queued
+     * @throws RejectedExecutionException if the executor is full
+     */
+    public ExportJob submit(ExportExecutor executor, String endpoint, String fileName, long estimatedRows, JobTask task) {
+        purgeExpired();
+        String id = UUID.randomUUID().toString().replace("-", "");
+        ExportJob job = new ExportJob(id, endpoint, fileName, estimatedRows, new File(FileUtils.cacheDir(jobDir), id));
+        jobs.put(id, job);
+        try {
+            executor.execute(() -> run(job, task));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(id);
+            throw e;
+        }
+        return job;
+    }
+
+    private void run(ExportJob job, JobTask task) {
+        job.start();
+        // Written aside and renamed once complete, so that only complete files are downloaded
+        File part = new File(job.getFile().getPath() + ".part");
+        try {
+            try (OutputStream out = new BufferedOutputStream(new FileOutputStream(part))) {
+                task.run(job, out);
+            }
+            if (!part.renameTo(job.getFile())) {
+                throw new IOException("Failed to rename " + part);
+            }
+            job.complete();
+        } catch (Throwable e) {
+            // Errors as well, or the job would stay running and never expire
+            part.delete();
+            job.fail();
+            logger.error("Export job {} of {} failed", job.getId(), job.getEndpoint(), e);
+            if (e instanceof Error) {
+                throw (Error) e;
+            }
+        }
+    }
+
+    /**
+     * @param id       job id
+     * @param endpoint request path of the export api
+     * @return the job, or null if unknown, expired or of another endpoint
+     */
+    public ExportJob getJob(String id, String endpoint) {
+        purgeExpired();
+        ExportJob job = id == null ? null : jobs.get(id);
+        return job != null && job.getEndpoint().equals(endpoint) ? job : null;
+    }
+
+    /**
+     * @param job export job
+     * @return generated file, or null if the job isn't completed
+     */
+    public File getFile(ExportJob job) {
+        return job.getStatus() == ExportJob.Status.COMPLETED && job.getFile().exists() ? job.getFile() : null;
+    }
+
+    /**
+     * @return count of jobs queued or running
+     */
+    public int getActiveCount() {
+        return (int) jobs.values().stream().filter(job -> !job.isFinished()).count();
+    }
+
+    /**
+     * Drops jobs finished longer than the retention time ago, and deletes their files. Files of the job directory that
+     * belong to no job are deleted once older than the retention time
+     */
+    public void purgeExpired() {
+        long now = System.currentTimeMillis();
+        long expiry = now - retention;
+        jobs.values().removeIf(job -> {
+            if (job.isFinished() && job.getFinishedTime() < expiry) {
+                job.getFile().delete();
+                return true;
+            }
+            return false;
+        });
+        if (now >= nextReap) {
+            nextReap = now + REAP_INTERVAL;
+            reapStale(expiry);
+        }
+    }
+
+    /**
+     * Deletes files left by jobs of former runs, or by jobs whose file couldn't be deleted
+     */
+    private void reapStale(long expiry) {
+        File[] files = FileUtils.cacheDir(jobDir).listFiles(File::isFile);
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            String id = file.getName().endsWith(".part") ? file.getName().substring(0, file.getName().length() - 5) : file.getName();
+            if (!jobs.containsKey(id) && file.lastModified() < expiry && !file.delete()) {
+                logger.warn("Failed to delete stale export job file {}", file);
+            }
+        }
+    }
+
+    /**
+     * Generates the file of an export job
+     */
+    @FunctionalInterface
+    public interface JobTask {
+
+        /**
+         * @param job    the job, whose progress is tracked through {@link ExportJob#track(RowSource)}
+         * @param output output of the file
+         * @throws Exception any failure of the export
+         */
+        void run(ExportJob job, OutputStream output) throws Exception;
+    }
+}
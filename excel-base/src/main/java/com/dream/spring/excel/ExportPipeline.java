@@ -0,0 +1,244 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel;
+
+import com.dream.spring.excel.bean.ExcelExportConfig;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+
+/**
+ * Fetch, convert and write stages of a paged export running concurrently
+ *
+ * <p>Pages are fetched by a fetch stage (see {@link PagedIterator#prefetch(int, StageExecutor)}), rows are converted by a
+ * convert stage and handed over in batches to the thread writing the excel. The stages are decoupled by bounded queues, so
+ * that page N+1 is fetched while page N is converted and rows of page N-1 are written, and a slow stage holds the others
+ * back instead of letting data pile up. The stages run on the {@link StageExecutor} with the context of the writing thread
+ * propagated, a stage that gets no idle stage thread runs in the writing thread instead.
+ *
+ * <p>The pipeline is disabled by default (depth 0), all stages then run in the writing thread.
+ *
+ * <p>The pipeline must be closed once the export ends, which stops stages still running if the export failed.
+ *
+ * @author DreamJM
+ * @see ExcelExportConfig#getPipelineDepth()
+ */
+public class ExportPipeline implements AutoCloseable {
+
+    /**
+     * Default count of pages and of row batches queued between stages
+     */
+    public static final int DEFAULT_DEPTH = 0;
+
+    /**
+     * Default count of rows of a batch handed over to the writer
+     */
+    public static final int DEFAULT_BATCH_SIZE = 256;
+
+    private final int depth;
+
+    private final int batchSize;
+
+    private final StageExecutor executor;
+
+    private PagedIterator<?> pages;
+
+    private ConvertStage convert;
+
+    /**
+     * @param config   global export config, defaults are used if null
+     * @param executor executor of the stages
+     */
+    public ExportPipeline(ExcelExportConfig config, StageExecutor executor) {
+        this(config == null ? DEFAULT_DEPTH : config.getPipelineDepth(),
+                config == null ? DEFAULT_BATCH_SIZE : config.getPipelineBatchSize(), executor);
+    }
+
+    /**
+     * @param depth     count of pages and of row batches queued between stages, 0 to run all stages in the writing thread
+     * @param batchSize count of rows of a batch handed over to the writer
+     * @param executor  executor of the stages
+     */
+    public ExportPipeline(int depth, int batchSize, StageExecutor executor) {
+        this.depth = depth;
+        this.batchSize = Math.max(1, batchSize);
+        this.executor = executor;
+    }
+
+    /**
+     * Starts the fetch and convert stages
+     *
+     * @param pages       paged data of the export, not iterated yet
+     * @param rows        converts the items of the pages into rows
+     * @param columnCount column count of rows
+     * @return rows handed over to the writer, or the given rows if the pipeline is disabled or rows are converted in the
+     * writing thread
+     */
+    public RowSource pipe(PagedIterator<?> pages, RowSource rows, int columnCount) {
+        if (depth <= 0) {
+            return rows;
+        }
+        this.pages = pages;
+        pages.prefetch(depth, executor);
+        ConvertStage stage = new ConvertStage(columnCount, depth, batchSize);
+        if (!stage.start(rows, executor)) {
+            return rows;
+        }
+        this.convert = stage;
+        return convert;
+    }
+
+    /**
+     * Stops the stages still running
+     */
+    @Override
+    public void close() {
+        if (convert != null) {
+            convert.close();
+        }
+        if (pages != null) {
+            pages.close();
+        }
+    }
+
+    /**
+     * Rows converted ahead by the convert stage. Batches of rows are recycled, so no row is allocated per item.
+     */
+    private static class ConvertStage implements RowSource {
+
+        private final BlockingQueue<Batch> free;
+
+        private final BlockingQueue<Batch> filled;
+
+        private Future<?> task;
+
+        private volatile boolean closed;
+
+        /**
+         * Batch being written
+         */
+        private Batch current;
+
+        private int position;
+
+        private ConvertStage(int columnCount, int depth, int batchSize) {
+            // Batches queued, plus the ones being converted and written
+            int batches = depth + 2;
+            this.free = new ArrayBlockingQueue<>(batches);
+            this.filled = new ArrayBlockingQueue<>(batches + 1);
+            for (int i = 0; i < batches; i++) {
+                free.add(new Batch(columnCount, batchSize));
+            }
+        }
+
+        /**
+         * @return {@code false} if no stage thread is idle
+         */
+        private boolean start(RowSource source, StageExecutor executor) {
+            task = executor.tryExecute(() -> convert(source));
+            return task != null;
+        }
+
+        private void convert(RowSource source) {
+            try {
+                Batch batch;
+                do {
+                    batch = free.take();
+                    batch.count = 0;
+                    while (batch.count < batch.rows.length) {
+                        RowBuffer row = batch.rows[batch.count];
+                        row.reset();
+                        if (!source.fill(row)) {
+                            batch.end = true;
+                            break;
+                        }
+                        batch.count++;
+                    }
+                    filled.put(batch);
+                } while (!batch.end);
+            } catch (InterruptedException e) {
+                // Closed
+            } catch (Throwable e) {
+                if (!closed) {
+                    Batch failure = new Batch(0, 0);
+                    failure.error = e;
+                    failure.end = true;
+                    filled.offer(failure);
+                }
+            }
+        }
+
+        @Override
+        public boolean fill(RowBuffer row) {
+            while (current == null || position == current.count) {
+                if (current != null) {
+                    if (current.end) {
+                        return false;
+                    }
+                    free.add(current);
+                }
+                current = take();
+                position = 0;
+            }
+            row.copyFrom(current.rows[position++]);
+            return true;
+        }
+
+        private Batch take() {
+            Batch batch;
+            try {
+                batch = filled.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                close();
+                throw new IllegalStateException("Interrupted while waiting for converted rows", e);
+            }
+            if (batch.error instanceof RuntimeException) {
+                throw (RuntimeException) batch.error;
+            } else if (batch.error instanceof Error) {
+                throw (Error) batch.error;
+            } else if (batch.error != null) {
+                throw new IllegalStateException("Failed to convert rows", batch.error);
+            }
+            return batch;
+        }
+
+        private void close() {
+            closed = true;
+            task.cancel(true);
+        }
+    }
+
+    private static class Batch {
+
+        private final RowBuffer[] rows;
+
+        private int count;
+
+        private boolean end;
+
+        private Throwable error;
+
+        private Batch(int columnCount, int size) {
+            this.rows = new RowBuffer[size];
+            for (int i = 0; i < size; i++) {
+                rows[i] = new RowBuffer(columnCount);
+            }
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel;
+
+import java.io.IOException;
+
+/**
+ * Thrown when an export isn't admitted by the {@link ExportGovernor}, because the queue is full or it has been queued too
+ * long. Generated apis answer it with 503.
+ *
+ * @author DreamJM
+ * @see ExportGovernor
+ */
+public class ExportRejectedException extends IOException {
+
+    /**
+     * Count of exports running when rejected
+     */
+    private int running;
+
+    /**
+     * Count of exports queued when rejected
+     */
+    private int queued;
+
+    public ExportRejectedException(String message, int running, int queued) {
+        super(message + " (" + running + " exports running, " + queued + " queued)");
+        this.running = running;
+        this.queued = queued;
+    }
+
+    /**
+     * @return count of exports running when rejected
+     */
+    public int getRunning() {
+        return running;
+    }
+
+    /**
+     * @return count of exports queued when rejected
+     */
+    public int getQueued() {
+        return queued;
+    }
+}
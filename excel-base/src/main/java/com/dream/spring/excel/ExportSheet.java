@@ -0,0 +1,85 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel;
+
+/**
+ * Definition and content rows of one sheet in a multi-sheet workbook
+ *
+ * @author DreamJM
+ * @see MultiSheetExportExcel
+ */
+public class ExportSheet {
+
+    /**
+     * Sheet style paramters
+     */
+    private SheetStyle sheetStyle;
+
+    /**
+     * Columns' definition
+     */
+    private Column[] columns;
+
+    /**
+     * Categories' definition
+     */
+    private HeaderCategory[] categories;
+
+    /**
+     * Source of content rows
+     */
+    private RowSource rowSource;
+
+    public ExportSheet(SheetStyle sheetStyle, Column[] columns, RowSource rowSource) {
+        this(sheetStyle, columns, null, rowSource);
+    }
+
+    public ExportSheet(SheetStyle sheetStyle, Column[] columns, HeaderCategory[] categories, RowSource rowSource) {
+        this.sheetStyle = sheetStyle;
+        this.columns = columns;
+        this.categories = categories;
+        this.rowSource = rowSource;
+    }
+
+    /**
+     * @return sheet style paramters
+     */
+    public SheetStyle getSheetStyle() {
+        return sheetStyle;
+    }
+
+    /**
+     * @return columns' definition
+     */
+    public Column[] getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return categories' definition
+     */
+    public HeaderCategory[] getCategories() {
+        return categories;
+    }
+
+    /**
+     * @return source of content rows
+     */
+    public RowSource getRowSource() {
+        return rowSource;
+    }
+}
@@ -0,0 +1,319 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel;
+
+import com.dream.spring.excel.bean.ExcelExportConfig;
+import com.dream.spring.excel.xlsx.DeflatedOutput;
+import com.dream.spring.excel.xlsx.SheetXmlWriter;
+import com.dream.spring.excel.xlsx.WorkbookParts;
+import com.dream.spring.excel.xlsx.ZipWriter;
+import org.apache.poi.ss.util.WorkbookUtil;
+import org.apache.poi.xssf.model.StylesTable;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Excel exporting util which writes a workbook of several sheets
+ *
+ * <p>Each sheet is supplied by a {@link Callable}, so both data fetching and xml generation of the sheets run concurrently
+ * on the {@link StageExecutor}, with the context of the calling thread. The first sheet is written straight into the output
+ * while the others are deflated into temp files, which are copied into the xlsx package without being compressed again once
+ * the first sheet is done. The export takes about as long as the slowest sheet. Sheets that get no idle stage thread, or
+ * all sheets without an executor, are generated by the calling thread one after another. Sheets over the row limit continue
+ * in numbered sheets right after them. All sheets share one {@link SharedStrings shared strings table}.
+ *
+ * @author DreamJM
+ */
+public class MultiSheetExportExcel {
+
+    /**
+     * Suppliers of the sheets in order
+     */
+    private List<Callable<ExportSheet>> sheets;
+
+    /**
+     * Excel output stream
+     */
+    private OutputStream out;
+
+    /**
+     * Executor of the sheet tasks, sheets are generated by the calling thread if absent
+     */
+    private StageExecutor executor;
+
+    /**
+     * Global export config
+     */
+    private ExcelExportConfig config;
+
+    /**
+     * Compression profile overriding the config
+     */
+    private ExcelExportConfig.Compression compression;
+
+    /**
+     * Deflate level of the export
+     */
+    private int level;
+
+    /**
+     * Style registries of the sheets of the last export
+     */
+    private List<StyleRegistry> styleRegistries = new ArrayList<>();
+
+    /**
+     * Manager of temp files of generated sheets
+     */
+    private TempFileManager tempFileManager = TempFileManager.getDefault();
+
+    public MultiSheetExportExcel(List<Callable<ExportSheet>> sheets, OutputStream out) {
+        this.sheets = sheets;
+        this.out = out;
+    }
+
+    /**
+     * Set the executor that fetches and generates sheets concurrently. Without it, sheets are fetched and generated by the
+     * calling thread one after another.
+     *
+     * @param executor sheet executor
+     */
+    public void setExecutor(StageExecutor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @param config global export config, may be null
+     */
+    public void setConfig(ExcelExportConfig config) {
+        this.config = config;
+    }
+
+    /**
+     * @param compression compression profile overriding the config
+     */
+    public void setCompression(ExcelExportConfig.Compression compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * @param tempFileManager manager of temp files of generated sheets, {@link TempFileManager#getDefault()} by default
+     */
+    public void setTempFileManager(TempFileManager tempFileManager) {
+        this.tempFileManager = tempFileManager;
+    }
+
+    /**
+     * Start to export excel
+     *
+     * @throws IOException IO Exception
+     */
+    public void exportExcel() throws IOException {
+        if (sheets.isEmpty()) {
+            throw new IllegalArgumentException("At least one sheet is required");
+        }
+        StylesTable stylesTable = new StylesTable();
+        SharedStrings sharedStrings = new SharedStrings(config);
+        styleRegistries.clear();
+        if (compression != null) {
+            level = compression.getLevel();
+        } else if (config != null && config.getCompression() != null) {
+            level = config.getCompression().getLevel();
+        } else {
+            level = ExcelExportConfig.Compression.BALANCED.getLevel();
+        }
+        TempFileManager.Lease lease = tempFileManager.acquire();
+        List<FutureTask<List<SheetPart>>> parts = new ArrayList<>();
+        boolean completed = false;
+        try {
+            for (int i = 1; i < sheets.size(); i++) {
+                Callable<ExportSheet> sheet = sheets.get(i);
+                FutureTask<List<SheetPart>> part =
+                        new FutureTask<>(() -> writeTempParts(sheet.call(), stylesTable, sharedStrings, lease));
+                parts.add(part);
+                if (executor != null) {
+                    // Left to the calling thread if no stage thread is idle
+                    executor.tryExecute(part);
+                }
+            }
+            List<String> sheetNames = new ArrayList<>();
+            ZipWriter zip = new ZipWriter(out, level);
+            zip.setExecutor(DeflatedOutput.defaultExecutor());
+            // The first sheet is generated by the calling thread directly into the output
+            ExportSheet first = call(sheets.get(0));
+            SheetXmlWriter firstWriter = sheetWriter(first, stylesTable, sharedStrings);
+            do {
+                OutputStream entry = zip.putNextEntry(WorkbookParts.sheetEntryName(sheetNames.size()));
+                firstWriter.write(first.getRowSource(), entry);
+                entry.close();
+                sheetNames.add(sheetName(first, sheetNames.isEmpty() ? 1 : sheetNames.size() + 1, sheetNames));
+            } while (firstWriter.hasMoreRows());
+            for (FutureTask<List<SheetPart>> part : parts) {
+                // Generates the sheet if not started by a stage thread, does nothing otherwise
+                part.run();
+                List<SheetPart> sheetParts = getParts(part);
+                for (int i = 0; i < sheetParts.size(); i++) {
+                    SheetPart sheetPart = sheetParts.get(i);
+                    try (InputStream in = new BufferedInputStream(new FileInputStream(sheetPart.file))) {
+                        zip.putDeflatedEntry(WorkbookParts.sheetEntryName(sheetNames.size()), sheetPart.crc, sheetPart.size,
+                                sheetPart.compressedSize, in);
+                    }
+                    lease.delete(sheetPart.file);
+                    sheetNames.add(sheetName(sheetPart.sheet, i + 1, sheetNames));
+                }
+            }
+            WorkbookParts.write(zip, sheetNames, stylesTable, sharedStrings);
+            // Finishes the zip without closing the output stream
+            zip.finish();
+            completed = true;
+        } finally {
+            if (!completed) {
+                for (FutureTask<List<SheetPart>> part : parts) {
+                    part.cancel(true);
+                }
+            }
+            // Temp files of sheets still being generated are deleted as well, their tasks fail to create files afterwards
+            lease.close();
+        }
+    }
+
+    /**
+     * @return count of distinct cell styles created by the last export
+     */
+    public int getStyleCount() {
+        int styleCount = 0;
+        for (StyleRegistry styleRegistry : styleRegistries) {
+            styleCount += styleRegistry.getStyleCount();
+        }
+        return styleCount;
+    }
+
+    /**
+     * Deflates the sheet into temp files, one for each sheet the rows are split into
+     */
+    private List<SheetPart> writeTempParts(ExportSheet sheet, StylesTable stylesTable, SharedStrings sharedStrings,
+                                           TempFileManager.Lease lease) throws IOException {
+        SheetXmlWriter writer = sheetWriter(sheet, stylesTable, sharedStrings);
+        List<SheetPart> sheetParts = new ArrayList<>();
+        do {
+            File file = lease.createTempFile("dream-excel-sheet", ".deflate");
+            try (OutputStream fos = new BufferedOutputStream(new FileOutputStream(file))) {
+                DeflatedOutput deflated = new DeflatedOutput(fos, level, DeflatedOutput.defaultExecutor());
+                writer.write(sheet.getRowSource(), deflated);
+                deflated.finish();
+                sheetParts.add(new SheetPart(sheet, file, deflated.getCrc(), deflated.getSize(), deflated.getCompressedSize()));
+            } catch (IOException | RuntimeException e) {
+                for (SheetPart part : sheetParts) {
+                    lease.delete(part.file);
+                }
+                lease.delete(file);
+                throw e;
+            }
+        } while (writer.hasMoreRows());
+        return sheetParts;
+    }
+
+    private SheetXmlWriter sheetWriter(ExportSheet sheet, StylesTable stylesTable, SharedStrings sharedStrings) {
+        StyleRegistry styleRegistry = new StyleRegistry(stylesTable, sheet.getSheetStyle().getDefaultStyle());
+        synchronized (this) {
+            styleRegistries.add(styleRegistry);
+        }
+        SheetXmlWriter writer = new SheetXmlWriter(sheet.getSheetStyle(), sheet.getColumns(), sheet.getCategories(), styleRegistry);
+        writer.setSharedStrings(sharedStrings);
+        if (config != null) {
+            writer.setMaxRows(config.getMaxRowsPerSheet());
+        }
+        return writer;
+    }
+
+    /**
+     * Sheet names must be unique ignoring case, duplicated ones are suffixed with ' (n)'
+     *
+     * @param part number of the sheet the rows are split into (start from 1), continuation sheets are numbered
+     */
+    private String sheetName(ExportSheet sheet, int part, List<String> existing) {
+        String title = sheet.getSheetStyle().getTitle();
+        WorkbookUtil.validateSheetName(title);
+        String base = part == 1 ? title : WorkbookParts.numberedSheetName(title, part);
+        String name = base;
+        for (int n = 2; containsIgnoreCase(existing, name); n++) {
+            name = WorkbookParts.numberedSheetName(base, n);
+        }
+        return name;
+    }
+
+    private static boolean containsIgnoreCase(List<String> names, String name) {
+        for (String existing : names) {
+            if (existing.equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static ExportSheet call(Callable<ExportSheet> sheet) throws IOException {
+        try {
+            return sheet.call();
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Failed to fetch sheet data", e);
+        }
+    }
+
+    private static List<SheetPart> getParts(Future<List<SheetPart>> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for sheet generation");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException("Failed to generate sheet", cause);
+        }
+    }
+
+    /**
+     * Deflated xml of a sheet generated in a temp file
+     */
+    private static class SheetPart {
+
+        private ExportSheet sheet;
+
+        private File file;
+
+        private long crc;
+
+        private long size;
+
+        private long compressedSize;
+
+        private SheetPart(ExportSheet sheet, File file, long crc, long size, long compressedSize) {
+            this.sheet = sheet;
+            this.file = file;
+            this.crc = crc;
+            this.size = size;
+            this.compressedSize = compressedSize;
+        }
+    }
+}
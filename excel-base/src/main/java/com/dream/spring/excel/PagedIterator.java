@@ -0,0 +1,267 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+
+/**
+ * Iterator over the items of a paged data method
+ *
+ * <p>Pages are fetched one at a time when the items of the previous page are consumed, so only the current page is
+ * referenced while it is written into the excel. Fetching stops at the first empty page, or else at the first page the
+ * {@link Page#hasNext() terminal condition} says is the last.
+ *
+ * <p>If {@link #prefetch(int, StageExecutor) prefetching}, pages are fetched ahead by a stage thread while the current page
+ * is consumed, bounded by the prefetch depth.
+ *
+ * @param <T> item type
+ * @author DreamJM
+ * @see com.dream.spring.excel.annotation.Paging
+ */
+public class PagedIterator<T> implements Iterable<T>, Iterator<T>, AutoCloseable {
+
+    private final PageFetcher<T> fetcher;
+
+    private int pageNum;
+
+    private Iterator<? extends T> items = Collections.emptyIterator();
+
+    private boolean last;
+
+    /**
+     * Pages fetched ahead, or failures of fetching, null if not prefetching
+     */
+    private BlockingQueue<Object> prefetched;
+
+    /**
+     * Fetch stage if prefetching
+     */
+    private Future<?> fetchTask;
+
+    /**
+     * @param firstPage number of the first page
+     * @param fetcher   fetches a page by its number
+     */
+    public PagedIterator(int firstPage, PageFetcher<T> fetcher) {
+        this.pageNum = firstPage;
+        this.fetcher = fetcher;
+    }
+
+    /**
+     * Page whose size decides whether more pages follow
+     *
+     * @param items    items of the page, null for none
+     * @param pageSize requested page size
+     * @param <T>      item type
+     * @return page, which is the last if it is not full
+     */
+    public static <T> Page<T> page(Collection<? extends T> items, int pageSize) {
+        return new Page<>(items, items != null && items.size() >= pageSize);
+    }
+
+    /**
+     * @param items    items of the page, null for none
+     * @param hasNext  whether more pages follow
+     * @param <T>      item type
+     * @return page
+     */
+    public static <T> Page<T> page(Collection<? extends T> items, boolean hasNext) {
+        return new Page<>(items, hasNext);
+    }
+
+    /**
+     * Starts fetching pages ahead on a stage thread, it must be called before iterating. Pages are fetched by the iterating
+     * thread if no stage thread is idle.
+     *
+     * @param depth    max count of pages fetched ahead of the current one
+     * @param executor executor of the fetch stage
+     * @return {@code true} if fetching ahead
+     */
+    public synchronized boolean prefetch(int depth, StageExecutor executor) {
+        if (prefetched != null) {
+            return true;
+        }
+        if (depth <= 0) {
+            return false;
+        }
+        BlockingQueue<Object> queue = new ArrayBlockingQueue<>(depth);
+        int firstPage = pageNum;
+        fetchTask = executor.tryExecute(() -> {
+            try {
+                int number = firstPage;
+                Page<T> page;
+                do {
+                    page = fetcher.fetch(number++);
+                    queue.put(page == null ? new Page<T>(null, false) : page);
+                } while (page != null && page.items != null && !page.items.isEmpty() && page.hasNext);
+            } catch (InterruptedException e) {
+                // Closed
+            } catch (Throwable e) {
+                // Errors as well, or the consumer would wait for the next page forever
+                queue.clear();
+                queue.offer(new Failure(e));
+            }
+        });
+        if (fetchTask == null) {
+            return false;
+        }
+        prefetched = queue;
+        return true;
+    }
+
+    /**
+     * Stops the fetch stage if prefetching, eg: if the export failed
+     */
+    @Override
+    public synchronized void close() {
+        if (fetchTask != null) {
+            fetchTask.cancel(true);
+        }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return this;
+    }
+
+    /**
+     * Fetches the next page if the items of the current one are consumed
+     *
+     * @throws IllegalStateException if fetching the page failed with a checked exception
+     */
+    @Override
+    public boolean hasNext() {
+        while (!items.hasNext()) {
+            if (last) {
+                return false;
+            }
+            fetch();
+        }
+        return true;
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return items.next();
+    }
+
+    /**
+     * @return number of the page to be fetched next
+     */
+    public int getPageNum() {
+        return pageNum;
+    }
+
+    private void fetch() {
+        Page<T> page;
+        try {
+            page = prefetched == null ? fetcher.fetch(pageNum) : take();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException("Failed to fetch page " + pageNum, e);
+        }
+        pageNum++;
+        if (page == null || page.items == null || page.items.isEmpty()) {
+            items = Collections.emptyIterator();
+            last = true;
+        } else {
+            // The previous page is released here
+            items = page.items.iterator();
+            last = !page.hasNext;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Page<T> take() throws Exception {
+        Object page;
+        try {
+            page = prefetched.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new IllegalStateException("Interrupted while waiting for page " + pageNum, e);
+        }
+        if (page instanceof Failure) {
+            Throwable error = ((Failure) page).error;
+            if (error instanceof Error) {
+                throw (Error) error;
+            }
+            throw (Exception) error;
+        }
+        return (Page<T>) page;
+    }
+
+    /**
+     * Fetches a page of items, typically by calling the paged data method
+     *
+     * @param <T> item type
+     */
+    @FunctionalInterface
+    public interface PageFetcher<T> {
+
+        /**
+         * @param pageNum page number
+         * @return the page, null for none
+         * @throws Exception any failure of the data method
+         */
+        Page<T> fetch(int pageNum) throws Exception;
+    }
+
+    /**
+     * Items of a page and whether more pages follow
+     *
+     * @param <T> item type
+     */
+    public static class Page<T> {
+
+        private final Collection<? extends T> items;
+
+        private final boolean hasNext;
+
+        private Page(Collection<? extends T> items, boolean hasNext) {
+            this.items = items;
+            this.hasNext = hasNext;
+        }
+
+        public Collection<? extends T> getItems() {
+            return items;
+        }
+
+        public boolean hasNext() {
+            return hasNext;
+        }
+    }
+
+    private static class Failure {
+
+        private final Throwable error;
+
+        private Failure(Throwable error) {
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,331 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel;
+
+import org.apache.poi.ss.usermodel.CellType;
+
+import java.util.Arrays;
+import java.util.Date;
+
+/**
+ * Dense and reusable buffer of one content row
+ *
+ * <p>Values, types and styles are kept in arrays indexed by column number. The same buffer is reset and refilled for every
+ * row, so no objects are allocated per cell while exporting. Numbers, booleans and dates are kept in primitive slots and
+ * written as typed cells without being formatted into Strings.
+ *
+ * @author DreamJM
+ * @see RowSource
+ */
+public class RowBuffer {
+
+    /**
+     * Cell values
+     */
+    private String[] values;
+
+    /**
+     * Cell types
+     */
+    private CellType[] types;
+
+    /**
+     * Conditional cell styles overriding column styles
+     */
+    private CustomStyle[] styles;
+
+    /**
+     * Types of cell values, {@code null} means string
+     */
+    private CellData.ValueType[] valueTypes;
+
+    /**
+     * Long, boolean (1 or 0) and date (epoch millis) values
+     */
+    private long[] longs;
+
+    /**
+     * Double values
+     */
+    private double[] doubles;
+
+    public RowBuffer(int columnCount) {
+        this.values = new String[columnCount];
+        this.types = new CellType[columnCount];
+        this.styles = new CustomStyle[columnCount];
+        this.valueTypes = new CellData.ValueType[columnCount];
+        this.longs = new long[columnCount];
+        this.doubles = new double[columnCount];
+    }
+
+    /**
+     * @return column count of the row
+     */
+    public int size() {
+        return values.length;
+    }
+
+    /**
+     * Sets cell value
+     *
+     * @param column column number
+     * @param value  cell value
+     * @return row buffer
+     */
+    public RowBuffer set(int column, String value) {
+        values[column] = value;
+        valueTypes[column] = null;
+        return this;
+    }
+
+    /**
+     * Sets cell value, type and style
+     *
+     * @param column column number
+     * @param value  cell value
+     * @param type   cell type, {@code null} means string
+     * @param style  cell style, {@code null} means the column style
+     * @return row buffer
+     */
+    public RowBuffer set(int column, String value, CellType type, CustomStyle style) {
+        values[column] = value;
+        valueTypes[column] = null;
+        types[column] = type;
+        styles[column] = style;
+        return this;
+    }
+
+    /**
+     * Sets cell data
+     *
+     * @param column column number
+     * @param cell   cell data, {@code null} means an empty cell
+     * @return row buffer
+     */
+    public RowBuffer set(int column, CellData cell) {
+        if (cell == null) {
+            cell = CellData.EMPTY;
+        }
+        switch (cell.getValueType()) {
+            case LONG:
+                return setLong(column, cell.getLongValue(), cell.getStyle());
+            case DOUBLE:
+                return setDouble(column, cell.getDoubleValue(), cell.getStyle());
+            case BOOLEAN:
+                return setBoolean(column, cell.getLongValue() != 0, cell.getStyle());
+            case DATE:
+                return setDate(column, cell.getLongValue(), cell.getStyle());
+            default:
+                return set(column, cell.getValue(), cell.getType(), cell.getStyle());
+        }
+    }
+
+    /**
+     * Sets a long value, written as a number
+     *
+     * @param column column number
+     * @param value  cell value
+     * @return row buffer
+     */
+    public RowBuffer setLong(int column, long value) {
+        return setLong(column, value, null);
+    }
+
+    /**
+     * Sets a long value, written as a number
+     *
+     * @param column column number
+     * @param value  cell value
+     * @param style  cell style, {@code null} means the column style
+     * @return row buffer
+     */
+    public RowBuffer setLong(int column, long value, CustomStyle style) {
+        longs[column] = value;
+        return setTyped(column, CellData.ValueType.LONG, CellType.NUMERIC, style);
+    }
+
+    /**
+     * Sets a double value, written as a number
+     *
+     * @param column column number
+     * @param value  cell value
+     * @return row buffer
+     */
+    public RowBuffer setDouble(int column, double value) {
+        return setDouble(column, value, null);
+    }
+
+    /**
+     * Sets a double value, written as a number
+     *
+     * @param column column number
+     * @param value  cell value
+     * @param style  cell style, {@code null} means the column style
+     * @return row buffer
+     */
+    public RowBuffer setDouble(int column, double value, CustomStyle style) {
+        doubles[column] = value;
+        return setTyped(column, CellData.ValueType.DOUBLE, CellType.NUMERIC, style);
+    }
+
+    /**
+     * Sets a number, integral numbers are set as long and others as double
+     *
+     * @param column column number
+     * @param value  cell value, {@code null} means an empty cell
+     * @param style  cell style, {@code null} means the column style
+     * @return row buffer
+     */
+    public RowBuffer setNumber(int column, Number value, CustomStyle style) {
+        if (value == null) {
+            return set(column, null, null, style);
+        }
+        if (value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte) {
+            return setLong(column, value.longValue(), style);
+        }
+        return setDouble(column, value.doubleValue(), style);
+    }
+
+    /**
+     * Sets a boolean value
+     *
+     * @param column column number
+     * @param value  cell value, {@code null} means an empty cell
+     * @param style  cell style, {@code null} means the column style
+     * @return row buffer
+     */
+    public RowBuffer setBoolean(int column, Boolean value, CustomStyle style) {
+        if (value == null) {
+            return set(column, null, null, style);
+        }
+        longs[column] = value ? 1 : 0;
+        return setTyped(column, CellData.ValueType.BOOLEAN, CellType.BOOLEAN, style);
+    }
+
+    /**
+     * Sets a date value, written as a number with the date format of the sheet
+     *
+     * @param column      column number
+     * @param epochMillis milliseconds since 1970-01-01T00:00:00Z
+     * @param style       cell style, {@code null} means the column style
+     * @return row buffer
+     * @see SheetStyle#getDateFormat()
+     */
+    public RowBuffer setDate(int column, long epochMillis, CustomStyle style) {
+        longs[column] = epochMillis;
+        return setTyped(column, CellData.ValueType.DATE, CellType.NUMERIC, style);
+    }
+
+    /**
+     * Sets a date value, written as a number with the date format of the sheet
+     *
+     * @param column column number
+     * @param value  cell value, {@code null} means an empty cell
+     * @param style  cell style, {@code null} means the column style
+     * @return row buffer
+     */
+    public RowBuffer setDate(int column, Date value, CustomStyle style) {
+        if (value == null) {
+            return set(column, null, null, style);
+        }
+        return setDate(column, value.getTime(), style);
+    }
+
+    private RowBuffer setTyped(int column, CellData.ValueType valueType, CellType type, CustomStyle style) {
+        values[column] = null;
+        valueTypes[column] = valueType;
+        types[column] = type;
+        styles[column] = style;
+        return this;
+    }
+
+    /**
+     * @param column column number
+     * @return cell value, {@code null} if not set. Typed values are formatted as text.
+     */
+    public String getValue(int column) {
+        if (valueTypes[column] != null) {
+            return CellData.text(valueTypes[column], longs[column], doubles[column]);
+        }
+        return values[column];
+    }
+
+    /**
+     * @param column column number
+     * @return type of the cell value
+     */
+    public CellData.ValueType getValueType(int column) {
+        return valueTypes[column] == null ? CellData.ValueType.STRING : valueTypes[column];
+    }
+
+    /**
+     * @param column column number
+     * @return long value, 1 or 0 of boolean value, or epoch millis of date value
+     */
+    public long getLong(int column) {
+        return longs[column];
+    }
+
+    /**
+     * @param column column number
+     * @return double value
+     */
+    public double getDouble(int column) {
+        return doubles[column];
+    }
+
+    /**
+     * @param column column number
+     * @return cell type, {@code null} if not set
+     */
+    public CellType getType(int column) {
+        return types[column];
+    }
+
+    /**
+     * @param column column number
+     * @return cell style, {@code null} if not set
+     */
+    public CustomStyle getStyle(int column) {
+        return styles[column];
+    }
+
+    /**
+     * Copies all cells of another row of the same size
+     *
+     * @param row row to copy
+     */
+    public void copyFrom(RowBuffer row) {
+        int size = values.length;
+        System.arraycopy(row.values, 0, values, 0, size);
+        System.arraycopy(row.types, 0, types, 0, size);
+        System.arraycopy(row.styles, 0, styles, 0, size);
+        System.arraycopy(row.valueTypes, 0, valueTypes, 0, size);
+        System.arraycopy(row.longs, 0, longs, 0, size);
+        System.arraycopy(row.doubles, 0, doubles, 0, size);
+    }
+
+    /**
+     * Clears all cells for the next row
+     */
+    public void reset() {
+        Arrays.fill(values, null);
+        Arrays.fill(types, null);
+        Arrays.fill(styles, null);
+        Arrays.fill(valueTypes, null);
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pull-based source of excel content rows
+ *
+ * <p>Rows are requested one by one while the sheet is being written, so the whole dataset never needs to be held in memory.
+ *
+ * @author DreamJM
+ * @see ExportExcel
+ */
+@FunctionalInterface
+public interface RowSource {
+
+    /**
+     * Fills the next row into the given buffer
+     *
+     * <p>The buffer is reused for every row. It is reset before each call, and a column left unset will be exported as an
+     * empty cell.
+     *
+     * @param row buffer of the row to fill
+     * @return {@code false} if there are no more rows
+     */
+    boolean fill(RowBuffer row);
+
+    /**
+     * Adapts a fully materialized dataset
+     *
+     * @param dataset row data list, each row mapped by column number
+     * @return row source
+     */
+    static RowSource of(List<Map<Integer, CellData>> dataset) {
+        Iterator<Map<Integer, CellData>> iterator = dataset.iterator();
+        return row -> {
+            if (!iterator.hasNext()) {
+                return false;
+            }
+            for (Map.Entry<Integer, CellData> entry : iterator.next().entrySet()) {
+                if (entry.getKey() >= 0 && entry.getKey() < row.size()) {
+                    row.set(entry.getKey(), entry.getValue());
+                }
+            }
+            return true;
+        };
+    }
+
+    /**
+     * Adapts an iterator of rows
+     *
+     * @param iterator row iterator, each row indexed by column number
+     * @return row source
+     */
+    static RowSource of(Iterator<CellData[]> iterator) {
+        return row -> {
+            if (!iterator.hasNext()) {
+                return false;
+            }
+            CellData[] cells = iterator.next();
+            for (int i = 0, size = Math.min(cells.length, row.size()); i < size; i++) {
+                row.set(i, cells[i]);
+            }
+            return true;
+        };
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel;
+
+import com.dream.spring.excel.bean.ExcelExportConfig;
+
+import java.util.*;
+
+/**
+ * Bounded shared strings table of an export
+ *
+ * <p>Columns with repeated values (eg: status or category) are written as indexes into the table, so each distinct value is
+ * stored once instead of in every cell. Columns with mostly distinct values are written as inline strings, which keeps
+ * nothing in memory. Once the table is full, new values are written inline as well. Each sheet decides per column through
+ * {@link #columns(Column[], int)}, see {@link ExcelExportConfig.StringStrategy}.
+ *
+ * <p>The table is thread-safe and may be shared by sheets written concurrently.
+ *
+ * @author DreamJM
+ */
+public class SharedStrings {
+
+    /**
+     * Capacity of the table
+     */
+    private final int capacity;
+
+    /**
+     * Strategy of columns without their own
+     */
+    private final ExcelExportConfig.StringStrategy defaultStrategy;
+
+    /**
+     * Count of leading values sampled by {@link ExcelExportConfig.StringStrategy#AUTO} columns
+     */
+    private final int sampleSize;
+
+    private final Map<String, Integer> indexes = new HashMap<>();
+
+    private final List<String> strings = new ArrayList<>();
+
+    /**
+     * Count of cells referring to the table
+     */
+    private int count;
+
+    /**
+     * @param config global export config, defaults are used if null
+     */
+    public SharedStrings(ExcelExportConfig config) {
+        if (config == null) {
+            config = new ExcelExportConfig();
+        }
+        this.capacity = config.getMaxSharedStrings();
+        this.defaultStrategy = config.getStringStrategy() == null ? ExcelExportConfig.StringStrategy.AUTO : config.getStringStrategy();
+        this.sampleSize = Math.max(1, config.getStringSampleRows());
+    }
+
+    /**
+     * Adds a string into the table
+     *
+     * @param value string value
+     * @return index of the string, or -1 if the table is full
+     */
+    public synchronized int add(String value) {
+        Integer index = indexes.get(value);
+        if (index == null) {
+            if (strings.size() >= capacity) {
+                return -1;
+            }
+            index = strings.size();
+            strings.add(value);
+            indexes.put(value, index);
+        }
+        count++;
+        return index;
+    }
+
+    /**
+     * @return count of cells referring to the table
+     */
+    public synchronized int getCount() {
+        return count;
+    }
+
+    /**
+     * @return count of distinct strings
+     */
+    public synchronized int getUniqueCount() {
+        return strings.size();
+    }
+
+    /**
+     * @return distinct strings in the order of their indexes
+     */
+    public synchronized List<String> getStrings() {
+        return new ArrayList<>(strings);
+    }
+
+    /**
+     * Creates the string strategy of the columns of a sheet
+     *
+     * @param columns      columns of the sheet
+     * @param columnOffset index of the first column in the sheet
+     * @return string strategy of the columns
+     */
+    public Columns columns(Column[] columns, int columnOffset) {
+        return new Columns(columns, columnOffset);
+    }
+
+    /**
+     * Decides for each cell of a sheet whether the string is shared, it is not thread-safe
+     */
+    public class Columns {
+
+        private static final byte INLINE = 0;
+
+        private static final byte SHARED = 1;
+
+        private static final byte SAMPLING = 2;
+
+        private final int columnOffset;
+
+        private final byte[] modes;
+
+        /**
+         * Distinct values of sampling columns
+         */
+        private final List<Set<String>> samples;
+
+        /**
+         * Count of values sampled of each column
+         */
+        private final int[] sampled;
+
+        private Columns(Column[] columns, int columnOffset) {
+            this.columnOffset = columnOffset;
+            this.modes = new byte[columns.length];
+            this.samples = new ArrayList<>(columns.length);
+            this.sampled = new int[columns.length];
+            for (int i = 0; i < columns.length; i++) {
+                samples.add(null);
+                ExcelExportConfig.StringStrategy strategy = columns[i].getStringStrategy() != null ?
+                        columns[i].getStringStrategy() : defaultStrategy;
+                switch (strategy) {
+                    case SHARED:
+                        modes[i] = SHARED;
+                        break;
+                    case INLINE:
+                        modes[i] = INLINE;
+                        break;
+                    default:
+                        modes[i] = SAMPLING;
+                        samples.set(i, new HashSet<>());
+                }
+            }
+        }
+
+        /**
+         * Values of {@link ExcelExportConfig.StringStrategy#AUTO} columns are written inline while being sampled. The column
+         * turns shared if each value appears twice on average, inline otherwise.
+         *
+         * @param column cell column index in the sheet
+         * @param value  string value of the cell
+         * @return index into the shared strings table, or -1 if the string should be written inline
+         */
+        public int index(int column, String value) {
+            int i = column - columnOffset;
+            if (i < 0 || i >= modes.length || value == null || value.isEmpty()) {
+                return -1;
+            }
+            switch (modes[i]) {
+                case SHARED:
+                    return add(value);
+                case SAMPLING:
+                    Set<String> sample = samples.get(i);
+                    sample.add(value);
+                    if (++sampled[i] == sampleSize) {
+                        modes[i] = sample.size() * 2 <= sampleSize ? SHARED : INLINE;
+                        samples.set(i, null);
+                    }
+                    return -1;
+                default:
+                    return -1;
+            }
+        }
+    }
+}
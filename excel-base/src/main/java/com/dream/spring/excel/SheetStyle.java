@@ -23,6 +23,11 @@ package com.dream.spring.excel;
  */
 public class SheetStyle {
 
+    /**
+     * Default excel data format of date cells
+     */
+    public static final String DEFAULT_DATE_FORMAT = "yyyy-mm-dd hh:mm:ss";
+
     /**
      * Sheet name
      */
@@ -78,6 +83,16 @@ public class SheetStyle {
      */
     private boolean freezeHeader = true;
 
+    /**
+     * Excel data format of date cells
+     */
+    private String dateFormat = DEFAULT_DATE_FORMAT;
+
+    /**
+     * Count of leading content rows sampled to estimate column widths, 0 for fixed widths
+     */
+    private int autoWidthRows;
+
     private SheetStyle() {
 
     }
@@ -159,6 +174,20 @@ public class SheetStyle {
         return freezeHeader;
     }
 
+    /**
+     * @return excel data format of date cells
+     */
+    public String getDateFormat() {
+        return dateFormat;
+    }
+
+    /**
+     * @return count of leading content rows sampled to estimate widths of columns without a fixed width, 0 if disabled
+     */
+    public int getAutoWidthRows() {
+        return autoWidthRows;
+    }
+
     /**
      * Creates sheet builder
      *
@@ -279,6 +308,30 @@ public class SheetStyle {
             return this;
         }
 
+        /**
+         * Excel data format of date cells to set, null or empty will be ignored
+         *
+         * @param dateFormat excel data format, eg: 'yyyy-mm-dd'
+         * @return sheet builder
+         */
+        public Builder setDateFormat(String dateFormat) {
+            if (dateFormat != null && !dateFormat.isEmpty()) {
+                style.dateFormat = dateFormat;
+            }
+            return this;
+        }
+
+        /**
+         * Estimates widths of columns without a fixed width from the leading content rows
+         *
+         * @param autoWidthRows count of content rows sampled, 0 for the default width
+         * @return sheet builder
+         */
+        public Builder setAutoWidthRows(int autoWidthRows) {
+            style.autoWidthRows = Math.max(0, autoWidthRows);
+            return this;
+        }
+
         public SheetStyle build() {
             return style;
         }
@@ -0,0 +1,107 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded executor of the stages of exports running beside the thread that writes the excel: the fetch and convert stages
+ * of {@link ExportPipeline pipelined} paged exports and the sheets of {@link MultiSheetExportExcel multi-sheet} exports
+ *
+ * <p>Stages run with the context of the thread submitting them, captured by the {@link ContextPropagator}. The executor has
+ * no queue: a stage is rejected if no thread is idle and the export runs it on its own thread instead, so that exports
+ * never wait for stages queued behind the ones of other exports, and at most {@code threads} stages run at once however
+ * many exports are running.
+ *
+ * @author DreamJM
+ */
+public class StageExecutor {
+
+    /**
+     * Default count of stage threads
+     */
+    public static final int DEFAULT_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    private static volatile StageExecutor defaultExecutor;
+
+    private final ThreadPoolExecutor executor;
+
+    private final ContextPropagator propagator;
+
+    /**
+     * @param threads    max count of stages running at once
+     * @param propagator propagates context of the submitting thread into stages, null for none
+     */
+    public StageExecutor(int threads, ContextPropagator propagator) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Stage threads must be positive");
+        }
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new SynchronousQueue<>(), r -> {
+            Thread thread = new Thread(r, "dream-excel-stage-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+        this.propagator = propagator == null ? ContextPropagator.NONE : propagator;
+    }
+
+    /**
+     * Executor used when none is injected, created with the default size and without context propagation on first use
+     *
+     * @return default stage executor
+     */
+    public static StageExecutor getDefault() {
+        if (defaultExecutor == null) {
+            synchronized (StageExecutor.class) {
+                if (defaultExecutor == null) {
+                    defaultExecutor = new StageExecutor(DEFAULT_THREADS, null);
+                }
+            }
+        }
+        return defaultExecutor;
+    }
+
+    /**
+     * Runs the stage on an idle stage thread, with the context of the calling thread
+     *
+     * @param stage export stage
+     * @return future of the stage, which interrupts it if cancelled, or null if no thread is idle
+     */
+    public Future<?> tryExecute(Runnable stage) {
+        try {
+            return executor.submit(propagator.wrap(stage));
+        } catch (RejectedExecutionException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return count of stages running
+     */
+    public int getActiveCount() {
+        return executor.getActiveCount();
+    }
+
+    /**
+     * Stops accepting stages, running ones are completed
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel;
+
+import com.dream.spring.excel.bean.ExcelExportConfig;
+import com.dream.spring.excel.xlsx.DeflatedOutput;
+import com.dream.spring.excel.xlsx.SheetXmlWriter;
+import com.dream.spring.excel.xlsx.WorkbookParts;
+import com.dream.spring.excel.xlsx.ZipWriter;
+import org.apache.poi.ss.util.WorkbookUtil;
+import org.apache.poi.xssf.model.StylesTable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Excel exporting util which writes SpreadsheetML directly without POI SXSSF
+ *
+ * <p>The sheet xml is written straight into the xlsx zip on the output stream while rows are pulled, so no temp file is
+ * created and the first bytes are sent before all rows are generated. Accepts the same model as {@link ExportExcel}.
+ * Large sheets are deflated in parallel blocks when several processors are available. Rows over the sheet limit continue in
+ * numbered sheets.
+ *
+ * @author DreamJM
+ */
+public class StreamExportExcel {
+
+    /**
+     * Default sheet style paramters
+     */
+    private SheetStyle sheetStyle;
+
+    /**
+     * Columns' definition
+     */
+    private Column[] columns;
+
+    /**
+     * Categories' definition
+     */
+    private HeaderCategory[] categories;
+
+    /**
+     * Source of content rows
+     */
+    private RowSource rowSource;
+
+    /**
+     * Excel output stream
+     */
+    private OutputStream out;
+
+    /**
+     * Cell styles of the workbook being exported
+     */
+    private StyleRegistry styleRegistry;
+
+    /**
+     * Compression profile of the xlsx package
+     */
+    private ExcelExportConfig.Compression compression = ExcelExportConfig.Compression.BALANCED;
+
+    /**
+     * Max count of content rows of a sheet, 0 for the xlsx limit
+     */
+    private int maxRowsPerSheet;
+
+    /**
+     * Shared strings table of the export
+     */
+    private SharedStrings sharedStrings;
+
+    public StreamExportExcel(SheetStyle sheetStyle, Column[] columns, List<Map<Integer, CellData>> dataset, OutputStream out) {
+        this(sheetStyle, columns, null, dataset, out);
+    }
+
+    public StreamExportExcel(SheetStyle sheetStyle, Column[] columns, HeaderCategory[] categories, List<Map<Integer, CellData>> dataset,
+                             OutputStream out) {
+        this(sheetStyle, columns, categories, RowSource.of(dataset), out);
+    }
+
+    public StreamExportExcel(SheetStyle sheetStyle, Column[] columns, HeaderCategory[] categories, RowSource rowSource,
+                             OutputStream out) {
+        this.sheetStyle = sheetStyle;
+        this.columns = columns;
+        this.categories = categories;
+        this.rowSource = rowSource;
+        this.out = out;
+    }
+
+    /**
+     * @param compression compression profile of the xlsx package
+     */
+    public void setCompression(ExcelExportConfig.Compression compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * @param maxRowsPerSheet max count of content rows of a sheet before continuing in the next sheet, 0 for the xlsx limit
+     */
+    public void setMaxRowsPerSheet(int maxRowsPerSheet) {
+        this.maxRowsPerSheet = maxRowsPerSheet;
+    }
+
+    /**
+     * @param sharedStrings shared strings table of the export, one with the default string strategy is created if absent
+     */
+    public void setSharedStrings(SharedStrings sharedStrings) {
+        this.sharedStrings = sharedStrings;
+    }
+
+    /**
+     * Start to export excel
+     *
+     * @throws IOException IO Exception
+     */
+    public void exportExcel() throws IOException {
+        WorkbookUtil.validateSheetName(sheetStyle.getTitle());
+        StylesTable stylesTable = new StylesTable();
+        styleRegistry = new StyleRegistry(stylesTable, sheetStyle.getDefaultStyle());
+        ZipWriter zip = new ZipWriter(out, compression.getLevel());
+        zip.setExecutor(DeflatedOutput.defaultExecutor());
+        SheetXmlWriter writer = new SheetXmlWriter(sheetStyle, columns, categories, styleRegistry);
+        writer.setMaxRows(maxRowsPerSheet);
+        SharedStrings strings = sharedStrings != null ? sharedStrings : new SharedStrings(null);
+        writer.setSharedStrings(strings);
+        List<String> sheetNames = new ArrayList<>();
+        // Sheets go first so that the client starts receiving data while rows are generated
+        do {
+            OutputStream sheet = zip.putNextEntry(WorkbookParts.sheetEntryName(sheetNames.size()));
+            writer.write(rowSource, sheet);
+            sheet.close();
+            sheetNames.add(sheetNames.isEmpty() ? sheetStyle.getTitle() :
+                    WorkbookParts.numberedSheetName(sheetStyle.getTitle(), sheetNames.size() + 1));
+        } while (writer.hasMoreRows());
+        WorkbookParts.write(zip, sheetNames, stylesTable, strings);
+        // Finishes the zip without closing the output stream
+        zip.finish();
+    }
+
+    /**
+     * @return count of distinct cell styles created by the last export
+     */
+    public int getStyleCount() {
+        return styleRegistry == null ? 0 : styleRegistry.getStyleCount();
+    }
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel;
+
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
+import org.apache.poi.xssf.usermodel.XSSFFont;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Workbook scoped registry of cell styles
+ *
+ * <p>Styles are interned by the value of {@link CustomStyle}, so equal styles share one workbook style no matter how many
+ * cells use them. Fonts and data formats are deduplicated as well. Text, number and date cells of the same style value get
+ * separate styles, which only differ in data format.
+ *
+ * <p>Styles are created in a {@link StylesTable}, which may belong to a POI workbook or be written directly by a streaming
+ * writer. Registries of sheets generated concurrently may share one {@link StylesTable}, styles are created while holding
+ * its lock and lookups of a registry itself are not synchronized.
+ *
+ * @author DreamJM
+ */
+public class StyleRegistry {
+
+    /**
+     * Text data format
+     */
+    private static final String TEXT_FORMAT = "@";
+
+    /**
+     * Styles part of the workbook
+     */
+    private StylesTable stylesTable;
+
+    /**
+     * Default content cell style that other styles fall back to
+     */
+    private CustomStyle defaultStyle;
+
+    /**
+     * Text content cell styles mapped by style value
+     */
+    private Map<CustomStyle, XSSFCellStyle> contentStyles = new HashMap<>();
+
+    /**
+     * Number and boolean content cell styles mapped by style value
+     */
+    private Map<CustomStyle, XSSFCellStyle> numberStyles = new HashMap<>();
+
+    /**
+     * Date content cell styles mapped by style value
+     */
+    private Map<CustomStyle, XSSFCellStyle> dateStyles = new HashMap<>();
+
+    /**
+     * Header cell styles mapped by style value
+     */
+    private Map<CustomStyle, XSSFCellStyle> headerStyles = new HashMap<>();
+
+    /**
+     * Fonts mapped by resolved font attributes
+     */
+    private Map<CustomStyle, XSSFFont> fonts = new HashMap<>();
+
+    /**
+     * Bold fonts mapped by resolved font attributes
+     */
+    private Map<CustomStyle, XSSFFont> boldFonts = new HashMap<>();
+
+    /**
+     * Text data format index, created on first use
+     */
+    private Short textFormat;
+
+    /**
+     * Excel data format of date cells
+     */
+    private String dateFormat = SheetStyle.DEFAULT_DATE_FORMAT;
+
+    /**
+     * Date data format index, created on first use
+     */
+    private Short dateFormatIndex;
+
+    /**
+     * Count of created cell styles
+     */
+    private int styleCount;
+
+    public StyleRegistry(StylesTable stylesTable, CustomStyle defaultStyle) {
+        this.stylesTable = stylesTable;
+        this.defaultStyle = defaultStyle == null ? CustomStyle.builder().build() : defaultStyle;
+    }
+
+    /**
+     * Get content cell style of the style value, creates it if absent
+     *
+     * @param style content style
+     * @return workbook cell style
+     */
+    public XSSFCellStyle getContentStyle(CustomStyle style) {
+        XSSFCellStyle cellStyle = contentStyles.get(style);
+        if (cellStyle == null) {
+            synchronized (stylesTable) {
+                cellStyle = createContentStyle(style, getTextFormat());
+            }
+            contentStyles.put(style, cellStyle);
+        }
+        return cellStyle;
+    }
+
+    /**
+     * Get content cell style of the style value for cells of the value type, creates it if absent
+     *
+     * @param style     content style
+     * @param valueType type of cell values
+     * @return workbook cell style
+     */
+    public XSSFCellStyle getContentStyle(CustomStyle style, CellData.ValueType valueType) {
+        if (valueType == CellData.ValueType.STRING) {
+            return getContentStyle(style);
+        }
+        Map<CustomStyle, XSSFCellStyle> styles = valueType == CellData.ValueType.DATE ? dateStyles : numberStyles;
+        XSSFCellStyle cellStyle = styles.get(style);
+        if (cellStyle == null) {
+            synchronized (stylesTable) {
+                // General format for numbers, since the text format makes excel treat edited numbers as text
+                cellStyle = createContentStyle(style, valueType == CellData.ValueType.DATE ? getDateFormatIndex() : 0);
+            }
+            styles.put(style, cellStyle);
+        }
+        return cellStyle;
+    }
+
+    /**
+     * @param dateFormat excel data format of date cells
+     */
+    public void setDateFormat(String dateFormat) {
+        this.dateFormat = dateFormat;
+    }
+
+    /**
+     * Get header cell style of the style value, creates it if absent
+     *
+     * @param style header style
+     * @return workbook cell style
+     */
+    public XSSFCellStyle getHeaderStyle(CustomStyle style) {
+        XSSFCellStyle cellStyle = headerStyles.get(style);
+        if (cellStyle == null) {
+            synchronized (stylesTable) {
+                cellStyle = createHeaderStyle(style);
+            }
+            headerStyles.put(style, cellStyle);
+        }
+        return cellStyle;
+    }
+
+    /**
+     * @return count of distinct cell styles created in the workbook
+     */
+    public int getStyleCount() {
+        return styleCount;
+    }
+
+    /**
+     * @return count of distinct fonts created in the workbook
+     */
+    public int getFontCount() {
+        return fonts.size() + boldFonts.size();
+    }
+
+    private XSSFCellStyle createHeaderStyle(CustomStyle style) {
+        XSSFCellStyle headerStyle = stylesTable.createCellStyle();
+        styleCount++;
+        headerStyle.setAlignment(HorizontalAlignment.CENTER);
+        headerStyle.setVerticalAlignment(VerticalAlignment.CENTER);
+        headerStyle.setFont(getFont(style, true));
+        headerStyle.setWrapText(true);
+        if (style.getBg() != null) {
+            headerStyle.setFillForegroundColor(style.getBg());
+            headerStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+        }
+        setBorder(headerStyle);
+        return headerStyle;
+    }
+
+    private XSSFCellStyle createContentStyle(CustomStyle style, short dataFormat) {
+        XSSFCellStyle contentStyle = stylesTable.createCellStyle();
+        styleCount++;
+        if (style.getBg() != null) {
+            contentStyle.setFillForegroundColor(style.getBg());
+            contentStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+        }
+        contentStyle.setFont(getFont(style, false));
+        contentStyle.setDataFormat(dataFormat);
+        contentStyle.setAlignment(style.getHorizontalAlignment());
+        contentStyle.setVerticalAlignment(style.getVerticalAlignment());
+        contentStyle.setWrapText(true);
+        setBorder(contentStyle);
+        return contentStyle;
+    }
+
+    private short getTextFormat() {
+        if (textFormat == null) {
+            textFormat = getFormat(TEXT_FORMAT);
+        }
+        return textFormat;
+    }
+
+    private short getDateFormatIndex() {
+        if (dateFormatIndex == null) {
+            dateFormatIndex = getFormat(dateFormat);
+        }
+        return dateFormatIndex;
+    }
+
+    private short getFormat(String format) {
+        short builtinFormat = (short) BuiltinFormats.getBuiltinFormat(format);
+        return builtinFormat >= 0 ? builtinFormat : (short) stylesTable.putNumberFormat(format);
+    }
+
+    private XSSFFont getFont(CustomStyle style, boolean bold) {
+        CustomStyle fontKey = resolveFont(style);
+        Map<CustomStyle, XSSFFont> fontMap = bold ? boldFonts : fonts;
+        XSSFFont font = fontMap.get(fontKey);
+        if (font == null) {
+            font = new XSSFFont();
+            font.registerTo(stylesTable);
+            if (fontKey.getFontColor() != null) {
+                font.setColor(fontKey.getFontColor());
+            }
+            if (fontKey.getFontName() != null) {
+                font.setFontName(fontKey.getFontName());
+            }
+            if (fontKey.getFontSize() > 0) {
+                font.setFontHeightInPoints((short) fontKey.getFontSize());
+            }
+            font.setBold(bold);
+            fontMap.put(fontKey, font);
+        }
+        return font;
+    }
+
+    /**
+     * Resolves font attributes of the style, falling back to the default style
+     *
+     * @param style cell style
+     * @return style containing the resolved font attributes only
+     */
+    private CustomStyle resolveFont(CustomStyle style) {
+        CustomStyle.Builder builder = CustomStyle.builder();
+        if (style.getFontColor() != null) {
+            builder.setFontColor(style.getFontColor());
+        } else {
+            builder.setFontColor(defaultStyle.getFontColor());
+        }
+        if (!StringUtils.isNullOrEmpty(style.getFontName())) {
+            builder.setFontName(style.getFontName());
+        } else if (!StringUtils.isNullOrEmpty(defaultStyle.getFontName())) {
+            builder.setFontName(defaultStyle.getFontName());
+        }
+        if (style.getFontSize() > 0) {
+            builder.setFontSize(style.getFontSize());
+        } else if (defaultStyle.getFontSize() > 0) {
+            builder.setFontSize(defaultStyle.getFontSize());
+        }
+        return builder.build();
+    }
+
+    private void setBorder(XSSFCellStyle cellStyle) {
+        cellStyle.setBorderTop(BorderStyle.THIN);
+        cellStyle.setBorderBottom(BorderStyle.THIN);
+        cellStyle.setBorderLeft(BorderStyle.THIN);
+        cellStyle.setBorderRight(BorderStyle.THIN);
+        cellStyle.setTopBorderColor(IndexedColors.BLACK.getIndex());
+        cellStyle.setBottomBorderColor(IndexedColors.BLACK.getIndex());
+        cellStyle.setLeftBorderColor(IndexedColors.BLACK.getIndex());
+        cellStyle.setRightBorderColor(IndexedColors.BLACK.getIndex());
+    }
+}
@@ -0,0 +1,396 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dream.spring.excel;
+
+import org.apache.poi.util.DefaultTempFileCreationStrategy;
+import org.apache.poi.util.TempFile;
+import org.apache.poi.util.TempFileCreationStrategy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Manages temp files of exports on this node
+ *
+ * <ul>
+ * <li>Each export acquires a {@link Lease}, temp files created through the lease are deleted when it is closed, whether the
+ * export succeeded, failed or was aborted by the client.</li>
+ * <li>Once {@link #installPoiStrategy() installed}, POI temp files (eg: SXSSF sheet data) are created through the lease bound
+ * to the current thread, see {@link Lease#bind()}.</li>
+ * <li>New exports are admitted while temp files of in-flight exports are below the quota, otherwise they are rejected or
+ * queued until the usage drops, see {@link QuotaPolicy}.</li>
+ * <li>Files in the directory that belong to no open lease are reaped once they are older than the orphan age, eg: files left
+ * by a crashed node. Open leases are never reaped, since exports may run long without touching their files, leases open
+ * longer than the orphan age are logged as possibly leaked.</li>
+ * </ul>
+ *
+ * @author DreamJM
+ */
+public class TempFileManager {
+
+    private static final Logger logger = LoggerFactory.getLogger(TempFileManager.class);
+
+    private static final TempFileManager DEFAULT = new TempFileManager();
+
+    /**
+     * Lease that POI temp files of the current thread are created through
+     */
+    private static final ThreadLocal<Lease> BOUND_LEASE = new ThreadLocal<>();
+
+    /**
+     * Directory of temp files
+     */
+    private volatile File directory = new File(System.getProperty("java.io.tmpdir"), "dream-excel");
+
+    /**
+     * Disk quota in bytes of temp files of in-flight exports, 0 for unlimited
+     */
+    private volatile long quota;
+
+    private volatile QuotaPolicy quotaPolicy = QuotaPolicy.QUEUE;
+
+    /**
+     * Max time in milliseconds that an export is queued for the quota
+     */
+    private volatile long queueTimeout = 30 * 1000;
+
+    /**
+     * Age in milliseconds after which files of no lease are reaped
+     */
+    private volatile long orphanAge = 60 * 60 * 1000;
+
+    private final Set<Lease> leases = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService reaper;
+
+    /**
+     * @return the manager used by exports by default
+     */
+    public static TempFileManager getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * @param directory directory of temp files
+     */
+    public void setDirectory(File directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return directory of temp files, created if absent
+     */
+    public File getDirectory() {
+        File dir = directory;
+        if (!dir.exists()) {
+            dir.mkdirs();
+        }
+        return dir;
+    }
+
+    /**
+     * @param quota disk quota in bytes of temp files of in-flight exports, 0 for unlimited
+     */
+    public void setQuota(long quota) {
+        this.quota = quota;
+    }
+
+    /**
+     * @param quotaPolicy policy for exports over the quota
+     */
+    public void setQuotaPolicy(QuotaPolicy quotaPolicy) {
+        this.quotaPolicy = quotaPolicy;
+    }
+
+    /**
+     * @param queueTimeout max time in milliseconds that an export is queued for the quota
+     */
+    public void setQueueTimeout(long queueTimeout) {
+        this.queueTimeout = queueTimeout;
+    }
+
+    /**
+     * @param orphanAge age in milliseconds after which files of no lease are reaped
+     */
+    public void setOrphanAge(long orphanAge) {
+        this.orphanAge = orphanAge;
+    }
+
+    /**
+     * Acquires a lease for an export, waiting or failing if the quota is exceeded
+     *
+     * @return temp file lease, should be closed when the export is done
+     * @throws TempQuotaExceededException if the quota is exceeded and the export is rejected or has been queued too long
+     * @throws InterruptedIOException     if interrupted while queued
+     */
+    public Lease acquire() throws IOException {
+        if (quota > 0) {
+            long deadline = System.currentTimeMillis() + queueTimeout;
+            synchronized (this) {
+                long usage;
+                while ((usage = getUsage()) >= quota) {
+                    long wait = deadline - System.currentTimeMillis();
+                    if (quotaPolicy == QuotaPolicy.REJECT || wait <= 0) {
+                        throw new TempQuotaExceededException(usage, quota);
+                    }
+                    try {
+                        // Temp files also shrink without notification, so usage is checked periodically
+                        wait(Math.min(wait, 100));
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted while waiting for temp file quota");
+                    }
+                }
+            }
+        }
+        Lease lease = new Lease();
+        leases.add(lease);
+        return lease;
+    }
+
+    /**
+     * @return size in bytes of temp files of in-flight exports
+     */
+    public long getUsage() {
+        long usage = 0;
+        for (Lease lease : leases) {
+            usage += lease.getSize();
+        }
+        return usage;
+    }
+
+    /**
+     * @return count of in-flight exports
+     */
+    public int getLeaseCount() {
+        return leases.size();
+    }
+
+    /**
+     * Deletes orphaned files, which belong to no open lease
+     *
+     * @return count of deleted files
+     */
+    public int reapOrphans() {
+        long cutoff = System.currentTimeMillis() - orphanAge;
+        Set<File> live = new HashSet<>();
+        for (Lease lease : leases) {
+            if (lease.created < cutoff && !lease.reported) {
+                lease.reported = true;
+                logger.warn("Temp file lease open since {}, the export may have leaked it", new Date(lease.created));
+            }
+            live.addAll(lease.files);
+        }
+        int count = 0;
+        File[] files = getDirectory().listFiles(File::isFile);
+        if (files != null) {
+            for (File file : files) {
+                if (!live.contains(file) && file.lastModified() < cutoff && file.delete()) {
+                    count++;
+                }
+            }
+        }
+        if (count > 0) {
+            logger.info("Deleted {} orphaned export temp files in {}", count, directory.getAbsolutePath());
+        }
+        return count;
+    }
+
+    /**
+     * Starts reaping orphans periodically, the first run happens immediately to clean up after a crash
+     *
+     * @param interval interval in milliseconds
+     */
+    public synchronized void startReaper(long interval) {
+        if (reaper != null) {
+            return;
+        }
+        reaper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "dream-excel-temp-reaper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        reaper.scheduleWithFixedDelay(() -> {
+            try {
+                reapOrphans();
+            } catch (RuntimeException e) {
+                logger.error("Failed to reap export temp files", e);
+            }
+        }, 0, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stops reaping orphans
+     */
+    public synchronized void stopReaper() {
+        if (reaper != null) {
+            reaper.shutdownNow();
+            reaper = null;
+        }
+    }
+
+    /**
+     * Routes POI temp files through the lease bound to the current thread, temp files of other threads are created in the
+     * 'poi' subdirectory of the temp file directory, which isn't reaped
+     *
+     * @see #installPoiStrategy(TempFileCreationStrategy)
+     */
+    public void installPoiStrategy() {
+        installPoiStrategy(new DefaultTempFileCreationStrategy(new File(getDirectory(), "poi")));
+    }
+
+    /**
+     * Routes POI temp files through the lease bound to the current thread. It replaces the POI strategy installed before,
+     * which POI doesn't expose: an application that has its own strategy passes it as the fallback.
+     *
+     * @param fallback creates POI temp files of threads bound to no lease, and temp directories
+     */
+    public void installPoiStrategy(TempFileCreationStrategy fallback) {
+        TempFile.setTempFileCreationStrategy(new TempFileCreationStrategy() {
+            @Override
+            public File createTempFile(String prefix, String suffix) throws IOException {
+                Lease lease = BOUND_LEASE.get();
+                return lease != null ? lease.createTempFile(prefix, suffix) : fallback.createTempFile(prefix, suffix);
+            }
+
+            @Override
+            public File createTempDirectory(String prefix) throws IOException {
+                return fallback.createTempDirectory(prefix);
+            }
+        });
+    }
+
+    public enum QuotaPolicy {
+        /**
+         * Fails the export immediately
+         */
+        REJECT,
+        /**
+         * Waits until the usage drops below the quota, or fails after the queue timeout
+         */
+        QUEUE
+    }
+
+    /**
+     * Temp files of one export
+     */
+    public class Lease implements Closeable {
+
+        private final Set<File> files = ConcurrentHashMap.newKeySet();
+
+        private final long created = System.currentTimeMillis();
+
+        private volatile boolean closed;
+
+        /**
+         * If true, the lease has been logged as possibly leaked
+         */
+        private volatile boolean reported;
+
+        private Lease() {
+
+        }
+
+        /**
+         * Creates a temp file owned by the lease
+         *
+         * @param prefix file name prefix
+         * @param suffix file name suffix
+         * @return temp file
+         * @throws IOException IO Exception, or the lease has been closed
+         */
+        public File createTempFile(String prefix, String suffix) throws IOException {
+            if (closed) {
+                throw new IOException("Temp file lease has been closed");
+            }
+            File file = Files.createTempFile(getDirectory().toPath(), prefix, suffix).toFile();
+            files.add(file);
+            if (closed) {
+                // Closed concurrently
+                delete(file);
+                throw new IOException("Temp file lease has been closed");
+            }
+            return file;
+        }
+
+        /**
+         * Deletes a temp file of the lease before the lease is closed
+         *
+         * @param file temp file
+         */
+        public void delete(File file) {
+            if (file.exists() && !file.delete()) {
+                logger.warn("Failed to delete export temp file: {}", file.getAbsolutePath());
+            }
+            files.remove(file);
+        }
+
+        /**
+         * Binds the lease to the current thread, so POI temp files created by the thread are owned by the lease
+         */
+        public void bind() {
+            BOUND_LEASE.set(this);
+        }
+
+        /**
+         * Unbinds the lease from the current thread
+         */
+        public void unbind() {
+            if (BOUND_LEASE.get() == this) {
+                BOUND_LEASE.remove();
+            }
+        }
+
+        /**
+         * @return size in bytes of temp files of the lease
+         */
+        public long getSize() {
+            long size = 0;
+            for (File file : files) {
+                size += file.length();
+            }
+            return size;
+        }
+
+        /**
+         * Deletes all temp files of the lease
+         */
+        @Override
+        public void close() {
+            closed = true;
+            unbind();
+            for (File file : files) {
+                delete(file);
+            }
+            leases.remove(this);
+            synchronized (TempFileManager.this) {
+                TempFileManager.this.notifyAll();
+            }
+        }
+    }
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dream.spring.excel;
+
+import java.io.IOException;
+
+/**
+ * Thrown when an export can't be admitted because the temp files of in-flight exports exceed the disk quota
+ *
+ * @author DreamJM
+ * @see TempFileManager
+ */
+public class TempQuotaExceededException extends IOException {
+
+    /**
+     * Size in bytes of temp files of in-flight exports
+     */
+    private long usage;
+
+    /**
+     * Disk quota in bytes
+     */
+    private long quota;
+
+    public TempQuotaExceededException(long usage, long quota) {
+        super("Temp files of in-flight exports (" + usage + " bytes) exceed the quota of " + quota + " bytes");
+        this.usage = usage;
+        this.quota = quota;
+    }
+
+    /**
+     * @return size in bytes of temp files of in-flight exports
+     */
+    public long getUsage() {
+        return usage;
+    }
+
+    /**
+     * @return disk quota in bytes
+     */
+    public long getQuota() {
+        return quota;
+    }
+}
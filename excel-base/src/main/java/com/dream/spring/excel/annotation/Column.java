@@ -16,6 +16,7 @@
 
 package com.dream.spring.excel.annotation;
 
+import com.dream.spring.excel.bean.ExcelExportConfig;
 import org.apache.poi.ss.usermodel.CellType;
 
 import java.lang.annotation.ElementType;
@@ -69,4 +70,12 @@ public @interface Column {
      * @return specific cell styles
      */
     CellItemStyle[] cellStyles() default {};
+
+    /**
+     * Overrides {@link ExcelExportConfig#getStringStrategy() the default string strategy} of xlsx exports for the column
+     * <p>SHARED suits columns with few distinct values (eg: status), INLINE suits mostly unique values (eg: names or ids)
+     *
+     * @return string strategy of the column (Optional: only the first one is used)
+     */
+    ExcelExportConfig.StringStrategy[] stringStrategy() default {};
 }
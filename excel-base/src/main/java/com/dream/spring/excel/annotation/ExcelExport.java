@@ -16,6 +16,9 @@
 
 package com.dream.spring.excel.annotation;
 
+import com.dream.spring.excel.ExportFormat;
+import com.dream.spring.excel.bean.ExcelExportConfig;
+
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.RetentionPolicy;
@@ -31,6 +34,9 @@ import java.lang.annotation.Target;
  * PostMapping, PutMapping or DeleteMapping, then the correlated Mapping will be used instead</li>
  * <li>All the input arguments (Except for the arguments annotated with {@link ParamIgnore ParamIgnore})
  * and there annotations will be used in the generated api method.</li>
+ * <li>Methods exporting to the same request path are combined into one api exporting a workbook of several sheets, one sheet
+ * for each method. Sheets are fetched and generated concurrently, the parameters with the same name are shared and the
+ * mapping and annotations are taken from the first method.</li>
  * </ul>
  *
  * @author DreamJM
@@ -56,7 +62,76 @@ public @interface ExcelExport {
     String fileName() default "";
 
     /**
-     * @return Represents that the cache will be enable under some condition
+     * @return Order of the sheet when several methods export to the same request path
+     */
+    int order() default 0;
+
+    /**
+     * @return Compression profile of the generated excel, empty to use the profile of {@link ExcelExportConfig}
+     */
+    ExcelExportConfig.Compression[] compression() default {};
+
+    /**
+     * Delimited text formats the api exports besides xlsx. The format of a request is selected by the 'format' request
+     * parameter (eg: format=csv) or else by the Accept header, and xlsx is exported if neither matches. Caches only apply
+     * to xlsx, and multi-sheet apis only export xlsx.
+     *
+     * @return Extra formats of the generated api
+     */
+    ExportFormat[] formats() default {};
+
+    /**
+     * If true, the generated api starts servlet async processing and runs the export (data method included) on the bounded
+     * {@link com.dream.spring.excel.ExportExecutor}, so the request thread is released at once. Requests are answered with
+     * 503 if the executor is full. Thread-bound contexts of the request (eg: RequestContextHolder) are not available to
+     * the data method. For multi-sheet apis, the first method decides.
+     *
+     * @return Whether the export runs asynchronously
+     */
+    boolean async() default false;
+
+    /**
+     * If true, background job apis are generated besides the export api, for exports too long for a request:
+     * <ul>
+     * <li>POST '{value}/jobs' with the parameters of the export api submits a job and returns it, see
+     * {@link com.dream.spring.excel.ExportJob}</li>
+     * <li>GET '{value}/jobs/{jobId}' returns the job, with its status and progress</li>
+     * <li>GET '{value}/jobs/{jobId}/file' downloads the generated xlsx once completed</li>
+     * </ul>
+     * Jobs run on the {@link com.dream.spring.excel.ExportExecutor}. Not supported by multi-sheet and WebFlux apis.
+     *
+     * @return Whether job apis are generated
+     */
+    boolean job() default false;
+
+    /**
+     * @return Max count of exports of the api running at once on the node, 0 for no limit besides the node limit of
+     * {@link com.dream.spring.excel.ExportGovernor}. Further exports are queued.
+     */
+    int maxConcurrent() default 0;
+
+    /**
+     * Specifies the method calling statement to estimate the row count of the export, exports estimated small are admitted
+     * before large ones by {@link com.dream.spring.excel.ExportGovernor}.
+     *
+     * <p>The specified method should exist in the annotated component, has 'public' modifier and returns a number. The
+     * parameters of the generated api can be used as input arguments.
+     * Example:
+     * <pre class="code">
+     * estimateMethod = "countTests(param1)"
+     * </pre>
+     *
+     * @return the method calling statement to estimate the row count
+     */
+    String estimateMethod() default "";
+
+    /**
+     * @return Fetches the data page by page instead of in one call, not supported together with caches or by WebFlux apis
+     */
+    Paging[] paging() default {};
+
+    /**
+     * @return Represents that the cache will be enable under some condition, not supported by multi-sheet apis
      */
     Cacheable[] caches() default {};
 
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel.annotation;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Indicates that the data method is paged, and the generated api should fetch the data page by page.
+ *
+ * <p>Each page is written into the excel before the next one is fetched, so only one page is held in memory. The page
+ * parameters are not parameters of the generated api, they are filled in for every call of the data method.
+ * Example:
+ * <pre class="code">
+ * paging = @Paging(pageParam = "pageNum", sizeParam = "pageSize", pageSize = 500,
+ *         hasNext = "result.getData().getPageNum() &lt; result.getData().getPages()")
+ * </pre>
+ *
+ * @author DreamJM
+ * @see ExcelExport
+ * @see com.dream.spring.excel.PagedIterator
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target({})
+public @interface Paging {
+
+    /**
+     * @return Name of the page number parameter (int, Integer or long) of the data method
+     */
+    String pageParam() default "pageNum";
+
+    /**
+     * @return Name of the page size parameter (int, Integer or long) of the data method
+     */
+    String sizeParam() default "pageSize";
+
+    /**
+     * @return Count of items fetched by each call of the data method
+     */
+    int pageSize() default 1000;
+
+    /**
+     * @return Number of the first page
+     */
+    int firstPage() default 1;
+
+    /**
+     * Specifies the condition expression of whether more pages follow.
+     *
+     * <p>'result' can be used in the expression, it represents the return value of the data method for the current page.
+     * If empty, the export stops at the first page holding less than {@link #pageSize()} items.
+     *
+     * @return condition expression of whether more pages follow
+     */
+    String hasNext() default "";
+}
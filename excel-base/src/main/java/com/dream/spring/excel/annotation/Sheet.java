@@ -97,6 +97,11 @@ public @interface Sheet {
      */
     boolean[] freezeHeader() default {};
 
+    /**
+     * @return If true, estimates widths of columns without a fixed width from the leading rows, 'auto-width' config by default
+     */
+    boolean[] autoWidth() default {};
+
     /**
      * @return Columns offset of the form table
      */
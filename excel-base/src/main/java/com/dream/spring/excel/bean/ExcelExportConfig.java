@@ -16,10 +16,16 @@
 
 package com.dream.spring.excel.bean;
 
+import com.dream.spring.excel.ExportExecutor;
+import com.dream.spring.excel.ExportPipeline;
+import com.dream.spring.excel.StageExecutor;
+import com.dream.spring.excel.xlsx.DeflatedOutput;
 import org.apache.poi.ss.usermodel.HorizontalAlignment;
 import org.apache.poi.ss.usermodel.IndexedColors;
 import org.apache.poi.ss.usermodel.VerticalAlignment;
 
+import java.util.zip.Deflater;
+
 /**
  * Global config bean for excel exporting
  *
@@ -79,6 +85,151 @@ public class ExcelExportConfig {
      */
     private boolean freezeHeader = true;
 
+    /**
+     * Excel data format of date cells
+     */
+    private String dateFormat = "yyyy-mm-dd hh:mm:ss";
+
+    /**
+     * Writer used to generate excel files
+     */
+    private WriterType writerType = WriterType.SXSSF;
+
+    /**
+     * Compression profile of the xlsx package
+     */
+    private Compression compression = Compression.BALANCED;
+
+    /**
+     * Count of rows kept in memory by SXSSF writer before flushing to temp storage, -1 for unlimited
+     */
+    private int rowAccessWindowSize = 100;
+
+    /**
+     * Storage of rows flushed by SXSSF writer
+     */
+    private TempStorage tempStorage = TempStorage.FILE;
+
+    /**
+     * Size in bytes of {@link TempStorage#OFF_HEAP} rows above which they are spilled into a temp file
+     */
+    private long offHeapThreshold = 64L * 1024 * 1024;
+
+    /**
+     * Max count of content rows of a sheet, the following rows continue in sheets titled 'Title (2)', 'Title (3)'... with
+     * the header repeated. 0 for the xlsx limit (1,048,576 rows including the header)
+     */
+    private int maxRowsPerSheet;
+
+    /**
+     * If true, csv and tsv exports start with the UTF-8 byte order mark, so that Excel detects the encoding
+     */
+    private boolean csvBom;
+
+    /**
+     * If true, text fields of csv and tsv exports that Excel would take for formulas (starting with '=', '+', '-', '@', tab
+     * or carriage return) are prefixed with a single quote
+     */
+    private boolean csvFormulaEscape = true;
+
+    /**
+     * Default way string cells are written, may be overridden for each column
+     */
+    private StringStrategy stringStrategy = StringStrategy.AUTO;
+
+    /**
+     * Max count of distinct strings in the shared strings table of an export, the following new strings are written inline
+     */
+    private int maxSharedStrings = 65536;
+
+    /**
+     * Count of leading content rows sampled by {@link StringStrategy#AUTO} columns
+     */
+    private int stringSampleRows = 1000;
+
+    /**
+     * Max count of async exports running at once
+     */
+    private int asyncThreads = ExportExecutor.DEFAULT_THREADS;
+
+    /**
+     * Max count of async exports waiting for a thread, further ones are rejected with 503
+     */
+    private int asyncQueueCapacity = ExportExecutor.DEFAULT_QUEUE_CAPACITY;
+
+    /**
+     * Timeout in milliseconds of async exports, 0 for no timeout
+     */
+    private long asyncTimeout;
+
+    /**
+     * Count of pages fetched ahead and of row batches converted ahead by paged exports, 0 (default) to fetch, convert and
+     * write in one thread, see {@link com.dream.spring.excel.ExportPipeline}
+     */
+    private int pipelineDepth = ExportPipeline.DEFAULT_DEPTH;
+
+    /**
+     * Count of rows of a batch handed over from the convert stage to the writer of paged exports
+     */
+    private int pipelineBatchSize = ExportPipeline.DEFAULT_BATCH_SIZE;
+
+    /**
+     * Max count of stages of exports running at once beside the writing threads: pipeline stages and sheets of multi-sheet
+     * exports, see {@link com.dream.spring.excel.StageExecutor}
+     */
+    private int stageThreads = StageExecutor.DEFAULT_THREADS;
+
+    /**
+     * Count of threads deflating blocks of large xlsx entries, shared by all exports. 1 or less to deflate serially, see
+     * {@link com.dream.spring.excel.xlsx.DeflatedOutput}
+     */
+    private int deflateThreads = DeflatedOutput.DEFAULT_THREADS;
+
+    /**
+     * Max count of exports running at once on the node, 0 for unlimited, see {@link com.dream.spring.excel.ExportGovernor}
+     */
+    private int maxConcurrentExports;
+
+    /**
+     * Max count of exports queued for admission, further ones are rejected with 503. 0 for unlimited
+     */
+    private int maxQueuedExports = 100;
+
+    /**
+     * Max time in milliseconds that an export is queued for admission
+     */
+    private long exportQueueTimeout = 30 * 1000;
+
+    /**
+     * Count of extra exports that small exports may run beyond {@link #getMaxConcurrentExports()}
+     */
+    private int fastLanePermits = 2;
+
+    /**
+     * Max estimated row count of small exports, which are admitted before large ones
+     */
+    private long fastLaneRows = 10000;
+
+    /**
+     * Directory of background export job files, relative to the cache root
+     */
+    private String jobDir = "jobs";
+
+    /**
+     * Time in milliseconds that finished export jobs and their files are kept
+     */
+    private long jobRetention = 60 * 60 * 1000;
+
+    /**
+     * If true, widths of columns without a fixed width are estimated from the leading content rows
+     */
+    private boolean autoWidth;
+
+    /**
+     * Count of leading content rows sampled to estimate column widths
+     */
+    private int widthSampleRows = 100;
+
     /**
      * @return Default column width (in units of a character width)
      */
@@ -219,6 +370,482 @@ public class ExcelExportConfig {
         this.freezeHeader = freezeHeader;
     }
 
+    /**
+     * @return excel data format of date cells
+     */
+    public String getDateFormat() {
+        return dateFormat;
+    }
+
+    /**
+     * @param dateFormat excel data format of date cells, eg: 'yyyy-mm-dd'
+     */
+    public void setDateFormat(String dateFormat) {
+        this.dateFormat = dateFormat;
+    }
+
+    /**
+     * @return writer used to generate excel files
+     */
+    public WriterType getWriterType() {
+        return writerType;
+    }
+
+    /**
+     * @param writerType writer used to generate excel files
+     */
+    public void setWriterType(WriterType writerType) {
+        this.writerType = writerType;
+    }
+
+    /**
+     * @return compression profile of the xlsx package
+     */
+    public Compression getCompression() {
+        return compression;
+    }
+
+    /**
+     * @param compression compression profile of the xlsx package
+     */
+    public void setCompression(Compression compression) {
+        this.compression = compression;
+    }
+
+    /**
+     * @return count of rows kept in memory by SXSSF writer
+     */
+    public int getRowAccessWindowSize() {
+        return rowAccessWindowSize;
+    }
+
+    /**
+     * @param rowAccessWindowSize count of rows kept in memory by SXSSF writer, -1 for unlimited
+     */
+    public void setRowAccessWindowSize(int rowAccessWindowSize) {
+        this.rowAccessWindowSize = rowAccessWindowSize;
+    }
+
+    /**
+     * @return storage of rows flushed by SXSSF writer
+     */
+    public TempStorage getTempStorage() {
+        return tempStorage;
+    }
+
+    /**
+     * @param tempStorage storage of rows flushed by SXSSF writer
+     */
+    public void setTempStorage(TempStorage tempStorage) {
+        this.tempStorage = tempStorage;
+    }
+
+    /**
+     * @return size in bytes of off-heap rows above which they are spilled into a temp file
+     */
+    public long getOffHeapThreshold() {
+        return offHeapThreshold;
+    }
+
+    /**
+     * @param offHeapThreshold size in bytes of off-heap rows above which they are spilled into a temp file
+     */
+    public void setOffHeapThreshold(long offHeapThreshold) {
+        this.offHeapThreshold = offHeapThreshold;
+    }
+
+    /**
+     * @return max count of content rows of a sheet, 0 for the xlsx limit
+     */
+    public int getMaxRowsPerSheet() {
+        return maxRowsPerSheet;
+    }
+
+    /**
+     * @param maxRowsPerSheet max count of content rows of a sheet, 0 for the xlsx limit
+     */
+    public void setMaxRowsPerSheet(int maxRowsPerSheet) {
+        this.maxRowsPerSheet = maxRowsPerSheet;
+    }
+
+    /**
+     * @return {@code true} if csv and tsv exports start with the UTF-8 byte order mark
+     */
+    public boolean isCsvBom() {
+        return csvBom;
+    }
+
+    /**
+     * @param csvBom whether csv and tsv exports start with the UTF-8 byte order mark
+     */
+    public void setCsvBom(boolean csvBom) {
+        this.csvBom = csvBom;
+    }
+
+    /**
+     * @return {@code true} if text fields of csv and tsv exports that look like formulas are prefixed with a single quote
+     */
+    public boolean isCsvFormulaEscape() {
+        return csvFormulaEscape;
+    }
+
+    /**
+     * @param csvFormulaEscape whether text fields of csv and tsv exports that look like formulas are prefixed with a single
+     *                         quote, so that they are not executed when the file is opened by a spreadsheet application
+     */
+    public void setCsvFormulaEscape(boolean csvFormulaEscape) {
+        this.csvFormulaEscape = csvFormulaEscape;
+    }
+
+    /**
+     * @return default way string cells are written
+     */
+    public StringStrategy getStringStrategy() {
+        return stringStrategy;
+    }
+
+    /**
+     * @param stringStrategy default way string cells are written
+     */
+    public void setStringStrategy(StringStrategy stringStrategy) {
+        this.stringStrategy = stringStrategy;
+    }
+
+    /**
+     * @return max count of distinct strings in the shared strings table
+     */
+    public int getMaxSharedStrings() {
+        return maxSharedStrings;
+    }
+
+    /**
+     * @param maxSharedStrings max count of distinct strings in the shared strings table
+     */
+    public void setMaxSharedStrings(int maxSharedStrings) {
+        this.maxSharedStrings = maxSharedStrings;
+    }
+
+    /**
+     * @return count of leading content rows sampled by {@link StringStrategy#AUTO} columns
+     */
+    public int getStringSampleRows() {
+        return stringSampleRows;
+    }
+
+    /**
+     * @param stringSampleRows count of leading content rows sampled by {@link StringStrategy#AUTO} columns
+     */
+    public void setStringSampleRows(int stringSampleRows) {
+        this.stringSampleRows = stringSampleRows;
+    }
+
+    /**
+     * @return max count of async exports running at once
+     */
+    public int getAsyncThreads() {
+        return asyncThreads;
+    }
+
+    /**
+     * @param asyncThreads max count of async exports running at once
+     */
+    public void setAsyncThreads(int asyncThreads) {
+        this.asyncThreads = asyncThreads;
+    }
+
+    /**
+     * @return max count of async exports waiting for a thread
+     */
+    public int getAsyncQueueCapacity() {
+        return asyncQueueCapacity;
+    }
+
+    /**
+     * @param asyncQueueCapacity max count of async exports waiting for a thread
+     */
+    public void setAsyncQueueCapacity(int asyncQueueCapacity) {
+        this.asyncQueueCapacity = asyncQueueCapacity;
+    }
+
+    /**
+     * @return timeout in milliseconds of async exports, 0 for no timeout
+     */
+    public long getAsyncTimeout() {
+        return asyncTimeout;
+    }
+
+    /**
+     * @param asyncTimeout timeout in milliseconds of async exports, 0 for no timeout
+     */
+    public void setAsyncTimeout(long asyncTimeout) {
+        this.asyncTimeout = asyncTimeout;
+    }
+
+    /**
+     * @return count of pages and of row batches queued between the stages of paged exports, 0 for no pipeline
+     */
+    public int getPipelineDepth() {
+        return pipelineDepth;
+    }
+
+    /**
+     * @param pipelineDepth count of pages and of row batches queued between the stages of paged exports, 0 for no pipeline
+     */
+    public void setPipelineDepth(int pipelineDepth) {
+        this.pipelineDepth = pipelineDepth;
+    }
+
+    /**
+     * @return count of rows of a batch handed over to the writer of paged exports
+     */
+    public int getPipelineBatchSize() {
+        return pipelineBatchSize;
+    }
+
+    /**
+     * @param pipelineBatchSize count of rows of a batch handed over to the writer of paged exports
+     */
+    public void setPipelineBatchSize(int pipelineBatchSize) {
+        this.pipelineBatchSize = pipelineBatchSize;
+    }
+
+    /**
+     * @return max count of export stages running at once
+     */
+    public int getStageThreads() {
+        return stageThreads;
+    }
+
+    /**
+     * @param stageThreads max count of export stages running at once, further stages run in the writing threads
+     */
+    public void setStageThreads(int stageThreads) {
+        this.stageThreads = stageThreads;
+    }
+
+    /**
+     * @return count of threads deflating blocks of large xlsx entries
+     */
+    public int getDeflateThreads() {
+        return deflateThreads;
+    }
+
+    /**
+     * @param deflateThreads count of threads deflating blocks of large xlsx entries, 1 or less to deflate serially
+     */
+    public void setDeflateThreads(int deflateThreads) {
+        this.deflateThreads = deflateThreads;
+    }
+
+    /**
+     * @return max count of exports running at once on the node, 0 for unlimited
+     */
+    public int getMaxConcurrentExports() {
+        return maxConcurrentExports;
+    }
+
+    /**
+     * @param maxConcurrentExports max count of exports running at once on the node, 0 for unlimited
+     */
+    public void setMaxConcurrentExports(int maxConcurrentExports) {
+        this.maxConcurrentExports = maxConcurrentExports;
+    }
+
+    /**
+     * @return max count of exports queued for admission, 0 for unlimited
+     */
+    public int getMaxQueuedExports() {
+        return maxQueuedExports;
+    }
+
+    /**
+     * @param maxQueuedExports max count of exports queued for admission, 0 for unlimited
+     */
+    public void setMaxQueuedExports(int maxQueuedExports) {
+        this.maxQueuedExports = maxQueuedExports;
+    }
+
+    /**
+     * @return max time in milliseconds that an export is queued for admission
+     */
+    public long getExportQueueTimeout() {
+        return exportQueueTimeout;
+    }
+
+    /**
+     * @param exportQueueTimeout max time in milliseconds that an export is queued for admission
+     */
+    public void setExportQueueTimeout(long exportQueueTimeout) {
+        this.exportQueueTimeout = exportQueueTimeout;
+    }
+
+    /**
+     * @return count of extra exports that small exports may run beyond the node limit
+     */
+    public int getFastLanePermits() {
+        return fastLanePermits;
+    }
+
+    /**
+     * @param fastLanePermits count of extra exports that small exports may run beyond the node limit
+     */
+    public void setFastLanePermits(int fastLanePermits) {
+        this.fastLanePermits = fastLanePermits;
+    }
+
+    /**
+     * @return max estimated row count of small exports
+     */
+    public long getFastLaneRows() {
+        return fastLaneRows;
+    }
+
+    /**
+     * @param fastLaneRows max estimated row count of small exports
+     */
+    public void setFastLaneRows(long fastLaneRows) {
+        this.fastLaneRows = fastLaneRows;
+    }
+
+    /**
+     * @return directory of background export job files, relative to the cache root
+     */
+    public String getJobDir() {
+        return jobDir;
+    }
+
+    /**
+     * @param jobDir directory of background export job files, relative to the cache root
+     */
+    public void setJobDir(String jobDir) {
+        this.jobDir = jobDir;
+    }
+
+    /**
+     * @return time in milliseconds that finished export jobs and their files are kept
+     */
+    public long getJobRetention() {
+        return jobRetention;
+    }
+
+    /**
+     * @param jobRetention time in milliseconds that finished export jobs and their files are kept
+     */
+    public void setJobRetention(long jobRetention) {
+        this.jobRetention = jobRetention;
+    }
+
+    /**
+     * @return {@code true} if widths of columns without a fixed width are estimated from the leading content rows
+     */
+    public boolean isAutoWidth() {
+        return autoWidth;
+    }
+
+    /**
+     * @param autoWidth whether to estimate widths of columns without a fixed width
+     */
+    public void setAutoWidth(boolean autoWidth) {
+        this.autoWidth = autoWidth;
+    }
+
+    /**
+     * @return count of leading content rows sampled to estimate column widths
+     */
+    public int getWidthSampleRows() {
+        return widthSampleRows;
+    }
+
+    /**
+     * @param widthSampleRows count of leading content rows sampled to estimate column widths
+     */
+    public void setWidthSampleRows(int widthSampleRows) {
+        this.widthSampleRows = widthSampleRows;
+    }
+
+    public enum WriterType {
+        /**
+         * POI SXSSF workbook, rows are flushed to temp files and zipped at the end
+         */
+        SXSSF,
+        /**
+         * SpreadsheetML written directly into the response zip, see {@link com.dream.spring.excel.StreamExportExcel}
+         */
+        STREAMING
+    }
+
+    /**
+     * Trades file size for CPU. Large entries of the streaming writers are deflated in parallel blocks whatever the profile.
+     */
+    public enum Compression {
+        /**
+         * Deflate level 1, least CPU
+         */
+        FASTEST(Deflater.BEST_SPEED),
+        /**
+         * Default deflate level
+         */
+        BALANCED(Deflater.DEFAULT_COMPRESSION),
+        /**
+         * Deflate level 9, smallest files
+         */
+        SMALLEST(Deflater.BEST_COMPRESSION);
+
+        private final int level;
+
+        Compression(int level) {
+            this.level = level;
+        }
+
+        /**
+         * @return deflate level
+         */
+        public int getLevel() {
+            return level;
+        }
+    }
+
+    /**
+     * Storage of rows flushed by SXSSF writer
+     */
+    public enum TempStorage {
+        /**
+         * Plain temp file in 'java.io.tmpdir'
+         */
+        FILE,
+        /**
+         * Gzip compressed temp file, several times smaller at the cost of CPU
+         */
+        GZIP,
+        /**
+         * Memory-mapped temp file, written and read through the page cache
+         */
+        MAPPED,
+        /**
+         * Direct buffers outside of the heap, spilled into a temp file above {@link #getOffHeapThreshold() the threshold}
+         */
+        OFF_HEAP
+    }
+
+    /**
+     * Way string cells are written, see {@link com.dream.spring.excel.SharedStrings}
+     */
+    public enum StringStrategy {
+        /**
+         * Inline strings of the first {@link #getStringSampleRows() sampled rows}, then shared strings if values of the
+         * column repeat (low cardinality, eg: status or category), inline strings otherwise
+         */
+        AUTO,
+        /**
+         * Inline strings, nothing is kept in memory
+         */
+        INLINE,
+        /**
+         * Index into the shared strings table, repeated values are stored once
+         */
+        SHARED
+    }
+
     public static class CellStyle {
         /**
          * Background color
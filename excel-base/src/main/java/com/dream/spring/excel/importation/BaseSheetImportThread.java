@@ -17,6 +17,7 @@
 package com.dream.spring.excel.importation;
 
 import com.dream.spring.excel.importation.exception.ParseException;
+import com.dream.spring.excel.importation.model.CheckRule;
 import com.dream.spring.excel.importation.model.ErrorLog;
 import com.dream.spring.excel.importation.model.RowData;
 import com.dream.spring.excel.importation.model.RowWrapper;
@@ -24,12 +25,18 @@ import com.dream.spring.excel.importation.model.SheetStatus;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.FutureTask;
+import java.util.concurrent.Future;
 
 /**
  * Thread used for sheet importing
@@ -49,6 +56,16 @@ public abstract class BaseSheetImportThread<T> extends Thread {
      */
     private Sheet sheet;
 
+    /**
+     * Streaming reader of the sheet, used instead of the raw poi sheet if set
+     */
+    private SheetReader sheetReader;
+
+    /**
+     * Sheet name
+     */
+    private String sheetName;
+
     /**
      * Excel parser for sheet data
      */
@@ -101,6 +118,26 @@ public abstract class BaseSheetImportThread<T> extends Thread {
      */
     private SheetStatus.Status status = SheetStatus.Status.PREPARING;
 
+    /**
+     * Max count of bundles written at once
+     */
+    private int writeConcurrency = 1;
+
+    /**
+     * If true, written bundles are counted in row order
+     */
+    private boolean orderedCommit;
+
+    /**
+     * Bundles being written, in row order
+     */
+    private Deque<PendingWrite> pendingWrites = new ArrayDeque<>();
+
+    /**
+     * Executor of write tasks, the default one if null
+     */
+    private ImportExecutor writeExecutor;
+
     public BaseSheetImportThread(int sheetNum, BaseExcelParser<T> parser) {
         this(sheetNum, parser, new HashSet<>());
     }
@@ -125,6 +162,36 @@ public abstract class BaseSheetImportThread<T> extends Thread {
         this.bundleSize = bundleSize;
     }
 
+    /**
+     * @param writeExecutor executor of write tasks, {@link ImportExecutor#getDefault()} if not set
+     */
+    public void setWriteExecutor(ImportExecutor writeExecutor) {
+        this.writeExecutor = writeExecutor;
+    }
+
+    /**
+     * Bundles are parsed while up to {@code writeConcurrency} bundles are written, parsing waits once that many are in
+     * flight
+     *
+     * @param writeConcurrency max count of bundles written at once, 1 by default
+     */
+    public void setWriteConcurrency(int writeConcurrency) {
+        if (writeConcurrency <= 0) {
+            throw new IllegalArgumentException("Write concurrency must be positive");
+        }
+        this.writeConcurrency = writeConcurrency;
+    }
+
+    /**
+     * Counts written bundles and calls {@link WriteTask#onComplete(int)} in row order, so that the written count always
+     * covers the leading rows. Otherwise bundles are counted as soon as they are written.
+     *
+     * @param orderedCommit whether to count written bundles in row order
+     */
+    public void setOrderedCommit(boolean orderedCommit) {
+        this.orderedCommit = orderedCommit;
+    }
+
     /**
      * @return sheet number of parsed sheet
      */
@@ -137,9 +204,20 @@ public abstract class BaseSheetImportThread<T> extends Thread {
      */
     public void setSheet(Sheet sheet) {
         this.sheet = sheet;
+        this.sheetName = sheet.getSheetName();
         totalCnt = sheet.getLastRowNum() + 1 - offset;
     }
 
+    /**
+     * Rows will be streamed from the reader bundle by bundle instead of read from a loaded sheet
+     *
+     * @param sheetReader streaming reader of the sheet
+     */
+    public void setSheetReader(SheetReader sheetReader) {
+        this.sheetReader = sheetReader;
+        this.sheetName = sheetReader.getSheetName();
+    }
+
     /**
      * @param listener sheet parsing listener to set
      */
@@ -160,7 +238,7 @@ public abstract class BaseSheetImportThread<T> extends Thread {
      * @return current sheet importing status
      */
     public SheetStatus getStatus() {
-        return new SheetStatus(status, sheetNum, sheet == null ? null : sheet.getSheetName(), totalCnt, parseCnt, writeCnt, errors);
+        return new SheetStatus(status, sheetNum, sheetName, totalCnt, parseCnt, writeCnt, errors);
     }
 
     /**
@@ -173,38 +251,81 @@ public abstract class BaseSheetImportThread<T> extends Thread {
 
     @Override
     public void run() {
+        try {
+            importSheet();
+        } catch (Throwable e) {
+            if (listener == null) {
+                throw e;
+            }
+            // The excel thread is waiting for this sheet, it must hear of the failure
+            listener.onSheetFailed(sheetNum, e);
+            return;
+        }
+        if (listener != null) {
+            listener.onSheetComplete(sheetNum);
+        }
+    }
+
+    /**
+     * Parses and writes all rows of the sheet
+     */
+    private void importSheet() {
         status = SheetStatus.Status.IMPORTING;
-        int tCount = (int) Math.ceil(totalCnt / ((double) bundleSize));
-        FutureTask<Integer> previousTask = null;
-        // parse and write data in bulk
-        for (int i = 1; i <= tCount; i++) {
-            List<RowData<T>> partData = readExcel(sheet, (i - 1) * bundleSize + offset, i * bundleSize + offset);
-            if (previousTask != null) {
-                // Wait for previous writing task
-                waitTask(previousTask);
+        if (sheetReader != null) {
+            try {
+                BundleHandler handler = new BundleHandler();
+                sheetReader.read(handler);
+                handler.finish();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
             }
-            // write data asynchronously
-            previousTask = new FutureTask<>(createWriteTask(parser.checkBulk(partData, error -> errors.add(error))));
-            Thread writeThread = new Thread(previousTask);
-            writeThread.start();
-            if (i == tCount) {
-                // Wait for writing task in last round
-                waitTask(previousTask);
+        } else {
+            int tCount = (int) Math.ceil(totalCnt / ((double) bundleSize));
+            // parse and write data in bulk
+            for (int i = 1; i <= tCount; i++) {
+                writeBundle(readExcel(sheet, (i - 1) * bundleSize + offset, i * bundleSize + offset));
             }
         }
+        // Wait for writing tasks in last rounds
+        while (!pendingWrites.isEmpty()) {
+            complete(pendingWrites.poll());
+        }
         status = SheetStatus.Status.COMPLETE;
         parser.onComplete();
-        if (listener != null) {
-            listener.onSheetComplete(sheetNum);
+    }
+
+    /**
+     * Writes the bundle asynchronously once there is room among the bundles in flight
+     */
+    private void writeBundle(List<RowData<T>> partData) {
+        // Count bundles already written, only the leading ones if committed in order
+        for (Iterator<PendingWrite> it = pendingWrites.iterator(); it.hasNext(); ) {
+            PendingWrite write = it.next();
+            if (write.future.isDone()) {
+                it.remove();
+                complete(write);
+            } else if (orderedCommit) {
+                break;
+            }
+        }
+        while (pendingWrites.size() >= writeConcurrency) {
+            // Wait for the oldest writing task
+            complete(pendingWrites.poll());
         }
+        WriteTask<T> task = createWriteTask(parser.checkBulk(partData, error -> errors.add(error)));
+        ImportExecutor executor = writeExecutor != null ? writeExecutor : ImportExecutor.getDefault();
+        pendingWrites.add(new PendingWrite(task, executor.submit(task)));
     }
 
-    private void waitTask(FutureTask<Integer> task) {
+    private void complete(PendingWrite write) {
+        int count;
         try {
-            writeCnt += task.get();
+            count = write.future.get();
         } catch (InterruptedException | ExecutionException e) {
             throw new RuntimeException(e.getMessage(), e);
         }
+        writeCnt += count;
+        write.task.onComplete(count);
     }
 
     private List<RowData<T>> readExcel(Sheet sheet, int startRow, int endRow) {
@@ -226,6 +347,70 @@ public abstract class BaseSheetImportThread<T> extends Thread {
         return result;
     }
 
+    /**
+     * Parses streamed rows and writes them bundle by bundle, so only a bundle of rows is held
+     */
+    private class BundleHandler implements SheetReader.RowHandler {
+
+        private final Map<Integer, CheckRule> ruleMap = parser.checkRuleMap();
+
+        private List<RowData<T>> partData = new ArrayList<>();
+
+        /**
+         * Rows read into the current bundle
+         */
+        private int readCnt;
+
+        @Override
+        public void onRowCount(int rowCount) {
+            totalCnt = Math.max(0, rowCount - offset);
+        }
+
+        @Override
+        public void onRow(int rowNum, String[] values) {
+            if (rowNum < offset) {
+                return;
+            }
+            try {
+                partData.add(new RowData<>(rowNum, parser.parse(new RowWrapper(values, ruleMap))));
+            } catch (ParseException e) {
+                errors.add(new ErrorLog(rowNum, e));
+            }
+            parseCnt = rowNum + 1 - offset;
+            totalCnt = Math.max(totalCnt, parseCnt);
+            if (++readCnt == bundleSize) {
+                writeBundle(partData);
+                partData = new ArrayList<>();
+                readCnt = 0;
+            }
+        }
+
+        /**
+         * Writes the last bundle
+         */
+        private void finish() {
+            if (readCnt > 0) {
+                writeBundle(partData);
+            }
+            totalCnt = parseCnt;
+        }
+    }
+
+    /**
+     * Writing task of a bundle and its result
+     */
+    private class PendingWrite {
+
+        private final WriteTask<T> task;
+
+        private final Future<Integer> future;
+
+        private PendingWrite(WriteTask<T> task, Future<Integer> future) {
+            this.task = task;
+            this.future = future;
+        }
+    }
+
     /**
      * Sheet importing listener
      */
@@ -237,6 +422,14 @@ public abstract class BaseSheetImportThread<T> extends Thread {
          * @param sheetNum Sheet Number
          */
         void onSheetComplete(Integer sheetNum);
+
+        /**
+         * Sheet import failed listener
+         *
+         * @param sheetNum Sheet Number
+         * @param e        failure of the sheet importing
+         */
+        void onSheetFailed(Integer sheetNum, Throwable e);
     }
 
 }
@@ -0,0 +1,335 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel.importation;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads a csv file as a workbook of one sheet, named after the file
+ *
+ * <p>Fields may be quoted, quotes within quoted fields are doubled and quoted fields may span lines. Blank lines are skipped,
+ * row numbers count lines of records so that they match the lines of the file unless quoted fields span lines. Values are
+ * the raw text of the fields.
+ *
+ * <p>The charset is detected unless given: a BOM decides it, otherwise the start of the file is checked as UTF-8, then GBK
+ * is used if it isn't valid UTF-8. Text that isn't valid in the charset fails the read instead of being replaced, so a GBK
+ * file whose first non-ASCII text comes after the checked prefix fails and must be read with its charset given.
+ *
+ * @author DreamJM
+ */
+public class CsvStreamReader implements WorkbookReader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Bytes at the start of the file checked to detect the charset
+     */
+    private static final int DETECT_SIZE = 64 * 1024;
+
+    private static final Charset GBK = Charset.forName("GBK");
+
+    private final File file;
+
+    private final char delimiter;
+
+    private final Charset charset;
+
+    /**
+     * Comma separated file with detected charset
+     *
+     * @param file csv file
+     */
+    public CsvStreamReader(File file) {
+        this(file, ',', null);
+    }
+
+    /**
+     * @param file      csv file
+     * @param delimiter field delimiter, eg: ',' or '\t'
+     * @param charset   charset of the file, null to detect it
+     */
+    public CsvStreamReader(File file, char delimiter, Charset charset) {
+        if (delimiter == '"' || delimiter == '\r' || delimiter == '\n') {
+            throw new IllegalArgumentException("Invalid delimiter " + delimiter);
+        }
+        this.file = file;
+        this.delimiter = delimiter;
+        this.charset = charset;
+    }
+
+    /**
+     * @param file import file
+     * @return {@code true} if the file is named as a csv file
+     */
+    static boolean isCsv(File file) {
+        String name = file.getName().toLowerCase();
+        return name.endsWith(".csv") || name.endsWith(".tsv") || name.endsWith(".txt");
+    }
+
+    /**
+     * @param file csv file
+     * @return tab for *.tsv files, otherwise comma
+     */
+    static char defaultDelimiter(File file) {
+        return file.getName().toLowerCase().endsWith(".tsv") ? '\t' : ',';
+    }
+
+    @Override
+    public int getSheetCount() {
+        return 1;
+    }
+
+    @Override
+    public SheetReader getSheet(int sheetNum) {
+        if (sheetNum != 0) {
+            throw new IllegalArgumentException("Sheet index (" + sheetNum + ") is out of range (0..0)");
+        }
+        String name = file.getName();
+        String sheetName = name.lastIndexOf('.') > 0 ? name.substring(0, name.lastIndexOf('.')) : name;
+        return new SheetReader() {
+            @Override
+            public String getSheetName() {
+                return sheetName;
+            }
+
+            @Override
+            public void read(RowHandler handler) throws IOException {
+                try (InputStreamReader reader = open()) {
+                    Tokenizer tokenizer = new Tokenizer(reader);
+                    String[] values;
+                    while ((values = tokenizer.next()) != null) {
+                        handler.onRow(tokenizer.rowNum, values);
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * Nothing is held open between reads
+     */
+    @Override
+    public void close() {
+    }
+
+    /**
+     * Opens the file with its charset, the BOM is skipped
+     */
+    private InputStreamReader open() throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+        try {
+            in.mark(3);
+            byte[] head = new byte[3];
+            int length = 0;
+            int read;
+            while (length < head.length && (read = in.read(head, length, head.length - length)) > 0) {
+                length += read;
+            }
+            in.reset();
+            Charset fileCharset = charset;
+            int bom = 0;
+            if (length >= 3 && (head[0] & 0xFF) == 0xEF && (head[1] & 0xFF) == 0xBB && (head[2] & 0xFF) == 0xBF) {
+                bom = 3;
+                fileCharset = fileCharset == null ? StandardCharsets.UTF_8 : fileCharset;
+            } else if (length >= 2 && (head[0] & 0xFF) == 0xFF && (head[1] & 0xFF) == 0xFE) {
+                bom = 2;
+                fileCharset = fileCharset == null ? StandardCharsets.UTF_16LE : fileCharset;
+            } else if (length >= 2 && (head[0] & 0xFF) == 0xFE && (head[1] & 0xFF) == 0xFF) {
+                bom = 2;
+                fileCharset = fileCharset == null ? StandardCharsets.UTF_16BE : fileCharset;
+            } else if (fileCharset == null) {
+                fileCharset = isUtf8(in) ? StandardCharsets.UTF_8 : GBK;
+            }
+            if (in.skip(bom) != bom) {
+                throw new EOFException();
+            }
+            return new InputStreamReader(in, strictDecoder(fileCharset));
+        } catch (IOException | RuntimeException e) {
+            in.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param in file stream, reset to its position once checked
+     * @return {@code true} if the start of the file is valid UTF-8, a character cut at the end of the checked bytes is valid
+     */
+    private static boolean isUtf8(InputStream in) throws IOException {
+        in.mark(DETECT_SIZE);
+        byte[] head = new byte[DETECT_SIZE];
+        int length = 0;
+        int read;
+        while (length < head.length && (read = in.read(head, length, head.length - length)) > 0) {
+            length += read;
+        }
+        in.reset();
+        CharBuffer chars = CharBuffer.allocate(length);
+        return !strictDecoder(StandardCharsets.UTF_8).decode(ByteBuffer.wrap(head, 0, length), chars, length < head.length).isError();
+    }
+
+    /**
+     * @return decoder failing on malformed or unmappable input instead of replacing it
+     */
+    private static CharsetDecoder strictDecoder(Charset charset) {
+        return charset.newDecoder().onMalformedInput(CodingErrorAction.REPORT).onUnmappableCharacter(CodingErrorAction.REPORT);
+    }
+
+    /**
+     * Splits the records of the csv text into fields. Runs of plain characters are copied at once and the buffers are
+     * reused, only the field values are allocated.
+     */
+    private class Tokenizer {
+
+        private final InputStreamReader reader;
+
+        private final char[] buffer = new char[BUFFER_SIZE];
+
+        private final StringBuilder field = new StringBuilder();
+
+        private final StreamedRow row = new StreamedRow();
+
+        private int position;
+
+        private int limit;
+
+        /**
+         * Row number of the last record
+         */
+        private int rowNum = -1;
+
+        /**
+         * Line number of the next record
+         */
+        private int line;
+
+        private Tokenizer(InputStreamReader reader) {
+            this.reader = reader;
+        }
+
+        /**
+         * @return field values of the next record, null at the end of the file
+         */
+        private String[] next() throws IOException {
+            int column = 0;
+            // If true, the record has a delimiter or a quoted field, so it isn't blank even without any character
+            boolean started = false;
+            boolean quoted = false;
+            int startLine = line;
+            field.setLength(0);
+            while (true) {
+                if (position == limit && !fill()) {
+                    if (!started && field.length() == 0) {
+                        return null;
+                    }
+                    // The last record has no line break, or an unterminated quote
+                    return endRecord(column, startLine);
+                }
+                if (quoted) {
+                    int start = position;
+                    while (position < limit && buffer[position] != '"') {
+                        if (buffer[position] == '\n') {
+                            line++;
+                        }
+                        position++;
+                    }
+                    field.append(buffer, start, position - start);
+                    if (position < limit) {
+                        position++;
+                        if (peek() == '"') {
+                            // Escaped quote
+                            field.append('"');
+                            position++;
+                        } else {
+                            quoted = false;
+                        }
+                    }
+                    continue;
+                }
+                int start = position;
+                while (position < limit) {
+                    char c = buffer[position];
+                    if (c == delimiter || c == '"' || c == '\n' || c == '\r') {
+                        break;
+                    }
+                    position++;
+                }
+                field.append(buffer, start, position - start);
+                if (position == limit) {
+                    continue;
+                }
+                char c = buffer[position++];
+                if (c == delimiter) {
+                    row.set(column++, field.toString());
+                    field.setLength(0);
+                    started = true;
+                } else if (c == '"') {
+                    quoted = true;
+                    started = true;
+                } else {
+                    if (c == '\r' && peek() == '\n') {
+                        position++;
+                    }
+                    line++;
+                    if (started || field.length() > 0) {
+                        return endRecord(column, startLine);
+                    }
+                    // Blank line
+                    startLine = line;
+                }
+            }
+        }
+
+        private String[] endRecord(int column, int startLine) {
+            row.set(column, field.toString());
+            field.setLength(0);
+            rowNum = startLine;
+            return row.take();
+        }
+
+        /**
+         * @return next character without consuming it, -1 at the end of the file
+         */
+        private int peek() throws IOException {
+            if (position == limit && !fill()) {
+                return -1;
+            }
+            return buffer[position];
+        }
+
+        private boolean fill() throws IOException {
+            int read;
+            try {
+                read = reader.read(buffer, 0, buffer.length);
+            } catch (CharacterCodingException e) {
+                // Rows before are already handled, the read can't restart with another charset
+                throw new IOException("Invalid " + reader.getEncoding() + " text after line " + line + " of " + file.getName() +
+                        (charset == null ? ", the charset was detected from the start of the file, give the charset to " +
+                                CsvStreamReader.class.getSimpleName() : ""), e);
+            }
+            position = 0;
+            limit = Math.max(read, 0);
+            return read > 0;
+        }
+    }
+}
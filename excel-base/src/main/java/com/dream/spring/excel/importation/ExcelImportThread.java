@@ -24,6 +24,7 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.stream.Collectors;
@@ -87,6 +88,21 @@ public class ExcelImportThread extends Thread implements BaseSheetImportThread.S
      */
     private LinkedBlockingQueue<Integer> completeQueue = new LinkedBlockingQueue<>();
 
+    /**
+     * First failure of the sheet importing threads
+     */
+    private volatile Throwable sheetFailure;
+
+    /**
+     * If true, sheets are streamed row by row instead of loading the workbook
+     */
+    private boolean streaming;
+
+    /**
+     * Reader of the sheets given instead of the one detected from the file
+     */
+    private WorkbookReader workbookReader;
+
     public ExcelImportThread(String id, File excel, List<BaseSheetImportThread<?>> sheetThreads) {
         this.id = id;
         this.excel = excel;
@@ -111,6 +127,35 @@ public class ExcelImportThread extends Thread implements BaseSheetImportThread.S
         this.listener = listener;
     }
 
+    /**
+     * Streams the rows of xlsx files with the SAX event model, and of xls files with the HSSF event model, instead of loading
+     * the whole workbook, so heap use depends on the bundle size rather than on the file size. The format is detected by the
+     * leading bytes of the file. Csv files are always streamed, as one sheet. Parsers get rows without the raw poi row ({@link
+     * com.dream.spring.excel.importation.model.RowWrapper#getRow()} is null).
+     *
+     * @param streaming whether to stream the rows
+     */
+    public void setStreaming(boolean streaming) {
+        this.streaming = streaming;
+    }
+
+    /**
+     * Reads the sheets from the given reader instead of the one detected from the file, eg: a {@link CsvStreamReader} with
+     * another delimiter or charset. The rows are streamed and the reader is closed once importing ends.
+     *
+     * @param workbookReader reader of the sheets
+     */
+    public void setWorkbookReader(WorkbookReader workbookReader) {
+        this.workbookReader = workbookReader;
+    }
+
+    /**
+     * @param writeExecutor executor of the write tasks of all sheets, {@link ImportExecutor#getDefault()} if not set
+     */
+    public void setWriteExecutor(ImportExecutor writeExecutor) {
+        sheetThreads.forEach(sheetThread -> sheetThread.setWriteExecutor(writeExecutor));
+    }
+
     /**
      * @return status information of importing
      */
@@ -122,51 +167,17 @@ public class ExcelImportThread extends Thread implements BaseSheetImportThread.S
     public void run() {
         startTime = new Date();
         logger.debug("[{}] excel importing start", excel.getName());
-        try (Workbook wb = WorkbookFactory.create(excel)) {
-            // Preparing Sheet
-            sheetThreads.forEach(sheetThread -> {
-                sheetThread.setSheet(wb.getSheetAt(sheetThread.getSheetNum()));
-                sheetThread.setListener(this);
-            });
-            logger.debug("[{}] Sheet preparing completed", excel.getName());
-            status = Status.ExcelStatus.IMPORTING;
-            if (sheetThreads.size() == 1) {
-                // If excel has only one sheet, then the sheet importing task will be executed in the main excel thread
-                logger.debug("[{}(Sheet No.{})] Sheet import thread start", excel.getName(), sheetThreads.get(0).getSheetNum());
-                sheetThreads.get(0).run();
-            } else {
-                for (BaseSheetImportThread<?> sheetThread : sheetThreads) {
-                    if (sheetThread.getParentSheetNum().size() == 0) {
-                        // Start root sheet importing task
-                        logger.debug("[{}(Sheet No.{})] Sheet import thread start", excel.getName(), sheetThread.getSheetNum());
-                        sheetThread.start();
-                    }
+        try {
+            // Csv files can only be streamed
+            if (streaming || workbookReader != null || CsvStreamReader.isCsv(excel)) {
+                try (WorkbookReader reader = workbookReader != null ? workbookReader : WorkbookReader.open(excel)) {
+                    sheetThreads.forEach(sheetThread -> sheetThread.setSheetReader(reader.getSheet(sheetThread.getSheetNum())));
+                    importSheets();
                 }
-                Set<Integer> completeSheets = new HashSet<>();
-                while (suspendSheetMap.size() > 0) {
-                    Integer sheetNum = completeQueue.poll();
-                    completeSheets.add(sheetNum);
-                    suspendSheetMap.remove(sheetNum);
-                    Set<Integer> childSet = childMap.get(sheetNum);
-                    if (childSet != null) {
-                        // Judges whether the child sheet can be executed
-                        for (Integer childSheetNum : childSet) {
-                            BaseSheetImportThread<?> childSheetThread = suspendSheetMap.get(childSheetNum);
-                            Set<Integer> childParents = childSheetThread.getParentSheetNum();
-                            boolean executable = true;
-                            for (Integer childParent : childParents) {
-                                if (!completeSheets.contains(childParent)) {
-                                    executable = false;
-                                    break;
-                                }
-                            }
-                            if (executable) {
-                                logger.debug("[{}(Sheet No.{})] Sheet import thread start", excel.getName(),
-                                        childSheetThread.getSheetNum());
-                                childSheetThread.start();
-                            }
-                        }
-                    }
+            } else {
+                try (Workbook wb = WorkbookFactory.create(excel)) {
+                    sheetThreads.forEach(sheetThread -> sheetThread.setSheet(wb.getSheetAt(sheetThread.getSheetNum())));
+                    importSheets();
                 }
             }
             endTime = new Date();
@@ -177,18 +188,95 @@ public class ExcelImportThread extends Thread implements BaseSheetImportThread.S
         } catch (Throwable e) {
             logger.error("Error occurred during file importing", e);
             endTime = new Date();
-            status = (e instanceof IOException) ? Status.ExcelStatus.IO_ERROR : Status.ExcelStatus.FAIL;
+            status = (e instanceof IOException || e instanceof UncheckedIOException) ? Status.ExcelStatus.IO_ERROR :
+                    Status.ExcelStatus.FAIL;
             if (listener != null) {
                 listener.onComplete(id, getStatus());
             }
         }
     }
 
+    /**
+     * Runs the prepared sheet threads in the order of their dependencies
+     */
+    private void importSheets() throws InterruptedException {
+        // Preparing Sheet
+        sheetThreads.forEach(sheetThread -> sheetThread.setListener(this));
+        logger.debug("[{}] Sheet preparing completed", excel.getName());
+        status = Status.ExcelStatus.IMPORTING;
+        if (sheetThreads.size() == 1) {
+            // If excel has only one sheet, then the sheet importing task will be executed in the main excel thread
+            logger.debug("[{}(Sheet No.{})] Sheet import thread start", excel.getName(), sheetThreads.get(0).getSheetNum());
+            sheetThreads.get(0).run();
+            checkSheetFailure();
+        } else {
+            for (BaseSheetImportThread<?> sheetThread : sheetThreads) {
+                if (sheetThread.getParentSheetNum().size() == 0) {
+                    // Start root sheet importing task
+                    logger.debug("[{}(Sheet No.{})] Sheet import thread start", excel.getName(), sheetThread.getSheetNum());
+                    sheetThread.start();
+                }
+            }
+            Set<Integer> completeSheets = new HashSet<>();
+            while (suspendSheetMap.size() > 0) {
+                Integer sheetNum = completeQueue.take();
+                checkSheetFailure();
+                completeSheets.add(sheetNum);
+                suspendSheetMap.remove(sheetNum);
+                Set<Integer> childSet = childMap.get(sheetNum);
+                if (childSet != null) {
+                    // Judges whether the child sheet can be executed
+                    for (Integer childSheetNum : childSet) {
+                        BaseSheetImportThread<?> childSheetThread = suspendSheetMap.get(childSheetNum);
+                        Set<Integer> childParents = childSheetThread.getParentSheetNum();
+                        boolean executable = true;
+                        for (Integer childParent : childParents) {
+                            if (!completeSheets.contains(childParent)) {
+                                executable = false;
+                                break;
+                            }
+                        }
+                        if (executable) {
+                            logger.debug("[{}(Sheet No.{})] Sheet import thread start", excel.getName(),
+                                    childSheetThread.getSheetNum());
+                            childSheetThread.start();
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Fails the excel importing with the failure of a sheet, the remaining sheets are not waited for
+     */
+    private void checkSheetFailure() {
+        Throwable failure = sheetFailure;
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        } else if (failure instanceof Error) {
+            throw (Error) failure;
+        } else if (failure instanceof IOException) {
+            throw new UncheckedIOException((IOException) failure);
+        } else if (failure != null) {
+            throw new IllegalStateException(failure);
+        }
+    }
+
     @Override
     public void onSheetComplete(Integer sheetNum) {
         completeQueue.offer(sheetNum);
     }
 
+    @Override
+    public void onSheetFailed(Integer sheetNum, Throwable e) {
+        logger.error("[{}(Sheet No.{})] Sheet importing failed", excel.getName(), sheetNum);
+        if (sheetFailure == null) {
+            sheetFailure = e;
+        }
+        completeQueue.offer(sheetNum);
+    }
+
     /**
      * Excel Importing Listener
      */
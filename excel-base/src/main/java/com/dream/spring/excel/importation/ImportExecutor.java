@@ -0,0 +1,198 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel.importation;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded executor of the write stage of imports
+ *
+ * <p>The {@link WriteTask write tasks} of all sheets and imports run on its threads instead of a new thread per bundle. At
+ * most {@code threads} bundles are written at once and {@code queueCapacity} wait, further bundles are handled by the
+ * {@link RejectionPolicy}. Sheet threads use the {@link #getDefault() default executor} unless one is set.
+ *
+ * @author DreamJM
+ */
+public class ImportExecutor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ImportExecutor.class);
+
+    /**
+     * Default count of write threads
+     */
+    public static final int DEFAULT_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Default count of bundles waiting for a write thread
+     */
+    public static final int DEFAULT_QUEUE_CAPACITY = 100;
+
+    private static volatile ImportExecutor defaultExecutor;
+
+    private final ExecutorService executor;
+
+    /**
+     * @param threads        max count of bundles written at once
+     * @param queueCapacity  max count of bundles waiting for a thread, 0 for none
+     * @param policy         policy for bundles over the queue capacity
+     * @param virtualThreads whether to write on virtual threads, ignored before JDK 21
+     */
+    public ImportExecutor(int threads, int queueCapacity, RejectionPolicy policy, boolean virtualThreads) {
+        if (threads <= 0) {
+            throw new IllegalArgumentException("Import write threads must be positive");
+        }
+        ThreadFactory threadFactory = virtualThreads ? virtualThreadFactory() : null;
+        if (threadFactory == null) {
+            if (virtualThreads) {
+                logger.warn("Virtual threads are not supported by this JVM, platform threads are used for import writing");
+            }
+            AtomicInteger count = new AtomicInteger();
+            threadFactory = r -> {
+                Thread thread = new Thread(r, "dream-excel-write-" + count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            };
+        }
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                queueCapacity > 0 ? new LinkedBlockingQueue<>(queueCapacity) : new SynchronousQueue<>(), threadFactory,
+                rejectedHandler(policy == null ? RejectionPolicy.CALLER_RUNS : policy));
+        pool.allowCoreThreadTimeOut(true);
+        this.executor = pool;
+    }
+
+    /**
+     * Writes on the given executor service, whose lifecycle is left to its owner except for {@link #shutdown()}
+     *
+     * @param executor executor service of write tasks
+     */
+    public ImportExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Executor used when none is set, created with the default sizes on first use
+     *
+     * @return default import executor
+     */
+    public static ImportExecutor getDefault() {
+        if (defaultExecutor == null) {
+            synchronized (ImportExecutor.class) {
+                if (defaultExecutor == null) {
+                    defaultExecutor = new ImportExecutor(DEFAULT_THREADS, DEFAULT_QUEUE_CAPACITY, RejectionPolicy.CALLER_RUNS,
+                            false);
+                }
+            }
+        }
+        return defaultExecutor;
+    }
+
+    /**
+     * @param executor executor used by sheet threads that have none set
+     */
+    public static void setDefault(ImportExecutor executor) {
+        synchronized (ImportExecutor.class) {
+            defaultExecutor = executor;
+        }
+    }
+
+    /**
+     * @param task write task
+     * @return result of the task
+     * @throws RejectedExecutionException if rejected by the {@link RejectionPolicy#ABORT abort policy}
+     */
+    public <V> Future<V> submit(Callable<V> task) {
+        return executor.submit(task);
+    }
+
+    /**
+     * @return count of bundles being written, -1 if unknown for an injected executor service
+     */
+    public int getActiveCount() {
+        return executor instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) executor).getActiveCount() : -1;
+    }
+
+    /**
+     * @return count of bundles waiting for a thread, -1 if unknown for an injected executor service
+     */
+    public int getQueueSize() {
+        return executor instanceof ThreadPoolExecutor ? ((ThreadPoolExecutor) executor).getQueue().size() : -1;
+    }
+
+    /**
+     * Stops accepting bundles, running and queued ones are completed
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static RejectedExecutionHandler rejectedHandler(RejectionPolicy policy) {
+        switch (policy) {
+            case ABORT:
+                return new ThreadPoolExecutor.AbortPolicy();
+            case BLOCK:
+                return (r, pool) -> {
+                    if (pool.isShutdown()) {
+                        throw new RejectedExecutionException("Import executor is shut down");
+                    }
+                    try {
+                        pool.getQueue().put(r);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new RejectedExecutionException("Interrupted while waiting for the write queue", e);
+                    }
+                };
+            default:
+                return new ThreadPoolExecutor.CallerRunsPolicy();
+        }
+    }
+
+    /**
+     * @return factory of virtual threads, or null if not supported. Looked up reflectively to keep running on JDK 8.
+     */
+    private static ThreadFactory virtualThreadFactory() {
+        try {
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, "dream-excel-write-", 1L);
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Policy for write tasks submitted while all threads are busy and the queue is full
+     */
+    public enum RejectionPolicy {
+        /**
+         * Writes the bundle on the sheet thread, slowing down parsing
+         */
+        CALLER_RUNS,
+        /**
+         * Waits for room in the queue
+         */
+        BLOCK,
+        /**
+         * Fails the import
+         */
+        ABORT
+    }
+}
@@ -0,0 +1,60 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel.importation;
+
+import java.io.IOException;
+
+/**
+ * Streams the rows of a sheet to be imported, instead of loading the whole workbook
+ *
+ * @author DreamJM
+ */
+public interface SheetReader {
+
+    /**
+     * @return sheet name
+     */
+    String getSheetName();
+
+    /**
+     * Reads the rows of the sheet one by one, rows without any cell may be skipped
+     *
+     * @param handler row handler
+     * @throws IOException if the file can't be read or parsed
+     */
+    void read(RowHandler handler) throws IOException;
+
+    /**
+     * Handler of the streamed rows
+     */
+    interface RowHandler {
+
+        /**
+         * Called before the rows if the sheet declares its size
+         *
+         * @param rowCount estimated count of rows including the header
+         */
+        default void onRowCount(int rowCount) {
+        }
+
+        /**
+         * @param rowNum row number, starting from 0
+         * @param values cell values indexed by column number, formatted like {@link com.dream.spring.excel.importation.model.RowWrapper#getCellValue(int)}
+         */
+        void onRow(int rowNum, String[] values);
+    }
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel.importation;
+
+import java.util.Arrays;
+
+/**
+ * Cell values of the row being streamed, indexed by column number
+ *
+ * @author DreamJM
+ */
+class StreamedRow {
+
+    private String[] values = new String[16];
+
+    private int columnCount;
+
+    /**
+     * @param column column number
+     * @param value  cell value
+     */
+    void set(int column, String value) {
+        if (column >= values.length) {
+            values = Arrays.copyOf(values, Math.max(column + 1, values.length * 2));
+        }
+        values[column] = value;
+        columnCount = Math.max(columnCount, column + 1);
+    }
+
+    /**
+     * @return values of the row up to its last cell, the row is cleared for the next one
+     */
+    String[] take() {
+        String[] row = Arrays.copyOf(values, columnCount);
+        Arrays.fill(values, 0, columnCount, null);
+        columnCount = 0;
+        return row;
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel.importation;
+
+import org.apache.poi.poifs.filesystem.FileMagic;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * Streaming reader of the sheets of an import file
+ *
+ * @author DreamJM
+ */
+public interface WorkbookReader extends Closeable {
+
+    /**
+     * @return count of sheets
+     */
+    int getSheetCount();
+
+    /**
+     * @param sheetNum sheet number, starting from 0
+     * @return reader of the sheet
+     * @throws IllegalArgumentException if the sheet doesn't exist
+     */
+    SheetReader getSheet(int sheetNum);
+
+    /**
+     * Opens the reader matching the format of the file, detected by its leading bytes rather than its extension. Files
+     * of no known format are read as csv if named *.csv, *.tsv (tab separated) or *.txt.
+     *
+     * @param file xlsx, xls or csv file
+     * @return workbook reader
+     * @throws IOException if the file can't be read or its format is not supported
+     */
+    static WorkbookReader open(File file) throws IOException {
+        FileMagic magic = FileMagic.valueOf(file);
+        switch (magic) {
+            case OOXML:
+                return new XlsxStreamReader(file);
+            case OLE2:
+                return new XlsStreamReader(file);
+            default:
+                if (CsvStreamReader.isCsv(file)) {
+                    return new CsvStreamReader(file, CsvStreamReader.defaultDelimiter(file), null);
+                }
+                throw new IOException("Unsupported file format " + magic + " of " + file.getName());
+        }
+    }
+}
@@ -45,4 +45,14 @@ public abstract class WriteTask<T> implements Callable<Integer> {
      * @return write data count
      */
     protected abstract Integer write(List<T> data);
+
+    /**
+     * Called on the sheet thread once the written count of the bundle is taken into the sheet status, in row order if
+     * the sheet thread commits in order
+     *
+     * @param count written data count
+     * @see BaseSheetImportThread#setOrderedCommit(boolean)
+     */
+    protected void onComplete(int count) {
+    }
 }
@@ -0,0 +1,253 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel.importation;
+
+import com.dream.spring.excel.importation.model.RowWrapper;
+import org.apache.poi.hssf.eventusermodel.AbortableHSSFListener;
+import org.apache.poi.hssf.eventusermodel.EventWorkbookBuilder;
+import org.apache.poi.hssf.eventusermodel.HSSFEventFactory;
+import org.apache.poi.hssf.eventusermodel.HSSFRequest;
+import org.apache.poi.hssf.eventusermodel.HSSFUserException;
+import org.apache.poi.hssf.record.*;
+import org.apache.poi.poifs.filesystem.POIFSFileSystem;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads the sheets of a xls (BIFF8) file with the HSSF event model
+ *
+ * <p>Records of the workbook stream are handled one by one and no cell is kept after its row is handled, so memory depends on
+ * the rows being processed rather than on the file size. Only the shared strings are kept. Each sheet is read by its own pass
+ * over the stream, which stops at the end of the sheet, so sheets can be read by different threads.
+ *
+ * <p>Cell values follow {@link RowWrapper} as {@link XlsxStreamReader} does. Rows without any cell are skipped.
+ *
+ * @author DreamJM
+ */
+public class XlsStreamReader implements WorkbookReader {
+
+    private final File file;
+
+    /**
+     * Sheets in workbook order
+     */
+    private final BoundSheetRecord[] sheets;
+
+    /**
+     * Sheets in the order of their substreams
+     */
+    private final List<BoundSheetRecord> streamOrder;
+
+    /**
+     * @param file xls file
+     * @throws IOException if the file isn't a valid xls file
+     */
+    public XlsStreamReader(File file) throws IOException {
+        this.file = file;
+        // Workbook globals are read up to the first sheet
+        EventWorkbookBuilder.SheetRecordCollectingListener collector = new EventWorkbookBuilder.SheetRecordCollectingListener(null);
+        process(new AbortableHSSFListener() {
+            @Override
+            public short abortableProcessRecord(Record record) {
+                if (record instanceof BOFRecord && ((BOFRecord) record).getType() != BOFRecord.TYPE_WORKBOOK) {
+                    return 1;
+                }
+                collector.processRecordInternally(record);
+                return 0;
+            }
+        });
+        this.sheets = collector.getBoundSheetRecords();
+        this.streamOrder = Arrays.asList(BoundSheetRecord.orderByBofPosition(Arrays.asList(sheets)));
+    }
+
+    @Override
+    public int getSheetCount() {
+        return sheets.length;
+    }
+
+    @Override
+    public SheetReader getSheet(int sheetNum) {
+        if (sheetNum < 0 || sheetNum >= sheets.length) {
+            throw new IllegalArgumentException("Sheet index (" + sheetNum + ") is out of range (0.." + (sheets.length - 1) + ")");
+        }
+        String sheetName = sheets[sheetNum].getSheetname();
+        int streamIndex = streamOrder.indexOf(sheets[sheetNum]);
+        return new SheetReader() {
+            @Override
+            public String getSheetName() {
+                return sheetName;
+            }
+
+            @Override
+            public void read(RowHandler handler) throws IOException {
+                process(new SheetListener(streamIndex, handler));
+            }
+        };
+    }
+
+    /**
+     * Nothing is held open between reads
+     */
+    @Override
+    public void close() {
+    }
+
+    private void process(AbortableHSSFListener listener) throws IOException {
+        try (POIFSFileSystem fs = new POIFSFileSystem(file, true)) {
+            HSSFRequest request = new HSSFRequest();
+            request.addListenerForAllRecords(listener);
+            new HSSFEventFactory().abortableProcessWorkbookEvents(request, fs);
+        } catch (HSSFUserException e) {
+            throw new IOException("Failed to read " + file.getName(), e);
+        }
+    }
+
+    /**
+     * Collects the cells of each row of one sheet, stops at the end of the sheet
+     */
+    private static class SheetListener extends AbortableHSSFListener {
+
+        /**
+         * Cached result types of formula records, the codes of the numeric, string and boolean cell types
+         */
+        private static final int NUMERIC_RESULT = 0;
+
+        private static final int STRING_RESULT = 1;
+
+        private static final int BOOLEAN_RESULT = 4;
+
+        private final int streamIndex;
+
+        private final SheetReader.RowHandler handler;
+
+        private final StreamedRow row = new StreamedRow();
+
+        private SSTRecord sst;
+
+        /**
+         * Index of the current substream among the sheet ones, -1 in the workbook globals
+         */
+        private int sheetIndex = -1;
+
+        /**
+         * Nesting depth of substreams, eg: charts embedded into a sheet
+         */
+        private int depth;
+
+        private int rowNum = -1;
+
+        /**
+         * Column of a formula cell whose string result follows in a string record, -1 if none
+         */
+        private int pendingColumn = -1;
+
+        private SheetListener(int streamIndex, SheetReader.RowHandler handler) {
+            this.streamIndex = streamIndex;
+            this.handler = handler;
+        }
+
+        @Override
+        public short abortableProcessRecord(Record record) {
+            switch (record.getSid()) {
+                case BOFRecord.sid:
+                    if (depth++ == 0 && ((BOFRecord) record).getType() != BOFRecord.TYPE_WORKBOOK) {
+                        sheetIndex++;
+                    }
+                    return 0;
+                case EOFRecord.sid:
+                    if (--depth == 0 && sheetIndex == streamIndex) {
+                        endRow();
+                        return 1;
+                    }
+                    return 0;
+                case SSTRecord.sid:
+                    sst = (SSTRecord) record;
+                    return 0;
+                default:
+            }
+            if (sheetIndex != streamIndex || depth != 1) {
+                return 0;
+            }
+            if (record instanceof CellValueRecordInterface) {
+                CellValueRecordInterface cell = (CellValueRecordInterface) record;
+                if (cell.getRow() != rowNum) {
+                    endRow();
+                    rowNum = cell.getRow();
+                }
+                pendingColumn = -1;
+                String value = cellValue(record);
+                if (value != null) {
+                    row.set(cell.getColumn(), value);
+                }
+            } else if (record instanceof StringRecord && pendingColumn >= 0) {
+                row.set(pendingColumn, ((StringRecord) record).getString());
+                pendingColumn = -1;
+            } else if (record instanceof DimensionsRecord) {
+                handler.onRowCount(((DimensionsRecord) record).getLastRow());
+            }
+            return 0;
+        }
+
+        /**
+         * @return value of the cell record, null if blank
+         */
+        private String cellValue(Record record) {
+            switch (record.getSid()) {
+                case NumberRecord.sid:
+                    return RowWrapper.formatNumber(((NumberRecord) record).getValue());
+                case LabelSSTRecord.sid:
+                    return sst.getString(((LabelSSTRecord) record).getSSTIndex()).getString();
+                case LabelRecord.sid:
+                    return ((LabelRecord) record).getValue();
+                case BoolErrRecord.sid:
+                    BoolErrRecord boolErr = (BoolErrRecord) record;
+                    return boolErr.isBoolean() ? String.valueOf(boolErr.getBooleanValue()) : "";
+                case FormulaRecord.sid:
+                    return formulaValue((FormulaRecord) record);
+                default:
+                    return null;
+            }
+        }
+
+        /**
+         * @return cached result of the formula, null if the string result follows
+         */
+        private String formulaValue(FormulaRecord formula) {
+            switch (formula.getCachedResultType()) {
+                case NUMERIC_RESULT:
+                    return RowWrapper.formatNumber(formula.getValue());
+                case BOOLEAN_RESULT:
+                    return String.valueOf(formula.getCachedBooleanValue());
+                case STRING_RESULT:
+                    pendingColumn = formula.getColumn();
+                    return null;
+                default:
+                    return "";
+            }
+        }
+
+        private void endRow() {
+            if (rowNum >= 0) {
+                handler.onRow(rowNum, row.take());
+                rowNum = -1;
+            }
+        }
+    }
+}
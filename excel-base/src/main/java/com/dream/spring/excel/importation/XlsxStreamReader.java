@@ -0,0 +1,228 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel.importation;
+
+import com.dream.spring.excel.importation.model.RowWrapper;
+import org.apache.poi.ooxml.util.SAXHelper;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.openxml4j.opc.PackagePart;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+
+import javax.xml.parsers.ParserConfigurationException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the sheets of a xlsx file with the SAX event model
+ *
+ * <p>Sheet xml is parsed row by row and no cell is kept after its row is handled, so memory depends on the rows being
+ * processed rather than on the file size. Only the shared strings table is loaded. Sheets can be read by different threads.
+ *
+ * <p>Cell values follow {@link RowWrapper}: numbers are formatted the same way, booleans are 'true' or 'false', formula cells
+ * give their cached result and error cells are empty.
+ *
+ * @author DreamJM
+ */
+public class XlsxStreamReader implements WorkbookReader {
+
+    private final OPCPackage pkg;
+
+    private final ReadOnlySharedStringsTable strings;
+
+    private final List<String> sheetNames = new ArrayList<>();
+
+    private final List<PackagePart> sheetParts = new ArrayList<>();
+
+    /**
+     * @param file xlsx file
+     * @throws IOException if the file isn't a valid xlsx file
+     */
+    public XlsxStreamReader(File file) throws IOException {
+        try {
+            pkg = OPCPackage.open(file, PackageAccess.READ);
+        } catch (OpenXML4JException e) {
+            throw new IOException("Invalid xlsx file " + file.getName(), e);
+        }
+        try {
+            XSSFReader reader = new XSSFReader(pkg);
+            strings = new ReadOnlySharedStringsTable(pkg);
+            XSSFReader.SheetIterator sheets = (XSSFReader.SheetIterator) reader.getSheetsData();
+            while (sheets.hasNext()) {
+                // Only the part is kept, its stream is opened again when read
+                sheets.next().close();
+                sheetNames.add(sheets.getSheetName());
+                sheetParts.add(sheets.getSheetPart());
+            }
+        } catch (OpenXML4JException | SAXException | IOException | RuntimeException e) {
+            pkg.revert();
+            throw e instanceof IOException ? (IOException) e : new IOException("Invalid xlsx file " + file.getName(), e);
+        }
+    }
+
+    @Override
+    public int getSheetCount() {
+        return sheetParts.size();
+    }
+
+    @Override
+    public SheetReader getSheet(int sheetNum) {
+        if (sheetNum < 0 || sheetNum >= sheetParts.size()) {
+            throw new IllegalArgumentException("Sheet index (" + sheetNum + ") is out of range (0.." + (sheetParts.size() - 1) + ")");
+        }
+        String sheetName = sheetNames.get(sheetNum);
+        PackagePart part = sheetParts.get(sheetNum);
+        return new SheetReader() {
+            @Override
+            public String getSheetName() {
+                return sheetName;
+            }
+
+            @Override
+            public void read(RowHandler handler) throws IOException {
+                try (InputStream in = part.getInputStream()) {
+                    XMLReader parser = SAXHelper.newXMLReader();
+                    parser.setContentHandler(new SheetHandler(handler));
+                    parser.parse(new InputSource(in));
+                } catch (SAXException | ParserConfigurationException e) {
+                    throw new IOException("Failed to parse sheet " + sheetName, e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Closes the file without saving anything
+     */
+    @Override
+    public void close() {
+        pkg.revert();
+    }
+
+    /**
+     * Collects the cells of each row of the sheet xml
+     */
+    private class SheetHandler extends DefaultHandler {
+
+        private final SheetReader.RowHandler handler;
+
+        private final StringBuilder text = new StringBuilder();
+
+        private final StreamedRow row = new StreamedRow();
+
+        private int rowNum = -1;
+
+        private int column;
+
+        private String type;
+
+        /**
+         * Element whose text is collected, null if none
+         */
+        private String textElement;
+
+        private SheetHandler(SheetReader.RowHandler handler) {
+            this.handler = handler;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "dimension":
+                    String ref = attributes.getValue("ref");
+                    if (ref != null) {
+                        handler.onRowCount(new CellReference(ref.substring(ref.indexOf(':') + 1)).getRow() + 1);
+                    }
+                    break;
+                case "row":
+                    String r = attributes.getValue("r");
+                    rowNum = r == null ? rowNum + 1 : Integer.parseInt(r) - 1;
+                    column = -1;
+                    break;
+                case "c":
+                    String cellRef = attributes.getValue("r");
+                    column = cellRef == null ? column + 1 : new CellReference(cellRef).getCol();
+                    type = attributes.getValue("t");
+                    text.setLength(0);
+                    break;
+                case "v":
+                    textElement = localName;
+                    break;
+                case "t":
+                    // Text of an inline string, including its rich text runs
+                    if ("inlineStr".equals(type)) {
+                        textElement = localName;
+                    }
+                    break;
+                default:
+            }
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (textElement != null) {
+                text.append(ch, start, length);
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            switch (localName) {
+                case "v":
+                case "t":
+                    textElement = null;
+                    break;
+                case "c":
+                    row.set(column, cellValue());
+                    break;
+                case "row":
+                    handler.onRow(rowNum, row.take());
+                    break;
+                default:
+            }
+        }
+
+        private String cellValue() {
+            String value = text.toString();
+            if (type == null || "n".equals(type)) {
+                return value.isEmpty() ? "" : RowWrapper.formatNumber(Double.parseDouble(value));
+            }
+            switch (type) {
+                case "s":
+                    return strings.getItemAt(Integer.parseInt(value)).getString();
+                case "b":
+                    return String.valueOf("1".equals(value));
+                case "e":
+                    return "";
+                default:
+                    // Inline and formula strings
+                    return value;
+            }
+        }
+    }
+}
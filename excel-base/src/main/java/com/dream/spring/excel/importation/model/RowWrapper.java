@@ -19,6 +19,7 @@ package com.dream.spring.excel.importation.model;
 import com.dream.spring.excel.StringUtils;
 import com.dream.spring.excel.importation.exception.ParseException;
 import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
 import org.apache.poi.ss.usermodel.Row;
 
 import java.text.DecimalFormat;
@@ -40,6 +41,11 @@ public class RowWrapper {
      */
     private Row row;
 
+    /**
+     * Cell values of a streamed row, indexed by column number
+     */
+    private String[] values;
+
     /**
      * Rules mapped by column number
      */
@@ -51,7 +57,16 @@ public class RowWrapper {
     }
 
     /**
-     * @return raw row poi object
+     * @param values  cell values of a streamed row indexed by column number, formatted as {@link #getCellValue(int)} does
+     * @param ruleMap rules mapped by column number
+     */
+    public RowWrapper(String[] values, Map<Integer, CheckRule> ruleMap) {
+        this.values = values;
+        this.ruleMap = ruleMap;
+    }
+
+    /**
+     * @return raw row poi object, null if the row is streamed
      */
     public Row getRow() {
         return row;
@@ -65,7 +80,12 @@ public class RowWrapper {
      * @throws ParseException Cell value parse exception
      */
     public String getCellValue(int column) throws ParseException {
-        String value = parseValue(row.getCell(column));
+        String value;
+        if (row != null) {
+            value = parseValue(row.getCell(column));
+        } else {
+            value = column < values.length && values[column] != null ? values[column] : "";
+        }
         if (ruleMap != null && ruleMap.containsKey(column)) {
             CheckRule rule = ruleMap.get(column);
             if (rule.isRequired() && StringUtils.isNullOrEmpty(value)) {
@@ -102,22 +122,30 @@ public class RowWrapper {
         if (cell == null) {
             return "";
         }
-        switch (cell.getCellType()) {
+        // Formula cells give their cached result, the streaming readers can't rebuild the text of shared formulas
+        CellType type = cell.getCellType() == CellType.FORMULA ? cell.getCachedFormulaResultType() : cell.getCellType();
+        switch (type) {
             case NUMERIC:
-                DecimalFormat df = new DecimalFormat("####################.###########");
-                String number = df.format(cell.getNumericCellValue());
-                if (number.endsWith(AFFIX_POINT_ZERO)) {
-                    number = number.replaceAll(AFFIX_POINT_ZERO, "");
-                }
-                return number;
+                return formatNumber(cell.getNumericCellValue());
             case STRING:
                 return cell.getStringCellValue();
-            case FORMULA:
-                return cell.getCellFormula();
             case BOOLEAN:
                 return String.valueOf(cell.getBooleanCellValue());
             default:
                 return "";
         }
     }
+
+    /**
+     * @param value numeric cell value
+     * @return cell value text, eg: '12' or '0.5'
+     */
+    public static String formatNumber(double value) {
+        DecimalFormat df = new DecimalFormat("####################.###########");
+        String number = df.format(value);
+        if (number.endsWith(AFFIX_POINT_ZERO)) {
+            number = number.replaceAll(AFFIX_POINT_ZERO, "");
+        }
+        return number;
+    }
 }
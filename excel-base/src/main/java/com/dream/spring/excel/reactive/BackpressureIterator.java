@@ -0,0 +1,167 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel.reactive;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.LongConsumer;
+
+/**
+ * Blocking iterator over the items of a reactive streams publisher (eg: a Flux of a reactive repository)
+ *
+ * <p>It is the subscriber side of the publisher: the first {@code prefetch} items are requested on subscription, and more are
+ * requested as the export consumes them, so at most {@code prefetch} items are buffered whatever the publisher holds. It
+ * does not depend on the reactive library, the callbacks are wired by method references, eg:
+ * <pre class="code">
+ * flux.subscribe(rows::onNext, rows::onError, rows::onComplete, s -&gt; rows.onSubscribe(s::request, s::cancel));
+ * </pre>
+ *
+ * @param <T> item type
+ * @author DreamJM
+ */
+public class BackpressureIterator<T> implements Iterable<T>, Iterator<T> {
+
+    /**
+     * Default count of items buffered ahead of the export
+     */
+    public static final int DEFAULT_PREFETCH = 256;
+
+    private static final Object COMPLETE = new Object();
+
+    /**
+     * Signals are bounded by the demand, so the queue is not
+     */
+    private final BlockingQueue<Object> signals = new LinkedBlockingQueue<>();
+
+    private final int prefetch;
+
+    /**
+     * Count of consumed items after which they are requested again
+     */
+    private final int replenish;
+
+    private volatile LongConsumer request;
+
+    private volatile Runnable cancel;
+
+    /**
+     * Signal taken by {@link #hasNext()} and not consumed yet
+     */
+    private Object next;
+
+    private int consumed;
+
+    public BackpressureIterator() {
+        this(DEFAULT_PREFETCH);
+    }
+
+    /**
+     * @param prefetch max count of items buffered ahead of the export
+     */
+    public BackpressureIterator(int prefetch) {
+        if (prefetch <= 0) {
+            throw new IllegalArgumentException("Prefetch must be positive");
+        }
+        this.prefetch = prefetch;
+        this.replenish = prefetch - (prefetch >> 2);
+    }
+
+    /**
+     * @param request requests more items of the subscription
+     * @param cancel  cancels the subscription
+     */
+    public void onSubscribe(LongConsumer request, Runnable cancel) {
+        this.request = request;
+        this.cancel = cancel;
+        request.accept(prefetch);
+    }
+
+    public void onNext(T item) {
+        signals.add(item);
+    }
+
+    public void onError(Throwable e) {
+        signals.add(new Failure(e));
+    }
+
+    public void onComplete() {
+        signals.add(COMPLETE);
+    }
+
+    /**
+     * Cancels the subscription, eg: if the export failed
+     */
+    public void cancel() {
+        Runnable cancel = this.cancel;
+        if (cancel != null) {
+            cancel.run();
+        }
+    }
+
+    @Override
+    public Iterator<T> iterator() {
+        return this;
+    }
+
+    /**
+     * Waits for the next signal of the publisher
+     *
+     * @throws IllegalStateException if the publisher failed or the thread is interrupted
+     */
+    @Override
+    public boolean hasNext() {
+        if (next == null) {
+            try {
+                next = signals.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancel();
+                throw new IllegalStateException("Interrupted while waiting for items", e);
+            }
+        }
+        if (next instanceof Failure) {
+            throw new IllegalStateException("Publisher of the export failed", ((Failure) next).error);
+        }
+        return next != COMPLETE;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        T item = (T) next;
+        next = null;
+        if (++consumed == replenish) {
+            consumed = 0;
+            request.accept(replenish);
+        }
+        return item;
+    }
+
+    private static class Failure {
+
+        private final Throwable error;
+
+        private Failure(Throwable error) {
+            this.error = error;
+        }
+    }
+}
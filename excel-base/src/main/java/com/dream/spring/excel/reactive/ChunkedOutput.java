@@ -0,0 +1,200 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel.reactive;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Output stream handing fixed-size chunks of an export over to a reactive response
+ *
+ * <p>The export thread writes into it while the response takes chunks on demand through {@link #take()}. Only a few chunks
+ * are queued, so the export blocks while the client is slow and resumes as chunks are sent: memory stays flat whatever the
+ * size of the file. Writes fail once the response is {@link #cancel() cancelled}.
+ *
+ * @author DreamJM
+ */
+public class ChunkedOutput extends OutputStream {
+
+    /**
+     * Default size of a chunk
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 64 * 1024;
+
+    /**
+     * Default count of chunks queued
+     */
+    public static final int DEFAULT_CAPACITY = 4;
+
+    private static final byte[] END = new byte[0];
+
+    /**
+     * Interval in milliseconds of checking cancellation while the queue is full
+     */
+    private static final long CANCEL_CHECK_INTERVAL = 100;
+
+    private final BlockingQueue<byte[]> chunks;
+
+    private final int chunkSize;
+
+    private byte[] buffer;
+
+    private int count;
+
+    private boolean closed;
+
+    private volatile boolean cancelled;
+
+    private volatile Throwable failure;
+
+    public ChunkedOutput() {
+        this(DEFAULT_CHUNK_SIZE, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param chunkSize size of a chunk
+     * @param capacity  max count of chunks queued
+     */
+    public ChunkedOutput(int chunkSize, int capacity) {
+        this.chunkSize = chunkSize;
+        this.chunks = new ArrayBlockingQueue<>(capacity + 1);
+        this.buffer = new byte[chunkSize];
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (count == chunkSize) {
+            putBuffer();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        while (len > 0) {
+            if (count == chunkSize) {
+                putBuffer();
+            }
+            int length = Math.min(len, chunkSize - count);
+            System.arraycopy(b, off, buffer, count, length);
+            count += length;
+            off += length;
+            len -= length;
+        }
+    }
+
+    /**
+     * Chunks are only handed over when full or closed
+     */
+    @Override
+    public void flush() throws IOException {
+        if (cancelled) {
+            throw new IOException("Response is cancelled");
+        }
+    }
+
+    /**
+     * Hands the last chunk over and ends the response
+     *
+     * @throws IOException if the response is cancelled
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        if (count > 0) {
+            put(Arrays.copyOf(buffer, count));
+        }
+        put(END);
+        closed = true;
+        buffer = null;
+    }
+
+    /**
+     * Ends the response with the failure of the export, called by the export thread
+     *
+     * @param e failure of the export
+     */
+    public void fail(Throwable e) {
+        failure = e;
+        closed = true;
+        buffer = null;
+        chunks.clear();
+        chunks.offer(END);
+    }
+
+    /**
+     * Waits for the next chunk
+     *
+     * @return next chunk, or null at the end
+     * @throws IOException if the export failed or the thread is interrupted
+     */
+    public byte[] take() throws IOException {
+        byte[] chunk;
+        try {
+            chunk = chunks.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for export output");
+        }
+        if (failure != null) {
+            throw new IOException("Export failed", failure);
+        }
+        if (chunk == END) {
+            // Later calls end as well
+            chunks.offer(END);
+            return null;
+        }
+        return chunk;
+    }
+
+    /**
+     * Cancels the response, eg: the client is gone. Following writes of the export fail.
+     */
+    public void cancel() {
+        cancelled = true;
+        chunks.clear();
+    }
+
+    private void putBuffer() throws IOException {
+        put(buffer);
+        buffer = new byte[chunkSize];
+        count = 0;
+    }
+
+    private void put(byte[] chunk) throws IOException {
+        try {
+            while (!chunks.offer(chunk, CANCEL_CHECK_INTERVAL, TimeUnit.MILLISECONDS)) {
+                if (cancelled) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while handing export output over");
+        }
+        if (cancelled) {
+            throw new IOException("Response is cancelled");
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel.sxssf;
+
+import com.dream.spring.excel.Column;
+import com.dream.spring.excel.SharedStrings;
+import com.dream.spring.excel.bean.ExcelExportConfig;
+import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
+import org.apache.poi.xssf.model.SharedStringsTable;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.streaming.SheetDataWriter;
+import org.apache.poi.xssf.usermodel.XSSFRichTextString;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * SXSSF workbook of {@link com.dream.spring.excel.ExportExcel}, with configurable temp storage of flushed rows and deflate
+ * level of the package
+ *
+ * <p>Content strings of columns that share strings are collected into a {@link SharedStrings bounded table}, which is copied
+ * into the shared strings part right before the workbook is written, so POI's unbounded shared strings table is not used.
+ *
+ * @author DreamJM
+ */
+public class ExportSXSSFWorkbook extends SXSSFWorkbook {
+
+    private ExcelExportConfig.TempStorage tempStorage;
+
+    private long offHeapThreshold;
+
+    private int level;
+
+    private SharedStrings sharedStrings;
+
+    /**
+     * String strategy of the sheets created next
+     */
+    private SharedStrings.Columns stringColumns;
+
+    private int firstRow;
+
+    /**
+     * @param rowAccessWindowSize count of rows kept in memory, -1 for unlimited
+     * @param tempStorage         storage of flushed rows
+     * @param offHeapThreshold    size in bytes above which off-heap rows are spilled into a temp file
+     * @param level               deflate level of the package
+     */
+    public ExportSXSSFWorkbook(int rowAccessWindowSize, ExcelExportConfig.TempStorage tempStorage, long offHeapThreshold,
+                               int level) {
+        super(null, rowAccessWindowSize);
+        this.tempStorage = tempStorage;
+        this.offHeapThreshold = offHeapThreshold;
+        this.level = level;
+    }
+
+    /**
+     * Set the shared strings table of the export, it applies to sheets created afterwards
+     *
+     * @param sharedStrings shared strings table
+     * @param columns       content columns
+     * @param columnOffset  index of the first content column
+     * @param firstRow      index of the first content row
+     */
+    public void setSharedStrings(SharedStrings sharedStrings, Column[] columns, int columnOffset, int firstRow) {
+        this.sharedStrings = sharedStrings;
+        this.stringColumns = sharedStrings.columns(columns, columnOffset);
+        this.firstRow = firstRow;
+    }
+
+    @Override
+    protected SheetDataWriter createSheetDataWriter() throws IOException {
+        ExportSheetDataWriter writer;
+        switch (tempStorage) {
+            case MAPPED:
+                writer = new MappedSheetDataWriter();
+                break;
+            case OFF_HEAP:
+                writer = new OffHeapSheetDataWriter(offHeapThreshold);
+                break;
+            case GZIP:
+                writer = new ExportSheetDataWriter.Gzip();
+                break;
+            default:
+                writer = new ExportSheetDataWriter();
+        }
+        writer.setStringColumns(stringColumns, firstRow);
+        return writer;
+    }
+
+    @Override
+    public void write(OutputStream stream) throws IOException {
+        if (sharedStrings != null) {
+            // Rows in the window refer to the table as well once flushed
+            flushSheets();
+            // Indexes of the bounded table are kept since the part is empty and the strings are distinct
+            SharedStringsTable sharedStringsTable = getXSSFWorkbook().getSharedStringSource();
+            for (String value : sharedStrings.getStrings()) {
+                sharedStringsTable.addSharedStringItem(new XSSFRichTextString(value));
+            }
+        }
+        super.write(stream);
+    }
+
+    @Override
+    protected ZipArchiveOutputStream createArchiveOutputStream(OutputStream out) {
+        // SXSSF zips the package itself, only the deflate level can be applied
+        ZipArchiveOutputStream zip = super.createArchiveOutputStream(out);
+        zip.setLevel(level);
+        return zip;
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel.sxssf;
+
+import com.dream.spring.excel.SharedStrings;
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.util.TempFile;
+import org.apache.poi.xssf.streaming.SheetDataWriter;
+
+import java.io.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * SXSSF sheet data writer of {@link ExportSXSSFWorkbook}
+ *
+ * <p>Strings of content cells are written as indexes into the {@link SharedStrings shared strings table} of the export if
+ * their column shares strings, as inline strings otherwise. Subclasses change where rows are stored by overriding
+ * {@link #openWriter(File)}.
+ *
+ * @author DreamJM
+ */
+public class ExportSheetDataWriter extends SheetDataWriter {
+
+    /**
+     * Assigned by {@link #createWriter(File)} which is called by the super constructor, so it must not have an initializer
+     */
+    private Writer writer;
+
+    /**
+     * String strategy of content columns, all inline if absent
+     */
+    private SharedStrings.Columns stringColumns;
+
+    /**
+     * Index of the first content row
+     */
+    private int firstRow;
+
+    /**
+     * Column references, eg: 'B'
+     */
+    private String[] columnRefs = new String[0];
+
+    public ExportSheetDataWriter() throws IOException {
+        super(null);
+    }
+
+    /**
+     * @param stringColumns string strategy of content columns
+     * @param firstRow      index of the first content row, strings of header rows are always inline
+     */
+    public void setStringColumns(SharedStrings.Columns stringColumns, int firstRow) {
+        this.stringColumns = stringColumns;
+        this.firstRow = firstRow;
+    }
+
+    @Override
+    public final Writer createWriter(File fd) throws IOException {
+        writer = openWriter(fd);
+        return writer;
+    }
+
+    /**
+     * Opens the writer of flushed rows
+     *
+     * @param fd temp file of the sheet
+     * @return writer of flushed rows
+     * @throws IOException IO Exception
+     */
+    protected Writer openWriter(File fd) throws IOException {
+        return super.createWriter(fd);
+    }
+
+    @Override
+    public void writeCell(int columnIndex, Cell cell) throws IOException {
+        if (stringColumns != null && cell.getCellType() == CellType.STRING && cell.getRowIndex() >= firstRow) {
+            int index = stringColumns.index(columnIndex, cell.getStringCellValue());
+            if (index >= 0) {
+                writer.write("<c r=\"");
+                writer.write(columnRef(columnIndex));
+                writer.write(Integer.toString(cell.getRowIndex() + 1));
+                if (cell.getCellStyle().getIndex() != 0) {
+                    writer.write("\" s=\"");
+                    writer.write(Integer.toString(cell.getCellStyle().getIndex() & 0xffff));
+                }
+                writer.write("\" t=\"s\"><v>");
+                writer.write(Integer.toString(index));
+                writer.write("</v></c>");
+                return;
+            }
+        }
+        super.writeCell(columnIndex, cell);
+    }
+
+    private String columnRef(int columnIndex) {
+        if (columnIndex >= columnRefs.length) {
+            String[] refs = new String[columnIndex + 1];
+            System.arraycopy(columnRefs, 0, refs, 0, columnRefs.length);
+            columnRefs = refs;
+        }
+        if (columnRefs[columnIndex] == null) {
+            columnRefs[columnIndex] = CellReference.convertNumToColString(columnIndex);
+        }
+        return columnRefs[columnIndex];
+    }
+
+    /**
+     * Gzip compressed temp file, as POI's GZIPSheetDataWriter
+     */
+    public static class Gzip extends ExportSheetDataWriter {
+
+        public Gzip() throws IOException {
+            super();
+        }
+
+        @Override
+        public File createTempFile() throws IOException {
+            return TempFile.createTempFile("poi-sxssf-sheet-xml", ".gz");
+        }
+
+        @Override
+        protected OutputStream decorateOutputStream(FileOutputStream fos) throws IOException {
+            return new GZIPOutputStream(fos);
+        }
+
+        @Override
+        protected InputStream decorateInputStream(FileInputStream fis) throws IOException {
+            return new GZIPInputStream(fis);
+        }
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dream.spring.excel.sxssf;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * SXSSF sheet data writer that spills rows into a memory-mapped temp file
+ *
+ * <p>Rows are copied into mapped regions of the file instead of being written by system calls, so the OS flushes dirty pages
+ * lazily and reads them back from the page cache. Regions are unmapped as soon as they are done with, so that the disk blocks
+ * of the deleted file are freed at once and the file can be truncated and deleted on Windows. If the JDK doesn't allow
+ * unmapping, regions are only released when the buffers are garbage collected.
+ *
+ * @author DreamJM
+ */
+public class MappedSheetDataWriter extends ExportSheetDataWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedSheetDataWriter.class);
+
+    /**
+     * Size of each mapped region
+     */
+    private static final int REGION_SIZE = 8 * 1024 * 1024;
+
+    /**
+     * Assigned by {@link #openWriter(File)} which is called by the super constructor, so it must not have an initializer
+     */
+    private MappedOutput output;
+
+    /**
+     * Unmaps a buffer: {@code Unsafe.invokeCleaner} since Java 9, the buffer's cleaner on Java 8, null if neither is
+     * accessible
+     */
+    private static final Unmapper UNMAPPER = unmapper();
+
+    public MappedSheetDataWriter() throws IOException {
+        super();
+    }
+
+    @Override
+    protected Writer openWriter(File fd) throws IOException {
+        output = new MappedOutput(fd);
+        return new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public InputStream getWorksheetXMLInputStream() throws IOException {
+        return new MappedInput(getTempFile(), output.length);
+    }
+
+    private static Unmapper unmapper() {
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            Method invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+            Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            Object unsafe = theUnsafe.get(null);
+            return buffer -> invokeCleaner.invoke(unsafe, buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Java 8
+        }
+        try {
+            Method cleaner = Class.forName("sun.nio.ch.DirectBuffer").getMethod("cleaner");
+            Method clean = Class.forName("sun.misc.Cleaner").getMethod("clean");
+            return buffer -> {
+                Object bufferCleaner = cleaner.invoke(buffer);
+                if (bufferCleaner != null) {
+                    clean.invoke(bufferCleaner);
+                }
+            };
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.warn("Mapped regions can't be unmapped on this JDK, they are released by garbage collection", e);
+            return null;
+        }
+    }
+
+    /**
+     * Unmaps the region, it must not be accessed afterwards
+     *
+     * @param region mapped region, may be null
+     */
+    private static void unmap(MappedByteBuffer region) {
+        if (region == null || UNMAPPER == null) {
+            return;
+        }
+        try {
+            UNMAPPER.unmap(region);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            logger.warn("Failed to unmap region, it is released by garbage collection", e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Unmapper {
+
+        void unmap(ByteBuffer buffer) throws ReflectiveOperationException;
+    }
+
+    /**
+     * Writes into mapped regions, the file is truncated to the written length on close
+     */
+    private static class MappedOutput extends OutputStream {
+
+        private RandomAccessFile file;
+
+        private MappedByteBuffer region;
+
+        /**
+         * File position of the current region
+         */
+        private long regionStart;
+
+        private long length;
+
+        private MappedOutput(File fd) throws IOException {
+            this.file = new RandomAccessFile(fd, "rw");
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (region == null || !region.hasRemaining()) {
+                    if (region != null) {
+                        regionStart += REGION_SIZE;
+                        unmap(region);
+                        region = null;
+                    }
+                    region = file.getChannel().map(FileChannel.MapMode.READ_WRITE, regionStart, REGION_SIZE);
+                }
+                int count = Math.min(len, region.remaining());
+                region.put(b, off, count);
+                off += count;
+                len -= count;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (file == null) {
+                return;
+            }
+            length = region == null ? 0 : regionStart + region.position();
+            // Unmapped first, a mapped file can't be truncated on Windows
+            unmap(region);
+            region = null;
+            try {
+                file.setLength(length);
+            } finally {
+                file.close();
+                file = null;
+            }
+        }
+    }
+
+    /**
+     * Reads the file through read-only mapped regions
+     */
+    private static class MappedInput extends InputStream {
+
+        private RandomAccessFile file;
+
+        private long length;
+
+        private MappedByteBuffer region;
+
+        private long regionStart;
+
+        private MappedInput(File fd, long length) throws IOException {
+            this.file = new RandomAccessFile(fd, "r");
+            this.length = length;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (region == null || !region.hasRemaining()) {
+                if (region != null) {
+                    regionStart += region.capacity();
+                    unmap(region);
+                    region = null;
+                }
+                if (regionStart >= length) {
+                    return -1;
+                }
+                region = file.getChannel().map(FileChannel.MapMode.READ_ONLY, regionStart, Math.min(REGION_SIZE, length - regionStart));
+            }
+            int count = Math.min(len, region.remaining());
+            region.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public void close() throws IOException {
+            unmap(region);
+            region = null;
+            file.close();
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.dream.spring.excel.sxssf;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SXSSF sheet data writer that keeps rows in direct buffers outside of the heap, and spills them into its temp file once
+ * the size exceeds the threshold
+ *
+ * <p>The temp file stays empty unless the threshold is exceeded. Buffers are released when the sheet data has been read.
+ *
+ * @author DreamJM
+ */
+public class OffHeapSheetDataWriter extends ExportSheetDataWriter {
+
+    /**
+     * Size of each direct buffer
+     */
+    private static final int CHUNK_SIZE = 1024 * 1024;
+
+    /**
+     * Assigned by {@link #openWriter(File)} which is called by the super constructor, so it must not have an initializer
+     */
+    private OffHeapOutput output;
+
+    /**
+     * @param threshold size in bytes above which rows are spilled into the temp file
+     * @throws IOException IO Exception
+     */
+    public OffHeapSheetDataWriter(long threshold) throws IOException {
+        super();
+        output.threshold = threshold;
+    }
+
+    @Override
+    protected Writer openWriter(File fd) throws IOException {
+        output = new OffHeapOutput(fd);
+        return new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public InputStream getWorksheetXMLInputStream() throws IOException {
+        if (output.spill != null) {
+            return new BufferedInputStream(new FileInputStream(getTempFile()));
+        }
+        return new ChunkInput(output);
+    }
+
+    /**
+     * @return whether rows have been spilled into the temp file
+     */
+    public boolean isSpilled() {
+        return output.spill != null;
+    }
+
+    private static class OffHeapOutput extends OutputStream {
+
+        private File file;
+
+        private long threshold;
+
+        private List<ByteBuffer> chunks = new ArrayList<>();
+
+        private long size;
+
+        private OutputStream spill;
+
+        private OffHeapOutput(File file) {
+            this.file = file;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            write(new byte[]{(byte) b}, 0, 1);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (spill == null && size + len > threshold) {
+                spill = new BufferedOutputStream(new FileOutputStream(file));
+                for (ByteBuffer chunk : chunks) {
+                    chunk.flip();
+                    byte[] buffer = new byte[chunk.remaining()];
+                    chunk.get(buffer);
+                    spill.write(buffer);
+                }
+                chunks.clear();
+            }
+            size += len;
+            if (spill != null) {
+                spill.write(b, off, len);
+                return;
+            }
+            while (len > 0) {
+                ByteBuffer chunk = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+                if (chunk == null || !chunk.hasRemaining()) {
+                    chunk = ByteBuffer.allocateDirect(CHUNK_SIZE);
+                    chunks.add(chunk);
+                }
+                int count = Math.min(len, chunk.remaining());
+                chunk.put(b, off, count);
+                off += count;
+                len -= count;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (spill != null) {
+                spill.close();
+            }
+        }
+    }
+
+    /**
+     * Reads the direct buffers and releases them on close
+     */
+    private static class ChunkInput extends InputStream {
+
+        private OffHeapOutput output;
+
+        private int index;
+
+        private ByteBuffer current;
+
+        private ChunkInput(OffHeapOutput output) {
+            this.output = output;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] b = new byte[1];
+            return read(b, 0, 1) < 0 ? -1 : b[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            while (current == null || !current.hasRemaining()) {
+                if (index >= output.chunks.size()) {
+                    return -1;
+                }
+                current = (ByteBuffer) output.chunks.get(index++).duplicate().flip();
+            }
+            int count = Math.min(len, current.remaining());
+            current.get(b, off, count);
+            return count;
+        }
+
+        @Override
+        public void close() {
+            current = null;
+            output.chunks.clear();
+        }
+    }
+}
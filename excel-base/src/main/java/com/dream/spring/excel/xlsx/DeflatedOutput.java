@@ -0,0 +1,325 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel.xlsx;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Output stream that raw deflates data into the target stream and records what a zip entry needs: CRC-32, uncompressed
+ * size and compressed size
+ *
+ * <p>{@link #finish()} completes the deflate stream without closing the target stream.
+ *
+ * <p>With an executor, data is split into blocks that are deflated concurrently and stitched in order, the way pigz does:
+ * each block is primed with the last 32KB of the previous block as dictionary and ends with a sync flush, so the
+ * concatenation is one valid deflate stream. Data that fits in one block is deflated by the calling thread.
+ *
+ * @author DreamJM
+ */
+public class DeflatedOutput extends OutputStream {
+
+    /**
+     * Default count of threads deflating blocks
+     */
+    public static final int DEFAULT_THREADS = Runtime.getRuntime().availableProcessors();
+
+    private static final int BLOCK_SIZE = 128 * 1024;
+
+    private static final int DICTIONARY_SIZE = 32 * 1024;
+
+    private static volatile ExecutorService defaultExecutor;
+
+    private static volatile boolean defaultExecutorSet;
+
+    private OutputStream target;
+
+    private int level;
+
+    private Deflater deflater;
+
+    /**
+     * Executor deflating blocks, null to deflate serially
+     */
+    private ExecutorService executor;
+
+    /**
+     * Block being filled
+     */
+    private byte[] block;
+
+    private int blockLength;
+
+    /**
+     * Tail of the previous block
+     */
+    private byte[] dictionary;
+
+    /**
+     * Blocks being deflated in order, bounded to limit memory
+     */
+    private Deque<Future<byte[]>> pending = new ArrayDeque<>();
+
+    private int maxPending;
+
+    private CRC32 crc = new CRC32();
+
+    private byte[] buffer = new byte[8192];
+
+    private long size;
+
+    private long compressedSize;
+
+    private boolean finished;
+
+    public DeflatedOutput(OutputStream target, int level) {
+        this(target, level, null);
+    }
+
+    /**
+     * @param target   compressed data output
+     * @param level    deflate level
+     * @param executor executor deflating blocks concurrently, null to deflate serially
+     */
+    public DeflatedOutput(OutputStream target, int level, ExecutorService executor) {
+        this.target = target;
+        this.level = level;
+        this.executor = executor;
+        if (executor == null) {
+            this.deflater = new Deflater(level, true);
+        } else {
+            this.block = new byte[BLOCK_SIZE];
+            this.maxPending = Runtime.getRuntime().availableProcessors() * 2;
+        }
+    }
+
+    /**
+     * Default executor for parallel deflating shared by all exports, created with {@link #DEFAULT_THREADS} on first use
+     * unless {@link #setDefaultExecutor(ExecutorService) set}
+     *
+     * @return deflate executor, null to deflate serially
+     */
+    public static ExecutorService defaultExecutor() {
+        if (!defaultExecutorSet) {
+            synchronized (DeflatedOutput.class) {
+                if (!defaultExecutorSet) {
+                    defaultExecutor = newExecutor(DEFAULT_THREADS);
+                    defaultExecutorSet = true;
+                }
+            }
+        }
+        return defaultExecutor;
+    }
+
+    /**
+     * @param executor default deflate executor, null to deflate serially
+     */
+    public static void setDefaultExecutor(ExecutorService executor) {
+        synchronized (DeflatedOutput.class) {
+            defaultExecutor = executor;
+            defaultExecutorSet = true;
+        }
+    }
+
+    /**
+     * Creates a pool of daemon threads deflating blocks. Its queue is unbounded, but each stream has a bounded count of
+     * blocks pending.
+     *
+     * @param threads count of threads, 1 or less to deflate serially
+     * @return deflate executor, null if serial
+     */
+    public static ExecutorService newExecutor(int threads) {
+        if (threads <= 1) {
+            return null;
+        }
+        AtomicInteger count = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread thread = new Thread(r, "dream-excel-deflate-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        write(new byte[]{(byte) b}, 0, 1);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return;
+        }
+        crc.update(b, off, len);
+        size += len;
+        if (executor != null) {
+            while (len > 0) {
+                int length = Math.min(len, BLOCK_SIZE - blockLength);
+                System.arraycopy(b, off, block, blockLength, length);
+                blockLength += length;
+                off += length;
+                len -= length;
+                if (blockLength == BLOCK_SIZE) {
+                    submitBlock();
+                }
+            }
+            return;
+        }
+        deflater.setInput(b, off, len);
+        while (!deflater.needsInput()) {
+            deflate();
+        }
+    }
+
+    /**
+     * Completes the deflate stream, the target stream is left open
+     *
+     * @throws IOException IO Exception
+     */
+    public void finish() throws IOException {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        if (executor != null) {
+            if (pending.isEmpty()) {
+                writeBlock(deflateBlock(block, blockLength, dictionary, true, level));
+            } else {
+                submit(block, blockLength, true);
+                while (!pending.isEmpty()) {
+                    writeBlock(await(pending.poll()));
+                }
+            }
+            return;
+        }
+        deflater.finish();
+        while (!deflater.finished()) {
+            deflate();
+        }
+        deflater.end();
+    }
+
+    @Override
+    public void close() throws IOException {
+        finish();
+    }
+
+    /**
+     * @return CRC-32 of the uncompressed data
+     */
+    public long getCrc() {
+        return crc.getValue();
+    }
+
+    /**
+     * @return uncompressed size
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return compressed size
+     */
+    public long getCompressedSize() {
+        return compressedSize;
+    }
+
+    private void submitBlock() throws IOException {
+        byte[] input = block;
+        submit(input, blockLength, false);
+        dictionary = Arrays.copyOfRange(input, BLOCK_SIZE - DICTIONARY_SIZE, BLOCK_SIZE);
+        block = new byte[BLOCK_SIZE];
+        blockLength = 0;
+    }
+
+    private void submit(byte[] input, int length, boolean last) throws IOException {
+        if (pending.size() >= maxPending) {
+            writeBlock(await(pending.poll()));
+        }
+        byte[] blockDictionary = dictionary;
+        pending.add(executor.submit(() -> deflateBlock(input, length, blockDictionary, last, level)));
+    }
+
+    private void writeBlock(byte[] compressed) throws IOException {
+        target.write(compressed);
+        compressedSize += compressed.length;
+    }
+
+    private static byte[] await(Future<byte[]> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while deflating");
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to deflate", e.getCause());
+        }
+    }
+
+    /**
+     * Deflates one block, blocks other than the last one end with a sync flush so that they can be concatenated
+     */
+    private static byte[] deflateBlock(byte[] input, int length, byte[] dictionary, boolean last, int level) {
+        Deflater blockDeflater = new Deflater(level, true);
+        try {
+            if (dictionary != null) {
+                blockDeflater.setDictionary(dictionary);
+            }
+            blockDeflater.setInput(input, 0, length);
+            byte[] output = new byte[length / 2 + 64];
+            int outputLength = 0;
+            if (last) {
+                blockDeflater.finish();
+            }
+            while (true) {
+                if (outputLength == output.length) {
+                    output = Arrays.copyOf(output, output.length * 2);
+                }
+                int space = output.length - outputLength;
+                int count = last ? blockDeflater.deflate(output, outputLength, space)
+                        : blockDeflater.deflate(output, outputLength, space, Deflater.SYNC_FLUSH);
+                outputLength += count;
+                if (last ? blockDeflater.finished() : count < space) {
+                    break;
+                }
+            }
+            return Arrays.copyOf(output, outputLength);
+        } finally {
+            blockDeflater.end();
+        }
+    }
+
+    private void deflate() throws IOException {
+        int length = deflater.deflate(buffer, 0, buffer.length);
+        if (length > 0) {
+            target.write(buffer, 0, length);
+            compressedSize += length;
+        }
+    }
+}
@@ -0,0 +1,448 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel.xlsx;
+
+import com.dream.spring.excel.*;
+import org.apache.poi.ss.SpreadsheetVersion;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.ss.util.CellReference;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+import static com.dream.spring.excel.xlsx.XmlOutput.bytes;
+
+/**
+ * Writes the SpreadsheetML xml of one sheet
+ *
+ * <p>Header and category rows are laid out the same way as {@link ExportExcel}, content rows are pulled from a {@link RowSource}
+ * and written straight to the output, text as inline strings (or indexes into {@link #setSharedStrings(SharedStrings) shared
+ * strings}) and typed values as numbers or booleans.
+ *
+ * <p>With a {@link #setMaxRows(int) row limit}, {@link #write(RowSource, OutputStream)} stops once a sheet is full and can be
+ * called again for a continuation sheet while {@link #hasMoreRows()}. The row that overflowed is kept and written first into
+ * the next sheet, so rows are still pulled in a single pass.
+ *
+ * <p>With {@link SheetStyle#getAutoWidthRows() auto width}, the leading rows are pulled ahead to estimate column widths that
+ * go into {@code <cols>}, then written as usual.
+ *
+ * @author DreamJM
+ */
+public class SheetXmlWriter {
+
+    private static final byte[] WORKSHEET_START = bytes("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n" +
+            "<worksheet xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" " +
+            "xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">");
+
+    private static final byte[] SHEET_VIEW = bytes("<sheetViews><sheetView workbookViewId=\"0\"/></sheetViews>");
+
+    private static final byte[] SHEET_DATA_START = bytes("<sheetData>");
+
+    private static final byte[] SHEET_DATA_END = bytes("</sheetData>");
+
+    private static final byte[] WORKSHEET_END = bytes("</worksheet>");
+
+    private static final byte[] ROW_START = bytes("<row r=\"");
+
+    private static final byte[] ROW_START_END = bytes("\">");
+
+    private static final byte[] ROW_END = bytes("</row>");
+
+    private static final byte[] STYLE_ATTR = bytes("\" s=\"");
+
+    private static final byte[] EMPTY_CELL_END = bytes("\"/>");
+
+    private static final byte[] INLINE_STRING_START = bytes("\" t=\"inlineStr\"><is><t>");
+
+    private static final byte[] INLINE_STRING_PRESERVE_START = bytes("\" t=\"inlineStr\"><is><t xml:space=\"preserve\">");
+
+    private static final byte[] INLINE_STRING_END = bytes("</t></is></c>");
+
+    private static final byte[] NUMBER_START = bytes("\"><v>");
+
+    private static final byte[] BOOLEAN_START = bytes("\" t=\"b\"><v>");
+
+    private static final byte[] SHARED_STRING_START = bytes("\" t=\"s\"><v>");
+
+    private static final byte[] VALUE_END = bytes("</v></c>");
+
+    private SheetStyle sheetStyle;
+
+    private Column[] columns;
+
+    private HeaderCategory[] categories;
+
+    private StyleRegistry styleRegistry;
+
+    /**
+     * Default content style
+     */
+    private CustomStyle defaultStyle;
+
+    /**
+     * Cell tag and column reference prefix of each column, eg: '&lt;c r="B'
+     */
+    private byte[][] cellRefs;
+
+    /**
+     * Content row tag suffix including row height
+     */
+    private byte[] rowStartEnd;
+
+    /**
+     * Max count of content rows of a sheet
+     */
+    private int maxRows;
+
+    /**
+     * Content row buffer, kept between sheets
+     */
+    private RowBuffer row;
+
+    /**
+     * If true, the row buffer holds a row that did not fit into the last sheet
+     */
+    private boolean pending;
+
+    /**
+     * String strategy of content columns, all inline if absent
+     */
+    private SharedStrings.Columns stringColumns;
+
+    /**
+     * Column widths estimated from the leading rows of the first sheet, absent unless the sheet style has auto width
+     */
+    private ColumnWidths widths;
+
+    /**
+     * Rows sampled for column widths and not written yet
+     */
+    private Deque<RowBuffer> sampledRows;
+
+    public SheetXmlWriter(SheetStyle sheetStyle, Column[] columns, HeaderCategory[] categories, StyleRegistry styleRegistry) {
+        this.sheetStyle = sheetStyle;
+        this.columns = columns;
+        this.categories = categories == null ? new HeaderCategory[0] : categories;
+        this.styleRegistry = styleRegistry;
+        this.styleRegistry.setDateFormat(sheetStyle.getDateFormat());
+        this.defaultStyle = sheetStyle.getDefaultStyle() == null ? CustomStyle.builder().build() : sheetStyle.getDefaultStyle();
+        int columnCount = columns.length;
+        for (HeaderCategory category : this.categories) {
+            columnCount = Math.max(columnCount, category.getEnd() + 1);
+        }
+        this.cellRefs = new byte[columnCount][];
+        for (int i = 0; i < columnCount; i++) {
+            cellRefs[i] = bytes("<c r=\"" + CellReference.convertNumToColString(i + sheetStyle.getXOffset()));
+        }
+        this.rowStartEnd = sheetStyle.getContentRowHeight() > 0 ? rowHeight(sheetStyle.getContentRowHeight()) : ROW_START_END;
+        this.row = new RowBuffer(columns.length);
+        setMaxRows(0);
+    }
+
+    /**
+     * Set the max count of content rows of a sheet, it never exceeds what fits into a xlsx sheet under the header
+     *
+     * @param maxRows max count of content rows, 0 for the xlsx limit
+     */
+    public void setMaxRows(int maxRows) {
+        int limit = SpreadsheetVersion.EXCEL2007.getMaxRows() - contentOffset();
+        this.maxRows = maxRows > 0 ? Math.min(maxRows, limit) : limit;
+    }
+
+    /**
+     * Set the shared strings table of the workbook, content strings of columns that share strings are written as indexes
+     *
+     * @param sharedStrings shared strings table, written by {@link WorkbookParts}
+     */
+    public void setSharedStrings(SharedStrings sharedStrings) {
+        this.stringColumns = sharedStrings == null ? null : sharedStrings.columns(columns, 0);
+    }
+
+    /**
+     * @return {@code true} if the last sheet is full and rows remain for a continuation sheet
+     */
+    public boolean hasMoreRows() {
+        return pending;
+    }
+
+    /**
+     * Writes the sheet xml, stops after the max count of content rows
+     *
+     * @param rowSource content rows
+     * @param out       sheet part output, it will not be closed
+     * @return count of content rows
+     * @throws IOException IO Exception
+     */
+    public int write(RowSource rowSource, OutputStream out) throws IOException {
+        if (widths == null && sheetStyle.getAutoWidthRows() > 0) {
+            sampleWidths(rowSource);
+        }
+        XmlOutput xml = new XmlOutput(out);
+        xml.write(WORKSHEET_START);
+        int contentOffset = contentOffset();
+        writeSheetFormat(xml, contentOffset);
+        xml.write(SHEET_DATA_START);
+        List<CellRangeAddress> mergedRegions = writeHeader(xml);
+        int count = writeContent(xml, rowSource, contentOffset);
+        xml.write(SHEET_DATA_END);
+        if (!mergedRegions.isEmpty()) {
+            xml.write(bytes("<mergeCells count=\"" + mergedRegions.size() + "\">"));
+            for (CellRangeAddress region : mergedRegions) {
+                xml.write(bytes("<mergeCell ref=\"" + region.formatAsString() + "\"/>"));
+            }
+            xml.write(bytes("</mergeCells>"));
+        }
+        xml.write(WORKSHEET_END);
+        xml.flushBuffer();
+        return count;
+    }
+
+    private void writeSheetFormat(XmlOutput xml, int contentOffset) throws IOException {
+        if (sheetStyle.isFreezeHeader()) {
+            xml.write(bytes("<sheetViews><sheetView workbookViewId=\"0\"><pane ySplit=\"" + contentOffset + "\" topLeftCell=\"" +
+                    new CellReference(contentOffset, 0).formatAsString() + "\" activePane=\"bottomLeft\" state=\"frozen\"/>" +
+                    "<selection pane=\"bottomLeft\"/></sheetView></sheetViews>"));
+        } else {
+            xml.write(SHEET_VIEW);
+        }
+        if (sheetStyle.getDefaultWidth() > 0) {
+            xml.write(bytes("<sheetFormatPr baseColWidth=\"" + sheetStyle.getDefaultWidth() + "\" defaultRowHeight=\"15\"/>"));
+        }
+        StringBuilder cols = new StringBuilder();
+        for (int i = 0; i < columns.length; i++) {
+            if (columns[i].getWidth() > 0 || widths != null) {
+                int col = i + sheetStyle.getXOffset() + 1;
+                cols.append("<col min=\"").append(col).append("\" max=\"").append(col).append("\" width=\"")
+                        .append(widths != null ? widths.getWidth(i) : columns[i].getWidth()).append("\" customWidth=\"1\"/>");
+            }
+        }
+        if (cols.length() > 0) {
+            xml.write(bytes("<cols>" + cols + "</cols>"));
+        }
+    }
+
+    /**
+     * Pulls the sampled rows ahead of the sheet, they are written first by {@link #nextRow(RowSource)}
+     */
+    private void sampleWidths(RowSource rowSource) {
+        widths = new ColumnWidths(columns, sheetStyle.getDateFormat(), sheetStyle.getAutoWidthRows());
+        sampledRows = new ArrayDeque<>();
+        while (widths.isSampling()) {
+            RowBuffer sampledRow = new RowBuffer(columns.length);
+            if (!rowSource.fill(sampledRow)) {
+                break;
+            }
+            widths.sample(sampledRow);
+            sampledRows.add(sampledRow);
+        }
+    }
+
+    /**
+     * Fills the row buffer with the next sampled row, or else the next row of the source
+     */
+    private boolean nextRow(RowSource rowSource) {
+        RowBuffer sampledRow = sampledRows == null ? null : sampledRows.poll();
+        if (sampledRow != null) {
+            row.copyFrom(sampledRow);
+            return true;
+        }
+        return rowSource.fill(row);
+    }
+
+    /**
+     * Writes category and header rows
+     *
+     * @return merged regions of category and header cells
+     */
+    private List<CellRangeAddress> writeHeader(XmlOutput xml) throws IOException {
+        List<CellRangeAddress> mergedRegions = new ArrayList<>();
+        int headerStyle = styleRegistry.getHeaderStyle(
+                sheetStyle.getDefaultHeaderStyle() == null ? CustomStyle.builder().build() : sheetStyle.getDefaultHeaderStyle()).getIndex();
+        String[] headerValues = new String[cellRefs.length];
+        int[] headerStyles = new int[cellRefs.length];
+        for (int i = 0; i < columns.length; i++) {
+            Column header = columns[i];
+            headerValues[i] = header.getHeader();
+            headerStyles[i] = header.getHeaderStyle() != null ? styleRegistry.getHeaderStyle(header.getHeaderStyle()).getIndex() : headerStyle;
+        }
+        int headerRowNum = sheetStyle.getYOffset() + 1;
+        if (categories.length > 0) {
+            int categoryStyle = styleRegistry.getHeaderStyle(
+                    sheetStyle.getDefaultCategoryStyle() == null ? CustomStyle.builder().build() : sheetStyle.getDefaultCategoryStyle())
+                    .getIndex();
+            String[] categoryValues = new String[cellRefs.length];
+            int[] categoryStyles = new int[cellRefs.length];
+            boolean[] categorized = new boolean[cellRefs.length];
+            for (HeaderCategory category : categories) {
+                int style = category.getStyle() != null ? styleRegistry.getHeaderStyle(category.getStyle()).getIndex() : categoryStyle;
+                for (int i = category.getStart(); i <= category.getEnd(); i++) {
+                    categorized[i] = true;
+                    categoryValues[i] = i == category.getStart() ? category.getName() : "";
+                    categoryStyles[i] = style;
+                }
+                if (category.getStart() != category.getEnd()) {
+                    mergedRegions.add(new CellRangeAddress(sheetStyle.getYOffset(), sheetStyle.getYOffset(),
+                            category.getStart() + sheetStyle.getXOffset(), category.getEnd() + sheetStyle.getXOffset()));
+                }
+            }
+            for (int i = 0; i < columns.length; i++) {
+                if (!categorized[i]) {
+                    // Headers without category span both rows
+                    categoryValues[i] = headerValues[i];
+                    categoryStyles[i] = headerStyles[i];
+                    mergedRegions.add(new CellRangeAddress(sheetStyle.getYOffset(), sheetStyle.getYOffset() + 1,
+                            i + sheetStyle.getXOffset(), i + sheetStyle.getXOffset()));
+                }
+            }
+            writeFixedRow(xml, headerRowNum, sheetStyle.getCategoryHeight(), categoryValues, categoryStyles);
+            headerRowNum++;
+        }
+        writeFixedRow(xml, headerRowNum, sheetStyle.getHeaderHeight(), headerValues, headerStyles);
+        return mergedRegions;
+    }
+
+    private void writeFixedRow(XmlOutput xml, int rowNum, int height, String[] values, int[] styles) throws IOException {
+        xml.write(ROW_START);
+        xml.writeInt(rowNum);
+        xml.write(height > 0 ? rowHeight(height) : ROW_START_END);
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] != null) {
+                writeCell(xml, i, rowNum, styles[i], values[i]);
+            }
+        }
+        xml.write(ROW_END);
+    }
+
+    private int writeContent(XmlOutput xml, RowSource rowSource, int contentOffset) throws IOException {
+        int defaultIndex = styleRegistry.getContentStyle(defaultStyle).getIndex();
+        int[] columnStyles = new int[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            columnStyles[i] = columns[i].getStyle() != null ? styleRegistry.getContentStyle(columns[i].getStyle()).getIndex() : defaultIndex;
+        }
+        int rowNum = contentOffset;
+        while (pending || nextRow(rowSource)) {
+            if (rowNum - contentOffset == maxRows) {
+                // Sheet is full, the row is written into the next sheet
+                pending = true;
+                break;
+            }
+            pending = false;
+            rowNum++;
+            xml.write(ROW_START);
+            xml.writeInt(rowNum);
+            xml.write(rowStartEnd);
+            for (int j = 0; j < columns.length; j++) {
+                CustomStyle cellStyle = row.getStyle(j);
+                CellData.ValueType valueType = row.getValueType(j);
+                if (valueType != CellData.ValueType.STRING) {
+                    writeTypedCell(xml, j, rowNum, valueType, cellStyle);
+                    continue;
+                }
+                int style = cellStyle != null ? styleRegistry.getContentStyle(cellStyle).getIndex() : columnStyles[j];
+                String value = row.getValue(j);
+                int index = stringColumns == null ? -1 : stringColumns.index(j, value);
+                if (index >= 0) {
+                    writeSharedCell(xml, j, rowNum, style, index);
+                } else {
+                    writeCell(xml, j, rowNum, style, value);
+                }
+            }
+            xml.write(ROW_END);
+            row.reset();
+        }
+        return rowNum - contentOffset;
+    }
+
+    private int contentOffset() {
+        return 1 + sheetStyle.getYOffset() + (categories.length > 0 ? 1 : 0);
+    }
+
+    private void writeCell(XmlOutput xml, int column, int rowNum, int style, String value) throws IOException {
+        xml.write(cellRefs[column]);
+        xml.writeInt(rowNum);
+        xml.write(STYLE_ATTR);
+        xml.writeInt(style);
+        if (value == null || value.isEmpty()) {
+            xml.write(EMPTY_CELL_END);
+            return;
+        }
+        xml.write(Character.isWhitespace(value.charAt(0)) || Character.isWhitespace(value.charAt(value.length() - 1)) ?
+                INLINE_STRING_PRESERVE_START : INLINE_STRING_START);
+        xml.writeEscaped(value);
+        xml.write(INLINE_STRING_END);
+    }
+
+    private void writeSharedCell(XmlOutput xml, int column, int rowNum, int style, int index) throws IOException {
+        xml.write(cellRefs[column]);
+        xml.writeInt(rowNum);
+        xml.write(STYLE_ATTR);
+        xml.writeInt(style);
+        xml.write(SHARED_STRING_START);
+        xml.writeInt(index);
+        xml.write(VALUE_END);
+    }
+
+    /**
+     * Writes a number, boolean or date cell, whose style has the data format of its value type
+     */
+    private void writeTypedCell(XmlOutput xml, int column, int rowNum, CellData.ValueType valueType, CustomStyle cellStyle)
+            throws IOException {
+        if (cellStyle == null) {
+            cellStyle = columns[column].getStyle() != null ? columns[column].getStyle() : defaultStyle;
+        }
+        xml.write(cellRefs[column]);
+        xml.writeInt(rowNum);
+        xml.write(STYLE_ATTR);
+        xml.writeInt(styleRegistry.getContentStyle(cellStyle, valueType).getIndex());
+        switch (valueType) {
+            case LONG:
+                xml.write(NUMBER_START);
+                xml.writeInt(row.getLong(column));
+                break;
+            case BOOLEAN:
+                xml.write(BOOLEAN_START);
+                xml.writeInt(row.getLong(column) != 0 ? 1 : 0);
+                break;
+            default:
+                double value = valueType == CellData.ValueType.DATE ? CellData.toExcelDate(row.getLong(column)) : row.getDouble(column);
+                if (Double.isNaN(value) || Double.isInfinite(value)) {
+                    // Not representable in a cell
+                    xml.write(EMPTY_CELL_END);
+                    return;
+                }
+                xml.write(NUMBER_START);
+                writeDouble(xml, value);
+        }
+        xml.write(VALUE_END);
+    }
+
+    private static void writeDouble(XmlOutput xml, double value) throws IOException {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            xml.writeInt((long) value);
+        } else {
+            xml.write(bytes(Double.toString(value)));
+        }
+    }
+
+    private static byte[] rowHeight(int height) {
+        return bytes("\" ht=\"" + height + "\" customHeight=\"1\">");
+    }
+}
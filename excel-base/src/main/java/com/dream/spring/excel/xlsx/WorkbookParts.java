@@ -0,0 +1,172 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel.xlsx;
+
+import com.dream.spring.excel.SharedStrings;
+import org.apache.poi.xssf.model.StylesTable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+
+import static com.dream.spring.excel.xlsx.XmlOutput.bytes;
+
+/**
+ * Writes the package parts of a xlsx workbook except for the sheets
+ *
+ * @author DreamJM
+ */
+public class WorkbookParts {
+
+    private static final String XML_DECLARATION = "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n";
+
+    private static final String RELATIONSHIPS_START =
+            XML_DECLARATION + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">";
+
+    private static final String RELATIONSHIP_TYPE = "http://schemas.openxmlformats.org/officeDocument/2006/relationships/";
+
+    private WorkbookParts() {
+
+    }
+
+    /**
+     * Zip entry name of the sheet part
+     *
+     * @param index sheet index (start from 0)
+     * @return zip entry name
+     */
+    public static String sheetEntryName(int index) {
+        return "xl/worksheets/sheet" + (index + 1) + ".xml";
+    }
+
+    /**
+     * Sheet name suffixed with ' (n)', the name is truncated so that the result fits into 31 characters
+     *
+     * @param name sheet name
+     * @param n    number of the suffix
+     * @return numbered sheet name
+     */
+    public static String numberedSheetName(String name, int n) {
+        String suffix = " (" + n + ")";
+        return name.substring(0, Math.min(name.length(), 31 - suffix.length())) + suffix;
+    }
+
+    /**
+     * Writes content types, relationships, workbook and styles parts
+     *
+     * @param zip         xlsx zip output
+     * @param sheetNames  sheet names in order
+     * @param stylesTable styles of the workbook
+     * @throws IOException IO Exception
+     */
+    public static void write(ZipWriter zip, List<String> sheetNames, StylesTable stylesTable) throws IOException {
+        write(zip, sheetNames, stylesTable, null);
+    }
+
+    /**
+     * Writes content types, relationships, workbook, styles and shared strings parts
+     *
+     * @param zip           xlsx zip output
+     * @param sheetNames    sheet names in order
+     * @param stylesTable   styles of the workbook
+     * @param sharedStrings shared strings referred by the sheets, may be null
+     * @throws IOException IO Exception
+     */
+    public static void write(ZipWriter zip, List<String> sheetNames, StylesTable stylesTable, SharedStrings sharedStrings)
+            throws IOException {
+        boolean shared = sharedStrings != null && sharedStrings.getUniqueCount() > 0;
+        if (shared) {
+            writeSharedStrings(zip, sharedStrings);
+        }
+        OutputStream styles = zip.putNextEntry("xl/styles.xml");
+        stylesTable.writeTo(styles);
+        styles.close();
+
+        StringBuilder contentTypes = new StringBuilder(XML_DECLARATION)
+                .append("<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">")
+                .append("<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>")
+                .append("<Default Extension=\"xml\" ContentType=\"application/xml\"/>")
+                .append("<Override PartName=\"/xl/workbook.xml\" ")
+                .append("ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>")
+                .append("<Override PartName=\"/xl/styles.xml\" ")
+                .append("ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>");
+        if (shared) {
+            contentTypes.append("<Override PartName=\"/xl/sharedStrings.xml\" ")
+                    .append("ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sharedStrings+xml\"/>");
+        }
+        for (int i = 0; i < sheetNames.size(); i++) {
+            contentTypes.append("<Override PartName=\"/").append(sheetEntryName(i))
+                    .append("\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>");
+        }
+        contentTypes.append("</Types>");
+        writeEntry(zip, "[Content_Types].xml", contentTypes.toString());
+
+        writeEntry(zip, "_rels/.rels", RELATIONSHIPS_START + "<Relationship Id=\"rId1\" Type=\"" + RELATIONSHIP_TYPE +
+                "officeDocument\" Target=\"xl/workbook.xml\"/></Relationships>");
+
+        StringBuilder workbook = new StringBuilder(XML_DECLARATION)
+                .append("<workbook xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" ")
+                .append("xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\"><sheets>");
+        StringBuilder workbookRels = new StringBuilder(RELATIONSHIPS_START);
+        for (int i = 0; i < sheetNames.size(); i++) {
+            workbook.append("<sheet name=\"").append(escape(sheetNames.get(i))).append("\" sheetId=\"").append(i + 1)
+                    .append("\" r:id=\"rId").append(i + 1).append("\"/>");
+            workbookRels.append("<Relationship Id=\"rId").append(i + 1).append("\" Type=\"").append(RELATIONSHIP_TYPE)
+                    .append("worksheet\" Target=\"worksheets/sheet").append(i + 1).append(".xml\"/>");
+        }
+        workbook.append("</sheets></workbook>");
+        workbookRels.append("<Relationship Id=\"rId").append(sheetNames.size() + 1).append("\" Type=\"").append(RELATIONSHIP_TYPE)
+                .append("styles\" Target=\"styles.xml\"/>");
+        if (shared) {
+            workbookRels.append("<Relationship Id=\"rId").append(sheetNames.size() + 2).append("\" Type=\"").append(RELATIONSHIP_TYPE)
+                    .append("sharedStrings\" Target=\"sharedStrings.xml\"/>");
+        }
+        workbookRels.append("</Relationships>");
+        writeEntry(zip, "xl/workbook.xml", workbook.toString());
+        writeEntry(zip, "xl/_rels/workbook.xml.rels", workbookRels.toString());
+    }
+
+    private static void writeSharedStrings(ZipWriter zip, SharedStrings sharedStrings) throws IOException {
+        List<String> strings = sharedStrings.getStrings();
+        OutputStream entry = zip.putNextEntry("xl/sharedStrings.xml");
+        XmlOutput xml = new XmlOutput(entry);
+        xml.write(bytes(XML_DECLARATION + "<sst xmlns=\"http://schemas.openxmlformats.org/spreadsheetml/2006/main\" count=\"" +
+                sharedStrings.getCount() + "\" uniqueCount=\"" + strings.size() + "\">"));
+        byte[] itemStart = bytes("<si><t>");
+        byte[] preservedItemStart = bytes("<si><t xml:space=\"preserve\">");
+        byte[] itemEnd = bytes("</t></si>");
+        for (String value : strings) {
+            xml.write(Character.isWhitespace(value.charAt(0)) || Character.isWhitespace(value.charAt(value.length() - 1)) ?
+                    preservedItemStart : itemStart);
+            xml.writeEscaped(value);
+            xml.write(itemEnd);
+        }
+        xml.write(bytes("</sst>"));
+        xml.flushBuffer();
+        entry.close();
+    }
+
+    private static void writeEntry(ZipWriter zip, String name, String content) throws IOException {
+        OutputStream entry = zip.putNextEntry(name);
+        entry.write(bytes(content));
+        entry.close();
+    }
+
+    private static String escape(String value) {
+        return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel.xlsx;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Buffered UTF-8 xml output
+ *
+ * <p>Markup is written from pre-encoded byte templates and text is escaped and encoded straight into the buffer, so no
+ * intermediate String or byte array is created per cell.
+ *
+ * @author DreamJM
+ */
+public class XmlOutput {
+
+    private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Max encoded length of one char: "&amp;quot;" or a 4 bytes UTF-8 sequence
+     */
+    private static final int MAX_CHAR_LENGTH = 6;
+
+    private static final byte[] AMP = bytes("&amp;");
+
+    private static final byte[] LT = bytes("&lt;");
+
+    private static final byte[] GT = bytes("&gt;");
+
+    private static final byte[] QUOT = bytes("&quot;");
+
+    private OutputStream out;
+
+    private byte[] buffer;
+
+    private int count;
+
+    public XmlOutput(OutputStream out) {
+        this(out, DEFAULT_BUFFER_SIZE);
+    }
+
+    public XmlOutput(OutputStream out, int bufferSize) {
+        this.out = out;
+        this.buffer = new byte[bufferSize];
+    }
+
+    /**
+     * Encodes the template text
+     *
+     * @param text template text
+     * @return UTF-8 bytes
+     */
+    public static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes pre-encoded bytes
+     *
+     * @param bytes encoded bytes
+     * @throws IOException IO Exception
+     */
+    public void write(byte[] bytes) throws IOException {
+        if (bytes.length > buffer.length - count) {
+            flushBuffer();
+            if (bytes.length > buffer.length) {
+                out.write(bytes);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, count, bytes.length);
+        count += bytes.length;
+    }
+
+    /**
+     * Writes the decimal digits of the number
+     *
+     * @param value number to write
+     * @throws IOException IO Exception
+     */
+    public void writeInt(long value) throws IOException {
+        ensure(20);
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) {
+                write(bytes(String.valueOf(value)));
+                return;
+            }
+            buffer[count++] = '-';
+            value = -value;
+        }
+        int length = 1;
+        for (long v = value; v >= 10; v /= 10) {
+            length++;
+        }
+        int pos = count + length;
+        do {
+            buffer[--pos] = (byte) ('0' + value % 10);
+            value /= 10;
+        } while (value > 0);
+        count += length;
+    }
+
+    /**
+     * Writes the text with xml escaping, characters that are invalid in xml are replaced with '?'
+     *
+     * @param text text to write
+     * @throws IOException IO Exception
+     */
+    public void writeEscaped(String text) throws IOException {
+        for (int i = 0, length = text.length(); i < length; i++) {
+            if (buffer.length - count < MAX_CHAR_LENGTH) {
+                flushBuffer();
+            }
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                switch (c) {
+                    case '&':
+                        writeRaw(AMP);
+                        break;
+                    case '<':
+                        writeRaw(LT);
+                        break;
+                    case '>':
+                        writeRaw(GT);
+                        break;
+                    case '"':
+                        writeRaw(QUOT);
+                        break;
+                    default:
+                        buffer[count++] = (byte) (c >= 0x20 || c == '\t' || c == '\n' || c == '\r' ? c : '?');
+                }
+            } else if (c < 0x800) {
+                buffer[count++] = (byte) (0xc0 | (c >> 6));
+                buffer[count++] = (byte) (0x80 | (c & 0x3f));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                buffer[count++] = (byte) (0xf0 | (codePoint >> 18));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+                buffer[count++] = (byte) (0x80 | (codePoint & 0x3f));
+            } else if (Character.isSurrogate(c) || c == 0xfffe || c == 0xffff) {
+                buffer[count++] = '?';
+            } else {
+                buffer[count++] = (byte) (0xe0 | (c >> 12));
+                buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+                buffer[count++] = (byte) (0x80 | (c & 0x3f));
+            }
+        }
+    }
+
+    /**
+     * Writes buffered bytes to the underlying stream, the underlying stream itself is not flushed
+     *
+     * @throws IOException IO Exception
+     */
+    public void flushBuffer() throws IOException {
+        if (count > 0) {
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+
+    private void ensure(int length) throws IOException {
+        if (buffer.length - count < length) {
+            flushBuffer();
+        }
+    }
+
+    private void writeRaw(byte[] bytes) {
+        System.arraycopy(bytes, 0, buffer, count, bytes.length);
+        count += bytes.length;
+    }
+}
@@ -0,0 +1,373 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel.xlsx;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.Deflater;
+
+/**
+ * Minimal zip writer for xlsx packages
+ *
+ * <p>Unlike {@link java.util.zip.ZipOutputStream}, entries may also be added from data that has already been deflated
+ * elsewhere (eg: a sheet generated concurrently into a temp file), so it is copied as is instead of being compressed again.
+ * Zip64 records are written when sizes or offsets exceed the classic zip limits.
+ *
+ * @author DreamJM
+ */
+public class ZipWriter {
+
+    private static final long LOCAL_HEADER_SIG = 0x04034b50L;
+
+    private static final long DATA_DESCRIPTOR_SIG = 0x08074b50L;
+
+    private static final long CENTRAL_HEADER_SIG = 0x02014b50L;
+
+    private static final long ZIP64_END_SIG = 0x06064b50L;
+
+    private static final long ZIP64_LOCATOR_SIG = 0x07064b50L;
+
+    private static final long END_SIG = 0x06054b50L;
+
+    private static final long ZIP64_MAGIC = 0xFFFFFFFFL;
+
+    /**
+     * General purpose flag: sizes are in the data descriptor
+     */
+    private static final int FLAG_DATA_DESCRIPTOR = 1 << 3;
+
+    /**
+     * General purpose flag: entry name is UTF-8
+     */
+    private static final int FLAG_UTF8 = 1 << 11;
+
+    private static final int METHOD_DEFLATED = 8;
+
+    private static final int VERSION = 20;
+
+    private static final int VERSION_ZIP64 = 45;
+
+    private OutputStream out;
+
+    /**
+     * Count of bytes written, which is the offset of the next record
+     */
+    private long written;
+
+    private List<Entry> entries = new ArrayList<>();
+
+    private int level;
+
+    /**
+     * Executor deflating blocks of large entries concurrently, null to deflate serially
+     */
+    private ExecutorService executor;
+
+    private long dosTime;
+
+    /**
+     * Entry being written by {@link #putNextEntry(String)}
+     */
+    private EntryOutput current;
+
+    public ZipWriter(OutputStream out) {
+        this(out, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    public ZipWriter(OutputStream out, int level) {
+        this.out = out;
+        this.level = level;
+        this.dosTime = dosTime(System.currentTimeMillis());
+    }
+
+    /**
+     * Set the executor that deflates blocks of large entries concurrently
+     *
+     * @param executor deflate executor, null to deflate serially
+     * @see DeflatedOutput
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * Starts a new entry whose data is deflated while being written. Close the returned stream to complete the entry.
+     *
+     * @param name entry name
+     * @return entry data output
+     * @throws IOException IO Exception
+     */
+    public OutputStream putNextEntry(String name) throws IOException {
+        closeCurrent();
+        Entry entry = new Entry(name, written);
+        writeLocalHeader(entry, FLAG_DATA_DESCRIPTOR);
+        current = new EntryOutput(entry);
+        return current;
+    }
+
+    /**
+     * Adds an entry whose data has been raw deflated already
+     *
+     * @param name           entry name
+     * @param crc            CRC-32 of the uncompressed data
+     * @param size           uncompressed size
+     * @param compressedSize compressed size
+     * @param compressed     raw deflated data
+     * @throws IOException IO Exception
+     */
+    public void putDeflatedEntry(String name, long crc, long size, long compressedSize, InputStream compressed) throws IOException {
+        closeCurrent();
+        Entry entry = new Entry(name, written);
+        entry.crc = crc;
+        entry.size = size;
+        entry.compressedSize = compressedSize;
+        writeLocalHeader(entry, 0);
+        byte[] buffer = new byte[8192];
+        long remaining = compressedSize;
+        while (remaining > 0) {
+            int length = compressed.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+            if (length < 0) {
+                throw new IOException("Unexpected end of deflated data of " + name);
+            }
+            write(buffer, 0, length);
+            remaining -= length;
+        }
+        entries.add(entry);
+    }
+
+    /**
+     * Writes the central directory, the output stream is left open
+     *
+     * @throws IOException IO Exception
+     */
+    public void finish() throws IOException {
+        closeCurrent();
+        long centralOffset = written;
+        for (Entry entry : entries) {
+            writeCentralHeader(entry);
+        }
+        long centralSize = written - centralOffset;
+        if (centralOffset >= ZIP64_MAGIC || centralSize >= ZIP64_MAGIC || entries.size() >= 0xFFFF) {
+            long zip64EndOffset = written;
+            writeInt(ZIP64_END_SIG);
+            writeLong(44);
+            writeShort(VERSION_ZIP64);
+            writeShort(VERSION_ZIP64);
+            writeInt(0);
+            writeInt(0);
+            writeLong(entries.size());
+            writeLong(entries.size());
+            writeLong(centralSize);
+            writeLong(centralOffset);
+            writeInt(ZIP64_LOCATOR_SIG);
+            writeInt(0);
+            writeLong(zip64EndOffset);
+            writeInt(1);
+        }
+        writeInt(END_SIG);
+        writeShort(0);
+        writeShort(0);
+        writeShort(Math.min(entries.size(), 0xFFFF));
+        writeShort(Math.min(entries.size(), 0xFFFF));
+        writeInt(Math.min(centralSize, ZIP64_MAGIC));
+        writeInt(Math.min(centralOffset, ZIP64_MAGIC));
+        writeShort(0);
+        out.flush();
+    }
+
+    private void closeCurrent() throws IOException {
+        if (current != null) {
+            current.close();
+        }
+    }
+
+    private void writeLocalHeader(Entry entry, int flag) throws IOException {
+        boolean zip64 = entry.size >= ZIP64_MAGIC || entry.compressedSize >= ZIP64_MAGIC;
+        writeInt(LOCAL_HEADER_SIG);
+        writeShort(zip64 ? VERSION_ZIP64 : VERSION);
+        writeShort(flag | FLAG_UTF8);
+        writeShort(METHOD_DEFLATED);
+        writeInt(dosTime);
+        writeInt(entry.crc);
+        writeInt(zip64 ? ZIP64_MAGIC : entry.compressedSize);
+        writeInt(zip64 ? ZIP64_MAGIC : entry.size);
+        writeShort(entry.name.length);
+        writeShort(zip64 ? 20 : 0);
+        write(entry.name, 0, entry.name.length);
+        if (zip64) {
+            writeShort(0x0001);
+            writeShort(16);
+            writeLong(entry.size);
+            writeLong(entry.compressedSize);
+        }
+    }
+
+    private void writeCentralHeader(Entry entry) throws IOException {
+        boolean sizeZip64 = entry.size >= ZIP64_MAGIC || entry.compressedSize >= ZIP64_MAGIC;
+        boolean offsetZip64 = entry.offset >= ZIP64_MAGIC;
+        int extraLength = (sizeZip64 ? 16 : 0) + (offsetZip64 ? 8 : 0);
+        int version = extraLength > 0 ? VERSION_ZIP64 : VERSION;
+        writeInt(CENTRAL_HEADER_SIG);
+        writeShort(version);
+        writeShort(version);
+        writeShort(entry.flag | FLAG_UTF8);
+        writeShort(METHOD_DEFLATED);
+        writeInt(dosTime);
+        writeInt(entry.crc);
+        writeInt(sizeZip64 ? ZIP64_MAGIC : entry.compressedSize);
+        writeInt(sizeZip64 ? ZIP64_MAGIC : entry.size);
+        writeShort(entry.name.length);
+        writeShort(extraLength > 0 ? extraLength + 4 : 0);
+        writeShort(0);
+        writeShort(0);
+        writeShort(0);
+        writeInt(0);
+        writeInt(offsetZip64 ? ZIP64_MAGIC : entry.offset);
+        write(entry.name, 0, entry.name.length);
+        if (extraLength > 0) {
+            writeShort(0x0001);
+            writeShort(extraLength);
+            if (sizeZip64) {
+                writeLong(entry.size);
+                writeLong(entry.compressedSize);
+            }
+            if (offsetZip64) {
+                writeLong(entry.offset);
+            }
+        }
+    }
+
+    private void write(byte[] b, int off, int len) throws IOException {
+        out.write(b, off, len);
+        written += len;
+    }
+
+    private void writeShort(int value) throws IOException {
+        out.write(value & 0xff);
+        out.write((value >>> 8) & 0xff);
+        written += 2;
+    }
+
+    private void writeInt(long value) throws IOException {
+        writeShort((int) (value & 0xffff));
+        writeShort((int) ((value >>> 16) & 0xffff));
+    }
+
+    private void writeLong(long value) throws IOException {
+        writeInt(value & ZIP64_MAGIC);
+        writeInt(value >>> 32);
+    }
+
+    private static long dosTime(long time) {
+        Calendar calendar = Calendar.getInstance();
+        calendar.setTimeInMillis(time);
+        int year = calendar.get(Calendar.YEAR);
+        if (year < 1980) {
+            return (1 << 21) | (1 << 16);
+        }
+        return (year - 1980) << 25 | (calendar.get(Calendar.MONTH) + 1) << 21 | calendar.get(Calendar.DAY_OF_MONTH) << 16 |
+                calendar.get(Calendar.HOUR_OF_DAY) << 11 | calendar.get(Calendar.MINUTE) << 5 | calendar.get(Calendar.SECOND) >> 1;
+    }
+
+    private static class Entry {
+
+        private byte[] name;
+
+        private long offset;
+
+        private int flag;
+
+        private long crc;
+
+        private long size;
+
+        private long compressedSize;
+
+        private Entry(String name, long offset) {
+            this.name = name.getBytes(StandardCharsets.UTF_8);
+            this.offset = offset;
+        }
+    }
+
+    /**
+     * Deflates entry data and writes the data descriptor on close
+     */
+    private class EntryOutput extends OutputStream {
+
+        private Entry entry;
+
+        private DeflatedOutput deflated;
+
+        private boolean closed;
+
+        private EntryOutput(Entry entry) {
+            this.entry = entry;
+            this.deflated = new DeflatedOutput(new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    written++;
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    ZipWriter.this.write(b, off, len);
+                }
+            }, level, executor);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            deflated.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            deflated.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            current = null;
+            deflated.finish();
+            entry.flag = FLAG_DATA_DESCRIPTOR;
+            entry.crc = deflated.getCrc();
+            entry.size = deflated.getSize();
+            entry.compressedSize = deflated.getCompressedSize();
+            writeInt(DATA_DESCRIPTOR_SIG);
+            writeInt(entry.crc);
+            if (entry.size >= ZIP64_MAGIC || entry.compressedSize >= ZIP64_MAGIC) {
+                writeLong(entry.compressedSize);
+                writeLong(entry.size);
+            } else {
+                writeInt(entry.compressedSize);
+                writeInt(entry.size);
+            }
+            entries.add(entry);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel;
+
+import com.dream.spring.excel.bean.ExcelExportConfig;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Admission of exports by {@link ExportGovernor}
+ *
+ * @author DreamJM
+ */
+public class ExportGovernorTest {
+
+    private static final long QUEUE_TIMEOUT = 200;
+
+    private static final long LARGE = 1000;
+
+    private static final long SMALL = 10;
+
+    @Test
+    public void fastLane() throws IOException {
+        ExportGovernor governor = governor(1, QUEUE_TIMEOUT);
+        try (ExportGovernor.Permit large = governor.acquire("/large", 0, LARGE)) {
+            assertFalse(large.isFastLane());
+            // The node limit is reached, small exports still run on the fast lane
+            try (ExportGovernor.Permit small = governor.acquire("/small", 0, SMALL)) {
+                assertTrue(small.isFastLane());
+                assertEquals(1, governor.getFastLaneRunning());
+                assertRejected(governor, "/small", SMALL);
+            }
+            // Unknown sizes are large
+            assertRejected(governor, "/unknown", -1);
+            try (ExportGovernor.Permit small = governor.acquire("/small", 0, SMALL)) {
+                assertTrue(small.isFastLane());
+            }
+        }
+        assertEquals(0, governor.getRunning());
+        assertEquals(3, governor.getAdmittedCount());
+        assertEquals(2, governor.getRejectedCount());
+    }
+
+    @Test
+    public void queueTimeout() throws IOException {
+        ExportGovernor governor = governor(0, QUEUE_TIMEOUT);
+        ExportGovernor.Permit running = governor.acquire("/large", 0, LARGE);
+        long start = System.nanoTime();
+        ExportRejectedException e = assertRejected(governor, "/large", LARGE);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= QUEUE_TIMEOUT);
+        assertEquals(1, e.getRunning());
+        assertEquals(0, e.getQueued());
+        assertEquals(0, governor.getQueued());
+        running.close();
+        try (ExportGovernor.Permit permit = governor.acquire("/large", 0, LARGE)) {
+            assertFalse(permit.isFastLane());
+        }
+    }
+
+    @Test
+    public void smallAdmittedFirst() throws Exception {
+        ExportGovernor governor = governor(0, 30000);
+        List<Long> admitted = new CopyOnWriteArrayList<>();
+        ExportGovernor.Permit running = governor.acquire("/large", 0, LARGE);
+        Thread large = queue(governor, LARGE, admitted);
+        waitQueued(governor, 1);
+        Thread small = queue(governor, SMALL, admitted);
+        waitQueued(governor, 2);
+        running.close();
+        large.join();
+        small.join();
+        assertEquals(2, admitted.size());
+        assertEquals(SMALL, (long) admitted.get(0));
+    }
+
+    /**
+     * @return governor running one export at once, exports up to {@link #SMALL} rows are small
+     */
+    private static ExportGovernor governor(int fastLanePermits, long queueTimeout) {
+        ExcelExportConfig config = new ExcelExportConfig();
+        config.setMaxConcurrentExports(1);
+        config.setFastLanePermits(fastLanePermits);
+        config.setFastLaneRows(SMALL);
+        config.setExportQueueTimeout(queueTimeout);
+        return new ExportGovernor(config);
+    }
+
+    private static ExportRejectedException assertRejected(ExportGovernor governor, String endpoint, long estimatedRows)
+            throws IOException {
+        try {
+            governor.acquire(endpoint, 0, estimatedRows).close();
+        } catch (ExportRejectedException e) {
+            return e;
+        }
+        throw new AssertionError("Export of " + endpoint + " admitted");
+    }
+
+    /**
+     * Starts a thread acquiring a permit, which records the estimated rows once admitted and releases it at once
+     */
+    private static Thread queue(ExportGovernor governor, long estimatedRows, List<Long> admitted) {
+        Thread thread = new Thread(() -> {
+            try {
+                ExportGovernor.Permit permit = governor.acquire("/export", 0, estimatedRows);
+                admitted.add(estimatedRows);
+                permit.close();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+        });
+        thread.start();
+        return thread;
+    }
+
+    private static void waitQueued(ExportGovernor governor, int queued) throws InterruptedException {
+        while (governor.getQueued() < queued) {
+            Thread.sleep(5);
+        }
+    }
+}
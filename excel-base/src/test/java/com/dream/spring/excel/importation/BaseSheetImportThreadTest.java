@@ -0,0 +1,186 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel.importation;
+
+import com.dream.spring.excel.importation.exception.ParseException;
+import com.dream.spring.excel.importation.model.RowWrapper;
+import com.dream.spring.excel.importation.model.SheetStatus;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+/**
+ * Counting of bundles written by {@link BaseSheetImportThread}, in row order or as they are written
+ *
+ * @author DreamJM
+ */
+public class BaseSheetImportThreadTest {
+
+    /**
+     * Content rows of the sheet, one bundle each
+     */
+    private static final int ROWS = 3;
+
+    @Test
+    public void orderedCommit() throws InterruptedException {
+        // The second bundle is written first, but counted after the first one
+        assertEquals(Arrays.asList("0:1", "1:2", "2:3"), importSheet(true));
+    }
+
+    @Test
+    public void unorderedCommit() throws InterruptedException {
+        // The second bundle is counted as soon as it is written
+        assertEquals(Arrays.asList("1:1", "0:2", "2:3"), importSheet(false));
+    }
+
+    @Test
+    public void failureReported() throws InterruptedException {
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        TestSheetThread sheetThread = new TestSheetThread(new HeldExecutor(), false, (handler) -> {
+            throw new IOException("Broken sheet");
+        });
+        sheetThread.setListener(new BaseSheetImportThread.SheetCompleteListener() {
+            @Override
+            public void onSheetComplete(Integer sheetNum) {
+                fail("Failed sheet completed");
+            }
+
+            @Override
+            public void onSheetFailed(Integer sheetNum, Throwable e) {
+                failure.set(e);
+            }
+        });
+        sheetThread.start();
+        sheetThread.join();
+        assertTrue(failure.get() instanceof UncheckedIOException);
+        assertEquals("Broken sheet", failure.get().getCause().getMessage());
+    }
+
+    /**
+     * Imports the sheet while the first bundle is held until all bundles are submitted
+     *
+     * @return 'bundle:written count' in the order the bundles are counted
+     */
+    private static List<String> importSheet(boolean orderedCommit) throws InterruptedException {
+        HeldExecutor executor = new HeldExecutor();
+        TestSheetThread sheetThread = new TestSheetThread(executor, orderedCommit, handler -> {
+            handler.onRowCount(ROWS + 1);
+            for (int i = 0; i <= ROWS; i++) {
+                handler.onRow(i, new String[]{String.valueOf(i - 1)});
+            }
+        });
+        sheetThread.start();
+        executor.submitted.await();
+        executor.held.run();
+        sheetThread.join();
+        SheetStatus status = sheetThread.getStatus();
+        assertEquals(SheetStatus.Status.COMPLETE, status.getStatus());
+        assertEquals(ROWS, status.getWriteCnt());
+        return sheetThread.completed;
+    }
+
+    /**
+     * Holds the first bundle and writes the others at once on the sheet thread
+     */
+    private static class HeldExecutor extends ImportExecutor {
+
+        private final CountDownLatch submitted = new CountDownLatch(ROWS);
+
+        private FutureTask<?> held;
+
+        private HeldExecutor() {
+            super(1, 0, null, false);
+        }
+
+        @Override
+        public <V> Future<V> submit(Callable<V> task) {
+            FutureTask<V> future = new FutureTask<>(task);
+            if (held == null) {
+                held = future;
+            } else {
+                future.run();
+            }
+            submitted.countDown();
+            return future;
+        }
+    }
+
+    /**
+     * Rows of the sheet given to the row handler
+     */
+    @FunctionalInterface
+    private interface Rows {
+
+        void read(SheetReader.RowHandler handler) throws IOException;
+    }
+
+    private static class TestSheetThread extends BaseSheetImportThread<String> {
+
+        /**
+         * 'bundle:written count' in the order the bundles are counted
+         */
+        private final List<String> completed = new ArrayList<>();
+
+        private TestSheetThread(ImportExecutor executor, boolean orderedCommit, Rows rows) {
+            super(0, new BaseExcelParser<String>() {
+                @Override
+                public String parse(RowWrapper row) throws ParseException {
+                    return row.getCellValue(0);
+                }
+            });
+            setBundleSize(1);
+            setWriteConcurrency(ROWS);
+            setOrderedCommit(orderedCommit);
+            setWriteExecutor(executor);
+            setSheetReader(new SheetReader() {
+                @Override
+                public String getSheetName() {
+                    return "sheet";
+                }
+
+                @Override
+                public void read(RowHandler handler) throws IOException {
+                    rows.read(handler);
+                }
+            });
+        }
+
+        @Override
+        protected WriteTask<String> createWriteTask(List<String> data) {
+            return new WriteTask<String>(data) {
+                @Override
+                protected Integer write(List<String> data) {
+                    return data.size();
+                }
+
+                @Override
+                protected void onComplete(int count) {
+                    completed.add(data.get(0) + ":" + getStatus().getWriteCnt());
+                }
+            };
+        }
+    }
+}
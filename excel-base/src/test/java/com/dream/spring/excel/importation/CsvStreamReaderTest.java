@@ -0,0 +1,192 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel.importation;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Records and charsets of csv files read by {@link CsvStreamReader}
+ *
+ * @author DreamJM
+ */
+public class CsvStreamReaderTest {
+
+    /**
+     * Size of the tokenizer buffer, in chars
+     */
+    private static final int BUFFER = 64 * 1024;
+
+    private static final Charset GBK = Charset.forName("GBK");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void doubledQuotes() throws IOException {
+        List<Record> records = read(write("quotes.csv", "a,\"say \"\"hi\"\"\",\"\"\"\"\n\"\",b\n", StandardCharsets.UTF_8));
+        assertEquals(2, records.size());
+        assertRecord(records.get(0), 0, "a", "say \"hi\"", "\"");
+        assertRecord(records.get(1), 1, "", "b");
+    }
+
+    @Test
+    public void quotedLineBreaks() throws IOException {
+        List<Record> records = read(write("lines.csv", "\"multi\r\nline\",x\n\"a,\nb\n\nc\",y\n\nlast,z", StandardCharsets.UTF_8));
+        assertEquals(3, records.size());
+        assertRecord(records.get(0), 0, "multi\r\nline", "x");
+        assertRecord(records.get(1), 2, "a,\nb\n\nc", "y");
+        // Row numbers still count lines after the blank one
+        assertRecord(records.get(2), 7, "last", "z");
+    }
+
+    @Test
+    public void crlfSplitAcrossRefill() throws IOException {
+        // The first record ends with \r as the last char of the buffer, its \n is read by the next refill
+        char[] padding = new char[BUFFER - 3];
+        Arrays.fill(padding, 'p');
+        String first = new String(padding);
+        StringBuilder text = new StringBuilder(first).append(",x\r\n");
+        assertEquals('\r', text.charAt(BUFFER - 1));
+        for (int i = 0; i < 20000; i++) {
+            text.append(i).append(",v").append(i).append("\r\n");
+        }
+        List<Record> records = read(write("crlf.csv", text.toString(), StandardCharsets.UTF_8));
+        assertEquals(20001, records.size());
+        assertRecord(records.get(0), 0, first, "x");
+        for (int i = 0; i < 20000; i++) {
+            assertRecord(records.get(i + 1), i + 1, String.valueOf(i), "v" + i);
+        }
+    }
+
+    @Test
+    public void utf8Bom() throws IOException {
+        File file = folder.newFile("bom.csv");
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        bytes.write(new byte[]{(byte) 0xEF, (byte) 0xBB, (byte) 0xBF});
+        bytes.write("名称,值\r\n中文,1\r\n".getBytes(StandardCharsets.UTF_8));
+        Files.write(file.toPath(), bytes.toByteArray());
+        List<Record> records = read(file);
+        assertEquals(2, records.size());
+        assertRecord(records.get(0), 0, "名称", "值");
+        assertRecord(records.get(1), 1, "中文", "1");
+    }
+
+    @Test
+    public void gbkDetected() throws IOException {
+        List<Record> records = read(write("gbk.csv", "名称,值\n中文,1\n", GBK));
+        assertEquals(2, records.size());
+        assertRecord(records.get(0), 0, "名称", "值");
+        assertRecord(records.get(1), 1, "中文", "1");
+    }
+
+    @Test
+    public void gbkAfterLeadingAscii() throws IOException {
+        // The first non-ASCII byte comes after the bytes checked to detect the charset
+        StringBuilder text = new StringBuilder();
+        int asciiRows = 10000;
+        for (int i = 0; i < asciiRows; i++) {
+            text.append("row").append(i).append(",value").append(i).append('\n');
+        }
+        assertTrue(text.length() > BUFFER);
+        text.append("中文,名称\n");
+        File file = write("gbk.csv", text.toString(), GBK);
+        try {
+            read(file);
+            fail("GBK text detected as UTF-8");
+        } catch (IOException e) {
+            assertTrue(e.getMessage(), e.getMessage().contains("give the charset"));
+        }
+        List<Record> records = read(new CsvStreamReader(file, ',', GBK));
+        assertEquals(asciiRows + 1, records.size());
+        assertRecord(records.get(asciiRows), asciiRows, "中文", "名称");
+    }
+
+    @Test
+    public void invalidTextFails() throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 10000; i++) {
+            text.append("row").append(i).append('\n');
+        }
+        text.append("中文\n");
+        File file = write("invalid.csv", text.toString(), GBK);
+        try {
+            read(new CsvStreamReader(file, ',', StandardCharsets.UTF_8));
+            fail("GBK text read as UTF-8");
+        } catch (IOException e) {
+            assertTrue(e.getCause() instanceof CharacterCodingException);
+            assertTrue(e.getMessage(), e.getMessage().contains("invalid.csv"));
+        }
+    }
+
+    @Test
+    public void tabDelimited() throws IOException {
+        File file = write("tabs.tsv", "a,b\t\"c\td\"\n", StandardCharsets.UTF_8);
+        List<Record> records = read(new CsvStreamReader(file, CsvStreamReader.defaultDelimiter(file), null));
+        assertEquals(1, records.size());
+        assertRecord(records.get(0), 0, "a,b", "c\td");
+    }
+
+    private File write(String name, String text, Charset charset) throws IOException {
+        File file = folder.newFile(name);
+        Files.write(file.toPath(), text.getBytes(charset));
+        return file;
+    }
+
+    private static List<Record> read(File file) throws IOException {
+        return read(new CsvStreamReader(file));
+    }
+
+    private static List<Record> read(CsvStreamReader reader) throws IOException {
+        List<Record> records = new ArrayList<>();
+        try (WorkbookReader workbook = reader) {
+            workbook.getSheet(0).read((rowNum, values) -> records.add(new Record(rowNum, values)));
+        }
+        return records;
+    }
+
+    private static void assertRecord(Record record, int rowNum, String... values) {
+        assertEquals(rowNum, record.rowNum);
+        assertArrayEquals(values, record.values);
+    }
+
+    private static class Record {
+
+        private final int rowNum;
+
+        private final String[] values;
+
+        private Record(int rowNum, String[] values) {
+            this.rowNum = rowNum;
+            this.values = values;
+        }
+    }
+}
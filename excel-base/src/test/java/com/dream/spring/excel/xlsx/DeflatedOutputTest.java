@@ -0,0 +1,157 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel.xlsx;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Round trips of {@link DeflatedOutput}, serial and in parallel blocks
+ *
+ * @author DreamJM
+ */
+public class DeflatedOutputTest {
+
+    /**
+     * Size of the blocks deflated in parallel
+     */
+    private static final int BLOCK = 128 * 1024;
+
+    private static ExecutorService executor;
+
+    @BeforeClass
+    public static void startExecutor() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterClass
+    public static void stopExecutor() {
+        executor.shutdown();
+    }
+
+    @Test
+    public void emptyInput() throws Exception {
+        assertRoundTrip(new byte[0]);
+    }
+
+    @Test
+    public void lessThanOneBlock() throws Exception {
+        assertRoundTrip(sheetXml(1000));
+    }
+
+    @Test
+    public void exactlyOneBlock() throws Exception {
+        assertRoundTrip(sheetXml(BLOCK));
+    }
+
+    @Test
+    public void multipleBlocks() throws Exception {
+        assertRoundTrip(sheetXml(BLOCK * 3 + BLOCK / 2));
+    }
+
+    @Test
+    public void exactlyMultipleBlocks() throws Exception {
+        assertRoundTrip(sheetXml(BLOCK * 4));
+    }
+
+    @Test
+    public void incompressibleBlocks() throws Exception {
+        byte[] input = new byte[BLOCK * 2 + 17];
+        new Random(7).nextBytes(input);
+        assertRoundTrip(input);
+    }
+
+    @Test
+    public void singleByteWrites() throws Exception {
+        byte[] input = sheetXml(BLOCK + 100);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        DeflatedOutput out = new DeflatedOutput(compressed, Deflater.DEFAULT_COMPRESSION, executor);
+        for (byte b : input) {
+            out.write(b);
+        }
+        out.finish();
+        assertArrayEquals(input, inflate(compressed.toByteArray()));
+    }
+
+    private static void assertRoundTrip(byte[] input) throws Exception {
+        for (ExecutorService blockExecutor : new ExecutorService[]{null, executor}) {
+            for (int level : new int[]{Deflater.BEST_SPEED, Deflater.DEFAULT_COMPRESSION, Deflater.NO_COMPRESSION}) {
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                DeflatedOutput out = new DeflatedOutput(compressed, level, blockExecutor);
+                // Uneven chunks across block boundaries
+                for (int off = 0; off < input.length; off += 10007) {
+                    out.write(input, off, Math.min(10007, input.length - off));
+                }
+                out.finish();
+                byte[] output = compressed.toByteArray();
+                assertArrayEquals(input, inflate(output));
+                CRC32 crc = new CRC32();
+                crc.update(input);
+                assertEquals(crc.getValue(), out.getCrc());
+                assertEquals(input.length, out.getSize());
+                assertEquals(output.length, out.getCompressedSize());
+            }
+        }
+    }
+
+    static byte[] inflate(byte[] compressed) throws DataFormatException, IOException {
+        Inflater inflater = new Inflater(true);
+        inflater.setInput(compressed);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        while (!inflater.finished()) {
+            int length = inflater.inflate(buffer);
+            if (length == 0 && !inflater.finished() && (inflater.needsInput() || inflater.needsDictionary())) {
+                throw new IOException("Truncated deflate stream");
+            }
+            out.write(buffer, 0, length);
+        }
+        assertEquals("Trailing data after the deflate stream", 0, inflater.getRemaining());
+        inflater.end();
+        return out.toByteArray();
+    }
+
+    /**
+     * Repetitive xml like sheet data, so that blocks refer back to the preceding block
+     */
+    static byte[] sheetXml(int length) {
+        StringBuilder xml = new StringBuilder(length + 100);
+        Random random = new Random(length);
+        for (int row = 1; xml.length() < length; row++) {
+            xml.append("<row r=\"").append(row).append("\"><c r=\"A").append(row).append("\" t=\"inlineStr\"><is><t>name-")
+                    .append(random.nextInt(1000)).append("</t></is></c><c r=\"B").append(row).append("\"><v>")
+                    .append(random.nextDouble()).append("</v></c></row>");
+        }
+        xml.setLength(length);
+        return xml.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel.xlsx;
+
+import com.dream.spring.excel.*;
+import com.dream.spring.excel.bean.ExcelExportConfig;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.Assert.*;
+
+/**
+ * Packages written by {@link ZipWriter} read back by {@link ZipFile}, {@link ZipInputStream} and POI
+ *
+ * @author DreamJM
+ */
+public class ZipWriterTest {
+
+    private static final int BLOCK = 128 * 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void streamedAndDeflatedEntries() throws Exception {
+        Map<String, byte[]> contents = new LinkedHashMap<>();
+        contents.put("empty.xml", new byte[0]);
+        contents.put("small.xml", DeflatedOutputTest.sheetXml(100));
+        contents.put("one-block.xml", DeflatedOutputTest.sheetXml(BLOCK));
+        contents.put("blocks.xml", DeflatedOutputTest.sheetXml(BLOCK * 3 + 5));
+        byte[] deflatedEmpty = new byte[0];
+        byte[] deflatedBlocks = DeflatedOutputTest.sheetXml(BLOCK * 2 + BLOCK / 3);
+        File file = folder.newFile("entries.zip");
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            ZipWriter zip = new ZipWriter(out, Deflater.DEFAULT_COMPRESSION);
+            zip.setExecutor(executor);
+            for (Map.Entry<String, byte[]> content : contents.entrySet()) {
+                OutputStream entry = zip.putNextEntry(content.getKey());
+                entry.write(content.getValue());
+                entry.close();
+            }
+            putDeflated(zip, "deflated-empty.xml", deflatedEmpty, executor);
+            putDeflated(zip, "deflated-blocks.xml", deflatedBlocks, executor);
+            zip.finish();
+        } finally {
+            executor.shutdown();
+        }
+        contents.put("deflated-empty.xml", deflatedEmpty);
+        contents.put("deflated-blocks.xml", deflatedBlocks);
+
+        try (ZipFile zipFile = new ZipFile(file)) {
+            assertEquals(contents.size(), zipFile.size());
+            for (Map.Entry<String, byte[]> content : contents.entrySet()) {
+                ZipEntry entry = zipFile.getEntry(content.getKey());
+                assertNotNull(content.getKey(), entry);
+                assertEquals(content.getValue().length, entry.getSize());
+                try (InputStream in = zipFile.getInputStream(entry)) {
+                    assertArrayEquals(content.getKey(), content.getValue(), readAll(in));
+                }
+            }
+        }
+        // Streamed reading relies on the data descriptors of streamed entries
+        try (ZipInputStream in = new ZipInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            List<String> names = new ArrayList<>();
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                names.add(entry.getName());
+                assertArrayEquals(entry.getName(), contents.get(entry.getName()), readAll(in));
+            }
+            assertEquals(new ArrayList<>(contents.keySet()), names);
+        }
+    }
+
+    @Test
+    public void multiSheetWorkbook() throws Exception {
+        File file = folder.newFile("multi.xlsx");
+        List<Callable<ExportSheet>> sheets = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            String title = "Sheet" + i;
+            // Large enough for sheets of several deflate blocks
+            sheets.add(() -> new ExportSheet(SheetStyle.builder(title).build(), columns(), rows(20000)));
+        }
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            MultiSheetExportExcel exporter = new MultiSheetExportExcel(sheets, out);
+            exporter.setExecutor(new StageExecutor(2, null));
+            exporter.exportExcel();
+        }
+        assertWorkbook(file, 3, 20000);
+    }
+
+    @Test
+    public void streamingWorkbook() throws Exception {
+        File file = folder.newFile("streaming.xlsx");
+        ExcelExportConfig config = new ExcelExportConfig();
+        config.setWriterType(ExcelExportConfig.WriterType.STREAMING);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            ExportExcel exporter = new ExportExcel(SheetStyle.builder("Sheet0").build(), columns(), null, rows(30000), out);
+            exporter.setConfig(config);
+            exporter.exportExcel();
+        }
+        assertWorkbook(file, 1, 30000);
+    }
+
+    @Test
+    public void emptyWorkbook() throws Exception {
+        File file = folder.newFile("empty.xlsx");
+        ExcelExportConfig config = new ExcelExportConfig();
+        config.setWriterType(ExcelExportConfig.WriterType.STREAMING);
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            ExportExcel exporter = new ExportExcel(SheetStyle.builder("Sheet0").build(), columns(), null, rows(0), out);
+            exporter.setConfig(config);
+            exporter.exportExcel();
+        }
+        assertWorkbook(file, 1, 0);
+    }
+
+    private static void putDeflated(ZipWriter zip, String name, byte[] content, ExecutorService executor) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        DeflatedOutput deflated = new DeflatedOutput(compressed, Deflater.DEFAULT_COMPRESSION, executor);
+        deflated.write(content);
+        deflated.finish();
+        zip.putDeflatedEntry(name, deflated.getCrc(), deflated.getSize(), deflated.getCompressedSize(),
+                new ByteArrayInputStream(compressed.toByteArray()));
+    }
+
+    private static void assertWorkbook(File file, int sheetCount, int rowCount) throws IOException {
+        try (ZipFile zipFile = new ZipFile(file)) {
+            for (ZipEntry entry : Collections.list(zipFile.entries())) {
+                try (InputStream in = zipFile.getInputStream(entry)) {
+                    assertEquals(entry.getName(), entry.getSize(), readAll(in).length);
+                }
+            }
+            for (int i = 1; i <= sheetCount; i++) {
+                assertNotNull(zipFile.getEntry("xl/worksheets/sheet" + i + ".xml"));
+            }
+        }
+        try (XSSFWorkbook workbook = new XSSFWorkbook(file)) {
+            assertEquals(sheetCount, workbook.getNumberOfSheets());
+            for (int i = 0; i < sheetCount; i++) {
+                Sheet sheet = workbook.getSheetAt(i);
+                assertEquals("Sheet" + i, sheet.getSheetName());
+                assertEquals(rowCount, sheet.getLastRowNum());
+                for (int r = 1; r <= rowCount; r += 997) {
+                    Row row = sheet.getRow(r);
+                    assertEquals("name-" + (r - 1), row.getCell(0).getStringCellValue());
+                    assertEquals(r - 1, (long) row.getCell(1).getNumericCellValue());
+                }
+            }
+        } catch (org.apache.poi.openxml4j.exceptions.InvalidFormatException e) {
+            throw new IOException(e);
+        }
+    }
+
+    private static Column[] columns() {
+        return new Column[]{Column.builder("name").build(), Column.builder("value").build()};
+    }
+
+    private static RowSource rows(int count) {
+        int[] next = {0};
+        return row -> {
+            if (next[0] >= count) {
+                return false;
+            }
+            int i = next[0]++;
+            row.set(0, "name-" + i);
+            row.setLong(1, i);
+            return true;
+        };
+    }
+
+    private static byte[] readAll(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int length;
+        while ((length = in.read(buffer)) > 0) {
+            out.write(buffer, 0, length);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,142 @@
+package com.dream.spring.excel.benchmark;
+
+import com.dream.spring.excel.*;
+import com.dream.spring.excel.bean.ExcelExportConfig;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of {@link ExportExcel#exportExcel()} across row counts, column counts, style mixes and cell types
+ *
+ * @author DreamJM
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ExportExcelBenchmark {
+
+    /**
+     * Distinct values of a string column
+     */
+    private static final int VALUE_COUNT = 1024;
+
+    private static final long DATE_BASE = 1577836800000L;
+
+    public enum StyleMix {
+        /**
+         * Default content style only
+         */
+        PLAIN,
+        /**
+         * Style per column
+         */
+        COLUMN,
+        /**
+         * Style per column, and a conditional style on every fourth cell (eg: @CellItemStyle)
+         */
+        CELL
+    }
+
+    public enum CellKind {
+        STRING, NUMBER, DATE,
+        /**
+         * String, number and date columns in turn
+         */
+        MIXED
+    }
+
+    @Param({"1000", "100000"})
+    public int rows;
+
+    @Param({"5", "20"})
+    public int columns;
+
+    @Param({"PLAIN", "COLUMN", "CELL"})
+    public StyleMix style;
+
+    @Param({"STRING", "NUMBER", "DATE", "MIXED"})
+    public CellKind cells;
+
+    @Param({"SXSSF", "STREAMING"})
+    public ExcelExportConfig.WriterType writer;
+
+    private ExcelExportConfig config;
+
+    private Column[] columnDefs;
+
+    private CellKind[] columnKinds;
+
+    private CustomStyle highlight;
+
+    /**
+     * Values are prepared, so building them is not measured
+     */
+    private String[] values;
+
+    @Setup
+    public void setup() {
+        config = new ExcelExportConfig();
+        config.setWriterType(writer);
+        highlight = CustomStyle.builder().setBg(IndexedColors.BLUE.getIndex()).setFontColor(IndexedColors.WHITE.getIndex()).build();
+        columnDefs = new Column[columns];
+        columnKinds = new CellKind[columns];
+        for (int i = 0; i < columns; i++) {
+            Column.Builder builder = Column.builder("Column " + i).setWidth(12);
+            if (style != StyleMix.PLAIN) {
+                builder.setStyle(CustomStyle.builder().setFontColor((short) (IndexedColors.BLACK.getIndex() + i % 8)).build());
+            }
+            columnDefs[i] = builder.build();
+            columnKinds[i] = cells == CellKind.MIXED ? CellKind.values()[i % 3] : cells;
+        }
+        values = new String[VALUE_COUNT];
+        for (int i = 0; i < VALUE_COUNT; i++) {
+            values[i] = "Value " + i;
+        }
+    }
+
+    @Benchmark
+    public long exportExcel(RowCounters counters) throws IOException {
+        NullOutputStream out = new NullOutputStream();
+        ExportExcel exporter = new ExportExcel(SheetStyle.builder("Benchmark").build(), columnDefs, null, new Rows(), out);
+        exporter.setConfig(config);
+        exporter.exportExcel();
+        counters.rows += rows;
+        return out.getCount();
+    }
+
+    /**
+     * Generates the content rows on the fly
+     */
+    private class Rows implements RowSource {
+
+        private int row;
+
+        @Override
+        public boolean fill(RowBuffer item) {
+            if (row == rows) {
+                return false;
+            }
+            for (int i = 0; i < columns; i++) {
+                CustomStyle cellStyle = style == StyleMix.CELL && (row + i) % 4 == 0 ? highlight : null;
+                switch (columnKinds[i]) {
+                    case NUMBER:
+                        item.setDouble(i, row * 1.5 + i, cellStyle);
+                        break;
+                    case DATE:
+                        item.setDate(i, DATE_BASE + row * 60000L, cellStyle);
+                        break;
+                    default:
+                        item.set(i, values[(row * 31 + i) & (VALUE_COUNT - 1)], null, cellStyle);
+                }
+            }
+            row++;
+            return true;
+        }
+    }
+}
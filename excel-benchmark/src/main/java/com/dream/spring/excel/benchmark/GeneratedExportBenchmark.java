@@ -0,0 +1,100 @@
+package com.dream.spring.excel.benchmark;
+
+import com.dream.spring.excel.ExportGovernor;
+import com.dream.spring.excel.bean.ExcelExportConfig;
+import com.dream.spring.excel.bean.ExcelI18n;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the export api generated by the annotation processor for {@link RecordService}, from the data method to the
+ * response output
+ *
+ * @author DreamJM
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class GeneratedExportBenchmark {
+
+    @Param({"1000", "100000"})
+    public int rows;
+
+    @Param({"SXSSF", "STREAMING"})
+    public ExcelExportConfig.WriterType writer;
+
+    private ExcelController controller;
+
+    @Setup
+    public void setup() {
+        ExcelExportConfig config = new ExcelExportConfig();
+        config.setWriterType(writer);
+        DefaultListableBeanFactory beanFactory = new DefaultListableBeanFactory();
+        beanFactory.registerSingleton("excelExportConfig", config);
+        beanFactory.registerSingleton("excelI18n", (ExcelI18n) code -> code);
+        controller = new ExcelController();
+        controller.ref0 = new RecordService(rows);
+        controller.configProvider = beanFactory.getBeanProvider(ExcelExportConfig.class);
+        controller.i18nProvider = beanFactory.getBeanProvider(ExcelI18n.class);
+        controller.exportGovernorProvider = beanFactory.getBeanProvider(ExportGovernor.class);
+    }
+
+    @Benchmark
+    public long exportRecords(RowCounters counters) throws IOException {
+        NullOutputStream out = new NullOutputStream();
+        controller.records(response(out));
+        counters.rows += rows;
+        return out.getCount();
+    }
+
+    /**
+     * @return response writing the body into the output, other calls are ignored
+     */
+    private static HttpServletResponse response(NullOutputStream out) {
+        ServletOutputStream body = new ServletOutputStream() {
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setWriteListener(WriteListener writeListener) {
+            }
+
+            @Override
+            public void write(int b) {
+                out.write(b);
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                out.write(b, off, len);
+            }
+        };
+        return (HttpServletResponse) Proxy.newProxyInstance(HttpServletResponse.class.getClassLoader(),
+                new Class<?>[]{HttpServletResponse.class}, (proxy, method, args) -> {
+                    if ("getOutputStream".equals(method.getName())) {
+                        return body;
+                    }
+                    Class<?> type = method.getReturnType();
+                    if (type == boolean.class) {
+                        return false;
+                    } else if (type == int.class) {
+                        return 0;
+                    } else if (type == long.class) {
+                        return 0L;
+                    }
+                    return null;
+                });
+    }
+}
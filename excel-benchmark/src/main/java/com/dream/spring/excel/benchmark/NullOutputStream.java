@@ -0,0 +1,27 @@
+package com.dream.spring.excel.benchmark;
+
+import java.io.OutputStream;
+
+/**
+ * Output discarding the exported file, only its size is kept
+ *
+ * @author DreamJM
+ */
+class NullOutputStream extends OutputStream {
+
+    private long count;
+
+    @Override
+    public void write(int b) {
+        count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+        count += len;
+    }
+
+    long getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,40 @@
+package com.dream.spring.excel.benchmark;
+
+import com.dream.spring.excel.annotation.ExcelExport;
+import com.dream.spring.excel.annotation.ExcelSupport;
+import com.dream.spring.excel.benchmark.model.Owner;
+import com.dream.spring.excel.benchmark.model.Record;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Data source of the generated export api benchmarked by {@link GeneratedExportBenchmark}
+ *
+ * @author DreamJM
+ */
+@ExcelSupport("com.dream.spring.excel.benchmark.ExcelController")
+public class RecordService {
+
+    private static final long DATE_BASE = 1577836800000L;
+
+    private final List<Record> records;
+
+    public RecordService(int count) {
+        Owner[] owners = new Owner[16];
+        for (int i = 0; i < owners.length; i++) {
+            owners[i] = new Owner("Owner " + i, "O" + (1000 + i));
+        }
+        records = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            records.add(new Record("Record " + i, i % 3, i * 1.5, new Date(DATE_BASE + i * 60000L), i % 10 == 0 ? "Checked" : "",
+                    owners[i % owners.length]));
+        }
+    }
+
+    @ExcelExport(value = "/benchmark/records", fileName = "records")
+    public List<Record> records() {
+        return records;
+    }
+}
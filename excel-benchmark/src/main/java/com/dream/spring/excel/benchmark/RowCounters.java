@@ -0,0 +1,26 @@
+package com.dream.spring.excel.benchmark;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Rows exported by a benchmark, reported by JMH as rows per second next to the exports per second
+ *
+ * <p>Bytes allocated per row are the 'gc.alloc.rate.norm' of the gc profiler (bytes per export) divided by the rows param.
+ *
+ * @author DreamJM
+ */
+@State(Scope.Thread)
+@AuxCounters(AuxCounters.Type.OPERATIONS)
+public class RowCounters {
+
+    public long rows;
+
+    @Setup(Level.Iteration)
+    public void reset() {
+        rows = 0;
+    }
+}
@@ -0,0 +1,24 @@
+package com.dream.spring.excel.benchmark.model;
+
+/**
+ * @author DreamJM
+ */
+public class Owner {
+
+    private String name;
+
+    private String code;
+
+    public Owner(String name, String code) {
+        this.name = name;
+        this.code = code;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public String getCode() {
+        return code;
+    }
+}
@@ -0,0 +1,82 @@
+package com.dream.spring.excel.benchmark.model;
+
+import com.dream.spring.excel.annotation.*;
+import org.apache.poi.ss.usermodel.CellType;
+import org.apache.poi.ss.usermodel.IndexedColors;
+
+import java.util.Date;
+
+/**
+ * Sheet model like the one of excel-test: converter, conditional cell style, typed cells, nested fields and a category
+ *
+ * @author DreamJM
+ */
+@Sheet(value = "Record", i18nSupport = false, indexIncluded = true,
+        categories = {@Category(value = "Owner", start = 5, end = 6)},
+        headers = {
+                @Header(value = "Name", field = "name", width = 15), @Header(value = "Type", field = "type", width = 8),
+                @Header(value = "Amount", field = "amount"), @Header(value = "Date", field = "date", width = 20),
+                @Header(value = "Remark", field = "remark"), @Header(value = "Owner Name", field = "owner.name"),
+                @Header(value = "Owner Code", field = "owner.code")})
+public class Record {
+
+    private String name;
+
+    @Column(converter = @Converter(clazz = Record.class, method = "formatType"),
+            cellStyles = @CellItemStyle(condition = "{value} == 1", style = @CellStyle(backgroundColor = IndexedColors.BLUE, fontColor = IndexedColors.WHITE)))
+    private int type;
+
+    @Column(type = CellType.NUMERIC)
+    private double amount;
+
+    @Column(type = CellType.NUMERIC)
+    private Date date;
+
+    private String remark;
+
+    private Owner owner;
+
+    public Record(String name, int type, double amount, Date date, String remark, Owner owner) {
+        this.name = name;
+        this.type = type;
+        this.amount = amount;
+        this.date = date;
+        this.remark = remark;
+        this.owner = owner;
+    }
+
+    public static String formatType(int type) {
+        switch (type) {
+            case 0:
+                return "Normal";
+            case 1:
+                return "Urgent";
+            default:
+                return "Other";
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    public double getAmount() {
+        return amount;
+    }
+
+    public Date getDate() {
+        return date;
+    }
+
+    public String getRemark() {
+        return remark;
+    }
+
+    public Owner getOwner() {
+        return owner;
+    }
+}
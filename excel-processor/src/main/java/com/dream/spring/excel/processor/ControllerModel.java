@@ -17,9 +17,7 @@
 package com.dream.spring.excel.processor;
 
 import javax.lang.model.element.TypeElement;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.util.*;
 import java.util.stream.Collectors;
 
 /**
@@ -85,6 +83,24 @@ public class ControllerModel {
         return methods;
     }
 
+    /**
+     * Methods grouped by request path, methods of the same path export sheets of one workbook
+     *
+     * @return method groups, methods of a group are sorted by sheet order
+     */
+    public List<List<ExcelMethodModel>> getMethodGroups() {
+        Map<String, List<ExcelMethodModel>> groups = new LinkedHashMap<>();
+        for (ExcelMethodModel method : methods) {
+            groups.computeIfAbsent(method.getAnnotation().value(), path -> new ArrayList<>()).add(method);
+        }
+        List<List<ExcelMethodModel>> result = new ArrayList<>();
+        for (List<ExcelMethodModel> group : groups.values()) {
+            group.sort(Comparator.comparingInt(method -> method.getAnnotation().order()));
+            result.add(group);
+        }
+        return result;
+    }
+
     public void addTags(String[] tags) {
         this.tags.addAll(Arrays.stream(tags).filter(tag -> tag != null && !"".equals(tag)).map(String::trim).collect(Collectors.toList()));
     }
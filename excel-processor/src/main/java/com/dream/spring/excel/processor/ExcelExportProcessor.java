@@ -21,6 +21,8 @@ import com.dream.spring.excel.annotation.Column;
 import com.dream.spring.excel.annotation.*;
 import com.dream.spring.excel.bean.ExcelExportConfig;
 import com.dream.spring.excel.bean.ExcelI18n;
+import com.dream.spring.excel.reactive.BackpressureIterator;
+import com.dream.spring.excel.reactive.ChunkedOutput;
 import com.google.auto.service.AutoService;
 import com.squareup.javapoet.*;
 import org.apache.poi.ss.usermodel.CellType;
@@ -32,13 +34,14 @@ import javax.lang.model.type.*;
 import javax.tools.Diagnostic;
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * @author DreamJM
  */
 @SupportedSourceVersion(SourceVersion.RELEASE_8)
 @SupportedAnnotationTypes("com.dream.spring.excel.annotation.ExcelSupport")
-@SupportedOptions(ExcelExportProcessor.OPTION_DEBUG)
+@SupportedOptions({ExcelExportProcessor.OPTION_DEBUG, ExcelExportProcessor.OPTION_REACTIVE})
 @AutoService(Processor.class)
 public class ExcelExportProcessor extends AbstractProcessor {
 
@@ -46,8 +49,22 @@ public class ExcelExportProcessor extends AbstractProcessor {
 
     static final String OPTION_DEBUG = "debug";
 
+    /**
+     * Generates WebFlux handlers if true, detected by the absence of the servlet API by default
+     */
+    static final String OPTION_REACTIVE = "reactive";
+
     private static final String REPLACE_CACHE_FILE_TIMESTAMP = "{timestamp}";
 
+    private static final ClassName FLUX = ClassName.get("reactor.core.publisher", "Flux");
+
+    private static final ClassName DATA_BUFFER = ClassName.get("org.springframework.core.io.buffer", "DataBuffer");
+
+    /**
+     * If true, WebFlux handlers are generated instead of servlet ones
+     */
+    private boolean reactive;
+
     @Override
     public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
         TypeElement springCheck = processingEnv.getElementUtils().getTypeElement("org.springframework.web.bind.annotation.RestController");
@@ -55,6 +72,13 @@ public class ExcelExportProcessor extends AbstractProcessor {
             error("Spring Web Not Found!!!");
             return false;
         }
+        String reactiveOption = processingEnv.getOptions().get(OPTION_REACTIVE);
+        reactive = reactiveOption != null ? Boolean.parseBoolean(reactiveOption) :
+                processingEnv.getElementUtils().getTypeElement("javax.servlet.http.HttpServletResponse") == null;
+        if (reactive && processingEnv.getElementUtils().getTypeElement(FLUX.toString()) == null) {
+            error("Spring WebFlux Not Found!!!");
+            return false;
+        }
         Map<String, ControllerModel> controllers = new HashMap<>();
         for (Element element : roundEnv.getElementsAnnotatedWith(ExcelSupport.class)) {
             TypeElement typeElement = (TypeElement) element;
@@ -133,8 +157,42 @@ public class ExcelExportProcessor extends AbstractProcessor {
             TypeElement i18nElem = processingEnv.getElementUtils().getTypeElement("com.dream.spring.excel.bean.ExcelI18n");
             typeBuilder.addField(FieldSpec.builder(ParameterizedTypeName.get(ClassName.get(opElem), TypeName.get(i18nElem.asType())),
                     "i18nProvider").addAnnotation(AnnotationSpec.builder(ClassName.get(autowiredElem)).build()).build());
-            for (ExcelMethodModel method : controller.getMethods()) {
-                typeBuilder.addMethod(generateMethod(method, controller));
+            // Adding ObjectProvider of ExportGovernor
+            typeBuilder.addField(FieldSpec.builder(ParameterizedTypeName.get(ClassName.get(opElem), ClassName.get(ExportGovernor.class)),
+                    "exportGovernorProvider").addAnnotation(AnnotationSpec.builder(ClassName.get(autowiredElem)).build()).build());
+            // Adding ObjectProvider of ExportExecutor if any api is async or has jobs
+            boolean jobs = controller.getMethodGroups().stream().anyMatch(methods -> methods.get(0).getAnnotation().job());
+            if (reactive || jobs || controller.getMethodGroups().stream().anyMatch(methods -> methods.get(0).getAnnotation().async())) {
+                typeBuilder.addField(FieldSpec.builder(ParameterizedTypeName.get(ClassName.get(opElem), ClassName.get(ExportExecutor.class)),
+                        "exportExecutorProvider").addAnnotation(AnnotationSpec.builder(ClassName.get(autowiredElem)).build()).build());
+            }
+            // Adding ObjectProvider of StageExecutor if any api is paged or multi-sheet
+            if (controller.getMethodGroups().stream().anyMatch(methods -> methods.size() > 1) ||
+                    controller.getMethodGroups().stream().flatMap(List::stream).anyMatch(method -> method.getAnnotation().paging().length > 0)) {
+                typeBuilder.addField(FieldSpec.builder(ParameterizedTypeName.get(ClassName.get(opElem), ClassName.get(StageExecutor.class)),
+                        "stageExecutorProvider").addAnnotation(AnnotationSpec.builder(ClassName.get(autowiredElem)).build()).build());
+            }
+            if (jobs) {
+                typeBuilder.addField(FieldSpec.builder(ParameterizedTypeName.get(ClassName.get(opElem), ClassName.get(ExportJobManager.class)),
+                        "exportJobManagerProvider").addAnnotation(AnnotationSpec.builder(ClassName.get(autowiredElem)).build()).build());
+            }
+            for (List<ExcelMethodModel> methods : controller.getMethodGroups()) {
+                if (methods.get(0).getAnnotation().job() && (reactive || methods.size() > 1)) {
+                    error("Export jobs are not supported by multi-sheet or WebFlux excel api " + methods.get(0).getAnnotation().value());
+                }
+                if (reactive) {
+                    if (methods.size() > 1) {
+                        error("Multi-sheet excel api is not supported by WebFlux " + methods.get(0).getAnnotation().value());
+                    }
+                    typeBuilder.addMethod(generateReactiveMethod(methods.get(0), controller));
+                } else if (methods.size() == 1) {
+                    typeBuilder.addMethod(generateMethod(methods.get(0), controller));
+                    if (methods.get(0).getAnnotation().job()) {
+                        typeBuilder.addMethods(generateJobMethods(methods.get(0), controller));
+                    }
+                } else {
+                    typeBuilder.addMethods(generateWorkbookMethods(methods, controller));
+                }
             }
             JavaFile controllerFile = JavaFile.builder(controller.getPackageName(), typeBuilder.build()).build();
             controllerFile.writeTo(sw);
@@ -147,6 +205,385 @@ public class ExcelExportProcessor extends AbstractProcessor {
         MethodSpec.Builder builder =
                 MethodSpec.methodBuilder(method.getMethodElement().getSimpleName().toString()).addModifiers(Modifier.PUBLIC)
                         .returns(void.class);
+        addMappingAnnotations(builder, method);
+        // Parameters
+        Set<String> paramNames = new HashSet<>();
+        String servletRespName = addParameters(builder, method, paramNames, new HashMap<>());
+        if (servletRespName == null) {
+            servletRespName = addServletResponse(builder, paramNames);
+        }
+        // Format of the request if delimited text formats are supported
+        List<CodeBlock> formats = exportFormats(method);
+        boolean formatted = formats.size() > 1;
+        boolean async = method.getAnnotation().async();
+        String servletReqName = formatted || async ? addServletRequest(builder, method, paramNames) : null;
+        if (formatted) {
+            builder.addStatement("$1T format = $1T.resolve($2L.getParameter($1T.PARAMETER),$2L.getHeader(\"Accept\"),$3L)",
+                    ExportFormat.class, servletReqName, CodeBlock.join(formats, ","));
+        }
+        // Exceptions
+        addExceptions(builder, Collections.singletonList(method));
+        // Response Header
+        addResponseHeaders(builder, method.getAnnotation().fileName(), servletRespName, formatted);
+        if (async) {
+            // Admitted on the request thread, the export thread only runs admitted exports
+            acquirePermit(builder, method, controller, servletRespName);
+            beginAsync(builder, servletReqName);
+            builder.beginControlFlow("try");
+        }
+        // Cache
+        if (method.getAnnotation().caches().length > 0) {
+            int index = 0;
+            for (Cacheable conf : method.getAnnotation().caches()) {
+                // Caches only hold xlsx files
+                builder.addCode("$1Lif($2L) {\n", index == 0 ? "" : "else ",
+                        formatted ? "format == ExportFormat.XLSX && (" + conf.condition() + ")" : conf.condition());
+                builder.addStatement("$1T cacheFile = $2T.newestFile(\"$3L\")", File.class, FileUtils.class, conf.cacheDir());
+                builder.addCode("if(cacheFile != null) {\n");
+                builder.addStatement("long timestamp = Long.parseLong(cacheFile.getName())");
+                builder.addCode("if(!$1L.$2L) {\n", controller.getRefName(method.getRef()), conf.checkUpdateMethod());
+                builder.addCode("try($1T fis=new $1T(cacheFile)) {\n" +
+                        "$2T output = $3L.getOutputStream();\nbyte[] b=new byte[1024];\nint length;\n" +
+                        "while((length=fis.read(b))>0){\noutput.write(b,0,length);\n}\n" +
+                        "output.flush();\n}\n", FileInputStream.class, OutputStream.class, servletRespName);
+                builder.addCode("return;}\n");
+                builder.addCode("}\n");
+                builder.addCode("}\n");
+                index++;
+            }
+        }
+        if (!async) {
+            beginAdmission(builder, method, controller, servletRespName);
+        }
+        addSheetStatements(builder, method, controller);
+        boolean paged = method.getAnnotation().paging().length > 0;
+        if (paged) {
+            // Pages are fetched and rows converted ahead of the writer
+            builder.beginControlFlow("try ($1T pipeline = new $1T(config, stageExecutorProvider.getIfAvailable($2T::getDefault)))",
+                    ExportPipeline.class, StageExecutor.class);
+            builder.addStatement("rows = pipeline.pipe(sheet, rows, columns.length)");
+        }
+        String output = responseOutput(servletRespName, async);
+        if (async) {
+            // The export stops once the async context has ended
+            builder.addStatement("rows = asyncGuard.guard(rows)");
+        }
+        if (formatted) {
+            builder.beginControlFlow("if (format != $1T.XLSX)", ExportFormat.class);
+            builder.addStatement("$1T exporter = new $1T(format,columns,rows,$2L)", CsvExportExcel.class, output);
+            builder.addStatement("exporter.setBom(config != null && config.isCsvBom())");
+            builder.addStatement("exporter.setFormulaEscape(config == null || config.isCsvFormulaEscape())");
+            builder.addStatement("exporter.exportCsv()");
+            builder.addStatement("return");
+            builder.endControlFlow();
+        }
+        // Compose Excel Exporter
+        if (method.getAnnotation().caches().length > 0) { //
+            int index = 0;
+            for (Cacheable conf : method.getAnnotation().caches()) {
+                builder.addCode("$1Lif($2L) {\n", index == 0 ? "" : "else ", conf.condition());
+                builder.addStatement("long maxTimestamp = $1L.$2L", controller.getRefName(method.getRef()), conf.timestampMethod());
+                builder.addStatement("$1T cacheFile = $2T.file(\"$3L\",maxTimestamp)", File.class, FileUtils.class, conf.cacheDir());
+                builder.addCode("try($1T fos=new $1T(cacheFile)) {\n", FileOutputStream.class);
+                addExportStatements(builder, method, "fos");
+                builder.addCode("}\n");
+                builder.addCode("try($1T fis=new $1T(cacheFile)) {\n" +
+                        "$2T output = $3L;\nbyte[] b=new byte[1024];\nint length;\n" +
+                        "while((length=fis.read(b))>0){\noutput.write(b,0,length);\n}\n" +
+                        "output.flush();\n}\n", FileInputStream.class, OutputStream.class, output);
+                builder.addCode("\n} else {\n");
+                addExportStatements(builder, method, output);
+                builder.addCode("}\n");
+                index++;
+            }
+        } else {
+            addExportStatements(builder, method, output);
+        }
+        if (paged) {
+            builder.endControlFlow();
+        }
+        endAdmission(builder);
+        if (async) {
+            endAsync(builder, servletRespName);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Generates the apis of background export jobs: submitting a job, polling its status and downloading its file. The job
+     * exports the same sheet as the export api into the job file, counting the rows written.
+     */
+    private List<MethodSpec> generateJobMethods(ExcelMethodModel method, ControllerModel controller) {
+        String name = method.getMethodElement().getSimpleName().toString();
+        String path = method.getAnnotation().value() + "/jobs";
+        ClassName httpStatus = ClassName.get("org.springframework.http", "HttpStatus");
+        ClassName statusException = ClassName.get("org.springframework.web.server", "ResponseStatusException");
+        ClassName servletResponse = ClassName.get("javax.servlet.http", "HttpServletResponse");
+        AnnotationSpec jobIdVariable = AnnotationSpec.builder(ClassName.get("org.springframework.web.bind.annotation", "PathVariable"))
+                .addMember("value", "$S", "jobId").build();
+        // Submit
+        MethodSpec.Builder submit = MethodSpec.methodBuilder(name + "Job").addModifiers(Modifier.PUBLIC).returns(ExportJob.class);
+        addMappingAnnotations(submit, method, "PostMapping", path);
+        addParameters(submit, method, new HashSet<>(), new HashMap<>());
+        submit.addStatement("long estimatedRows = $1L", estimateExpression(method, controller));
+        submit.addCode("try {\n$>return exportJobManagerProvider.getIfAvailable($1T::getDefault).submit(" +
+                        "exportExecutorProvider.getIfAvailable($2T::getDefault), $3S, $4L + \".xlsx\", estimatedRows, " +
+                        "(exportJob, jobOutput) -> {\n$>", ExportJobManager.class, ExportExecutor.class, method.getAnnotation().value(),
+                fileNameExpression(method.getAnnotation().fileName()));
+        submit.addStatement("$1T.Permit permit = $2L", ExportGovernor.class, acquireStatement(method, "estimatedRows"));
+        submit.beginControlFlow("try");
+        addSheetStatements(submit, method, controller);
+        boolean paged = method.getAnnotation().paging().length > 0;
+        if (paged) {
+            submit.beginControlFlow("try ($1T pipeline = new $1T(config, stageExecutorProvider.getIfAvailable($2T::getDefault)))",
+                    ExportPipeline.class, StageExecutor.class);
+            submit.addStatement("rows = pipeline.pipe(sheet, rows, columns.length)");
+        }
+        submit.addStatement("rows = exportJob.track(rows)");
+        addExportStatements(submit, method, "jobOutput");
+        if (paged) {
+            submit.endControlFlow();
+        }
+        submit.nextControlFlow("finally");
+        submit.addStatement("permit.close()");
+        submit.endControlFlow();
+        submit.addCode("$<});\n$<} catch ($1T e) {\n$>", RejectedExecutionException.class);
+        submit.addStatement("throw new $1T($2T.SERVICE_UNAVAILABLE)", statusException, httpStatus);
+        submit.addCode("$<}\n");
+        // Status
+        MethodSpec.Builder status = MethodSpec.methodBuilder(name + "JobStatus").addModifiers(Modifier.PUBLIC).returns(ExportJob.class);
+        addMappingAnnotations(status, method, "GetMapping", path + "/{jobId}");
+        status.addParameter(ParameterSpec.builder(String.class, "jobId").addAnnotation(jobIdVariable).build());
+        status.addStatement("$1T job = exportJobManagerProvider.getIfAvailable($2T::getDefault).getJob(jobId, $3S)", ExportJob.class,
+                ExportJobManager.class, method.getAnnotation().value());
+        status.beginControlFlow("if (job == null)");
+        status.addStatement("throw new $1T($2T.NOT_FOUND)", statusException, httpStatus);
+        status.endControlFlow();
+        status.addStatement("return job");
+        // Download
+        MethodSpec.Builder download = MethodSpec.methodBuilder(name + "JobFile").addModifiers(Modifier.PUBLIC).returns(void.class);
+        addMappingAnnotations(download, method, "GetMapping", path + "/{jobId}/file");
+        download.addParameter(ParameterSpec.builder(String.class, "jobId").addAnnotation(jobIdVariable).build());
+        download.addParameter(servletResponse, "response");
+        download.addException(IOException.class);
+        download.addStatement("$1T jobs = exportJobManagerProvider.getIfAvailable($1T::getDefault)", ExportJobManager.class);
+        download.addStatement("$1T job = jobs.getJob(jobId, $2S)", ExportJob.class, method.getAnnotation().value());
+        download.addStatement("$1T file = job == null ? null : jobs.getFile(job)", File.class);
+        download.beginControlFlow("if (file == null)");
+        download.addComment("Unknown, or not completed yet");
+        download.addStatement("response.sendError(job == null ? $1T.SC_NOT_FOUND : $1T.SC_CONFLICT)", servletResponse);
+        download.addStatement("return");
+        download.endControlFlow();
+        download.addStatement("response.setHeader(\"Content-Disposition\",\"attachment;filename=\"+job.getFileName())");
+        download.addStatement("response.setContentType(\"application/msexcel\")");
+        download.addStatement("response.setContentLengthLong(file.length())");
+        download.addStatement("$1T.copy(file.toPath(), response.getOutputStream())", ClassName.get("java.nio.file", "Files"));
+        return Arrays.asList(submit.build(), status.build(), download.build());
+    }
+
+    /**
+     * Generates a WebFlux handler, the export runs on {@link ExportExecutor} and the xlsx package is streamed as DataBuffer
+     * chunks on demand. The data method returns a Flux of the sheet type, which is subscribed with backpressure, or a Mono of
+     * the sheet data.
+     */
+    private MethodSpec generateReactiveMethod(ExcelMethodModel method, ControllerModel controller) {
+        MethodSpec.Builder builder = MethodSpec.methodBuilder(method.getMethodElement().getSimpleName().toString())
+                .addModifiers(Modifier.PUBLIC).returns(ParameterizedTypeName.get(FLUX, DATA_BUFFER));
+        addMappingAnnotations(builder, method);
+        Set<String> paramNames = new HashSet<>();
+        String respName = addParameters(builder, method, paramNames, new HashMap<>());
+        if (respName == null) {
+            respName = addServletResponse(builder, paramNames);
+        }
+        if (method.getAnnotation().caches().length > 0) {
+            error("Cacheable is not supported by WebFlux excel api " + method.getAnnotation().value());
+        }
+        if (method.getAnnotation().paging().length > 0) {
+            error("Paging is not supported by WebFlux excel api " + method.getAnnotation().value() + ", return a Flux instead");
+        }
+        List<CodeBlock> formats = exportFormats(method);
+        boolean formatted = formats.size() > 1;
+        if (formatted) {
+            String reqName = addServletRequest(builder, method, paramNames);
+            builder.addStatement("$1T format = $1T.resolve($2L.getQueryParams().getFirst($1T.PARAMETER)," +
+                    "$2L.getHeaders().getFirst(\"Accept\"),$3L)", ExportFormat.class, reqName, CodeBlock.join(formats, ","));
+        }
+        addResponseHeaders(builder, method.getAnnotation().fileName(), respName, formatted);
+        // The export starts once the response subscribes, so an unsubscribed response never holds an export thread
+        builder.addCode("return $1T.defer(() -> {\n$>", FLUX);
+        builder.addStatement("$1T output = new $1T()", ChunkedOutput.class);
+        builder.addCode("try {\n$>exportExecutorProvider.getIfAvailable($1T::getDefault).execute(() -> {\n$>", ExportExecutor.class);
+        // Data source
+        DeclaredType returnType = (DeclaredType) method.getMethodElement().getReturnType();
+        String returnTypeName = processingEnv.getTypeUtils().erasure(returnType).toString();
+        boolean fluxSource = FLUX.toString().equals(returnTypeName);
+        if (!fluxSource && !"reactor.core.publisher.Mono".equals(returnTypeName)) {
+            error("Data method of WebFlux excel api must return Flux or Mono " + method.getMethodElement());
+        }
+        DeclaredType dataType = (DeclaredType) returnType.getTypeArguments().get(0);
+        if (fluxSource) {
+            builder.addStatement("$1T<$2L> sheet = new $1T<>()", BackpressureIterator.class, dataType);
+        }
+        // Admitted on the export thread, rejections fail the response
+        builder.addCode("try {\n$>");
+        builder.addStatement("$1T.Permit permit = $2L", ExportGovernor.class,
+                acquireStatement(method, estimateExpression(method, controller)));
+        builder.addCode("try {\n$>");
+        builder.addStatement("$1L result = $2L.$3L($4L)", returnType.toString(), controller.getRefName(method.getRef()),
+                method.getMethodElement().getSimpleName().toString(), dataMethodArgs(method));
+        DeclaredType sheetType = dataType;
+        if (fluxSource) {
+            // Rows are requested as the export consumes them
+            builder.addStatement("result.subscribe(sheet::onNext, sheet::onError, sheet::onComplete, " +
+                    "subscription -> sheet.onSubscribe(subscription::request, subscription::cancel))");
+        } else {
+            StringBuilder sheetAccessBuilder = new StringBuilder("result.block()");
+            DeclaredType sheetListType = findSheet(dataType, sheetAccessBuilder);
+            builder.addStatement(sheetListType.toString() + " sheet = " + sheetAccessBuilder.toString());
+            sheetType = (DeclaredType) sheetListType.getTypeArguments().get(0);
+        }
+        parseSheet(builder, sheetType);
+        if (formatted) {
+            builder.beginControlFlow("if (format != $1T.XLSX)", ExportFormat.class);
+            builder.addStatement("$1T exporter = new $1T(format,columns,rows,output)", CsvExportExcel.class);
+            builder.addStatement("exporter.setBom(config != null && config.isCsvBom())");
+            builder.addStatement("exporter.setFormulaEscape(config == null || config.isCsvFormulaEscape())");
+            builder.addStatement("exporter.exportCsv()");
+            builder.addStatement("output.close()");
+            builder.addStatement("return");
+            builder.endControlFlow();
+        }
+        addExportStatements(builder, method, "output");
+        builder.addStatement("output.close()");
+        builder.addCode("$<} finally {\n$>permit.close();\n$<}\n");
+        // Errors as well, or the response would wait for the next chunk forever
+        builder.addCode("$<} catch ($1T e) {\n$>", Throwable.class);
+        if (fluxSource) {
+            builder.addStatement("sheet.cancel()");
+        }
+        builder.addStatement("output.fail(e)");
+        builder.addStatement("throw e");
+        builder.addCode("$<}\n$<});\n$<} catch ($1T e) {\n$>", RejectedExecutionException.class);
+        builder.addStatement("return $1T.error(new $2T($3T.SERVICE_UNAVAILABLE))", FLUX,
+                ClassName.get("org.springframework.web.server", "ResponseStatusException"),
+                ClassName.get("org.springframework.http", "HttpStatus"));
+        builder.addCode("$<}\n");
+        // Chunks are taken on demand of the response, blocking on an elastic thread while the export is behind. However the
+        // response ends, the output is cancelled so that the export never blocks handing chunks over to nobody.
+        builder.addCode("return $1T.<$2T>generate(sink -> {\n$>try {\n$>", FLUX, DATA_BUFFER);
+        builder.addStatement("byte[] chunk = output.take()");
+        builder.addCode("if (chunk == null) {\n$>sink.complete();\n$<} else {\n$>sink.next($1L.bufferFactory().wrap(chunk));\n$<}\n",
+                respName);
+        builder.addCode("$<} catch ($1T e) {\n$>sink.error(e);\n$<}\n$<}).subscribeOn($2T.elastic()).doFinally(signal -> output.cancel());\n",
+                IOException.class, ClassName.get("reactor.core.scheduler", "Schedulers"));
+        builder.addCode("$<});\n");
+        return builder.build();
+    }
+
+    /**
+     * @return xlsx and the extra formats of the api
+     */
+    private List<CodeBlock> exportFormats(ExcelMethodModel method) {
+        List<CodeBlock> formats = new ArrayList<>();
+        formats.add(CodeBlock.of("$1T.$2L", ExportFormat.class, ExportFormat.XLSX.name()));
+        for (ExportFormat format : new LinkedHashSet<>(Arrays.asList(method.getAnnotation().formats()))) {
+            if (format != ExportFormat.XLSX) {
+                formats.add(CodeBlock.of("$1T.$2L", ExportFormat.class, format.name()));
+            }
+        }
+        return formats;
+    }
+
+    /**
+     * Generates the api of a multi-sheet workbook and a sheet method for each data method, sheets are fetched and generated
+     * concurrently on the {@link StageExecutor} by {@link MultiSheetExportExcel}
+     */
+    private List<MethodSpec> generateWorkbookMethods(List<ExcelMethodModel> methods, ControllerModel controller) {
+        List<MethodSpec> methodSpecs = new ArrayList<>();
+        ExcelMethodModel first = methods.get(0);
+        String methodName = first.getMethodElement().getSimpleName().toString();
+        MethodSpec.Builder builder = MethodSpec.methodBuilder(methodName).addModifiers(Modifier.PUBLIC).returns(void.class);
+        addMappingAnnotations(builder, first);
+        // Parameters of all data methods, parameters with the same name are shared
+        Set<String> paramNames = new HashSet<>();
+        Map<String, TypeMirror> paramTypes = new HashMap<>();
+        String servletRespName = null;
+        for (ExcelMethodModel method : methods) {
+            String respName = addParameters(builder, method, paramNames, paramTypes);
+            if (servletRespName == null) {
+                servletRespName = respName;
+            }
+        }
+        if (servletRespName == null) {
+            servletRespName = addServletResponse(builder, paramNames);
+        }
+        addExceptions(builder, Collections.emptyList());
+        String fileName = "";
+        for (ExcelMethodModel method : methods) {
+            if (method.getAnnotation().caches().length > 0) {
+                error("Cacheable is not supported by multi-sheet excel api " + first.getAnnotation().value());
+            }
+            if (method.getAnnotation().formats().length > 0) {
+                error("Formats are not supported by multi-sheet excel api " + first.getAnnotation().value());
+            }
+            if ("".equals(fileName)) {
+                fileName = method.getAnnotation().fileName();
+            }
+        }
+        addResponseHeaders(builder, fileName, servletRespName, false);
+        boolean async = first.getAnnotation().async();
+        if (async) {
+            acquirePermit(builder, first, controller, servletRespName);
+            beginAsync(builder, addServletRequest(builder, first, paramNames));
+            builder.beginControlFlow("try");
+        } else {
+            beginAdmission(builder, first, controller, servletRespName);
+        }
+        ParameterizedTypeName sheetSupplier = ParameterizedTypeName.get(ClassName.get("java.util.concurrent", "Callable"),
+                ClassName.get(ExportSheet.class));
+        builder.addStatement("$1T<$2T> sheets = new $3T<>()", List.class, sheetSupplier, ArrayList.class);
+        for (int i = 0; i < methods.size(); i++) {
+            ExcelMethodModel method = methods.get(i);
+            String sheetMethodName = methodName + "Sheet" + i;
+            MethodSpec.Builder sheetBuilder =
+                    MethodSpec.methodBuilder(sheetMethodName).addModifiers(Modifier.PRIVATE).returns(ExportSheet.class);
+            List<String> args = new ArrayList<>();
+            for (VariableElement variable : method.getMethodElement().getParameters()) {
+                if (variable.getAnnotation(ParamIgnore.class) == null && !isPagingParam(method, variable)) {
+                    args.add(variable.getSimpleName().toString());
+                    sheetBuilder.addParameter(TypeName.get(variable.asType()), variable.getSimpleName().toString());
+                }
+            }
+            for (TypeMirror throwType : method.getMethodElement().getThrownTypes()) {
+                sheetBuilder.addException(TypeName.get(throwType));
+            }
+            addSheetStatements(sheetBuilder, method, controller);
+            sheetBuilder.addStatement("return new $1T(styleBuilder.build(),columns,categories,rows)", ExportSheet.class);
+            methodSpecs.add(sheetBuilder.build());
+            builder.addStatement("sheets.add(() -> $1L($2L))", sheetMethodName, String.join(",", args));
+        }
+        builder.addStatement("$1T exporter = new $1T(sheets,$2L)", MultiSheetExportExcel.class, responseOutput(servletRespName, async));
+        builder.addStatement("exporter.setConfig(configProvider.getIfAvailable())");
+        builder.addStatement("exporter.setExecutor(stageExecutorProvider.getIfAvailable($1T::getDefault))", StageExecutor.class);
+        addCompressionStatement(builder, first);
+        builder.addStatement("exporter.exportExcel()");
+        endAdmission(builder);
+        if (async) {
+            endAsync(builder, servletRespName);
+        }
+        methodSpecs.add(0, builder.build());
+        return methodSpecs;
+    }
+
+    private void addMappingAnnotations(MethodSpec.Builder builder, ExcelMethodModel method) {
+        addMappingAnnotations(builder, method, null, method.getAnnotation().value());
+    }
+
+    /**
+     * @param mapping mapping annotation, eg: 'PostMapping', or null for the one of the data method
+     * @param path    mapping request path
+     */
+    private void addMappingAnnotations(MethodSpec.Builder builder, ExcelMethodModel method, String mapping, String path) {
         // Method Annotations
         String mappingMethod = "GetMapping";
         for (AnnotationMirror ann : method.getMethodElement().getAnnotationMirrors()) {
@@ -163,97 +600,242 @@ public class ExcelExportProcessor extends AbstractProcessor {
                 }
             }
         }
+        if (mapping != null) {
+            mappingMethod = mapping;
+        }
         builder.addAnnotation(
                 AnnotationSpec.builder(
                         ClassName.get(processingEnv.getElementUtils()
                                 .getTypeElement("org.springframework.web.bind.annotation." + mappingMethod)))
-                        .addMember("value", "\"" + method.getAnnotation().value() + "\"").build());
+                        .addMember("value", "\"" + path + "\"").build());
         builder.addAnnotations(buildAnnotations(method.getAnnotation().annotations()));
-        // Parameters
-        Set<String> paramNames = new HashSet<>();
+    }
+
+    /**
+     * Adds the api parameters of the data method, parameters whose names have been added already are skipped
+     *
+     * @return name of the HttpServletResponse parameter, or null if absent
+     */
+    private String addParameters(MethodSpec.Builder builder, ExcelMethodModel method, Set<String> paramNames,
+                                 Map<String, TypeMirror> paramTypes) {
         String servletRespName = null;
         for (VariableElement variable : method.getMethodElement().getParameters()) {
             ParamIgnore paramIgnore = variable.getAnnotation(ParamIgnore.class);
-            if (paramIgnore != null) {
+            if (paramIgnore != null || isPagingParam(method, variable)) {
                 continue;
             }
             String paramName = variable.getSimpleName().toString();
-            if (processingEnv.getTypeUtils().isSubtype(variable.asType(),
-                    processingEnv.getElementUtils().getTypeElement("javax.servlet.http.HttpServletResponse").asType())) {
+            if (processingEnv.getTypeUtils().isSubtype(variable.asType(), responseType())) {
                 servletRespName = paramName;
             }
-            paramNames.add(paramName);
+            if (!paramNames.add(paramName)) {
+                if (!processingEnv.getTypeUtils().isSameType(paramTypes.get(paramName), variable.asType())) {
+                    error("Parameter " + paramName + " of " + method.getMethodElement() + " conflicts with the same named parameter");
+                }
+                continue;
+            }
+            paramTypes.put(paramName, variable.asType());
             ParameterSpec.Builder varBuilder = ParameterSpec.builder(TypeName.get(variable.asType()), paramName);
             for (AnnotationMirror varAnn : variable.getAnnotationMirrors()) {
                 varBuilder.addAnnotation(AnnotationSpec.get(varAnn));
             }
             builder.addParameter(varBuilder.build());
         }
-        if (servletRespName == null) {
-            //If HttpServletResponse isn't in input arguments, then add it.
-            servletRespName = "response";
-            int i = 1;
-            while (paramNames.contains(servletRespName)) {
-                servletRespName = "response" + i;
-                i++;
+        return servletRespName;
+    }
+
+    /**
+     * If HttpServletResponse isn't in input arguments, then add it.
+     *
+     * @return name of the HttpServletResponse parameter
+     */
+    private String addServletResponse(MethodSpec.Builder builder, Set<String> paramNames) {
+        String servletRespName = "response";
+        int i = 1;
+        while (paramNames.contains(servletRespName)) {
+            servletRespName = "response" + i;
+            i++;
+        }
+        builder.addParameter(ParameterSpec.builder(TypeName.get(responseType()), servletRespName).build());
+        return servletRespName;
+    }
+
+    /**
+     * Finds the HttpServletRequest parameter of the data method, or else adds it.
+     *
+     * @return name of the HttpServletRequest parameter
+     */
+    private String addServletRequest(MethodSpec.Builder builder, ExcelMethodModel method, Set<String> paramNames) {
+        TypeMirror requestType = processingEnv.getElementUtils().getTypeElement(
+                reactive ? "org.springframework.http.server.reactive.ServerHttpRequest" : "javax.servlet.http.HttpServletRequest").asType();
+        for (VariableElement variable : method.getMethodElement().getParameters()) {
+            if (variable.getAnnotation(ParamIgnore.class) == null && processingEnv.getTypeUtils().isSubtype(variable.asType(), requestType)) {
+                return variable.getSimpleName().toString();
             }
-            builder.addParameter(ParameterSpec.builder(
-                    TypeName.get(processingEnv.getElementUtils().getTypeElement("javax.servlet.http.HttpServletResponse").asType()),
-                    servletRespName).build());
         }
-        // Exceptions
+        String servletReqName = "request";
+        int i = 1;
+        while (paramNames.contains(servletReqName)) {
+            servletReqName = "request" + i;
+            i++;
+        }
+        paramNames.add(servletReqName);
+        builder.addParameter(ParameterSpec.builder(TypeName.get(requestType), servletReqName).build());
+        return servletReqName;
+    }
+
+    /**
+     * @return HttpServletResponse, or ServerHttpResponse of WebFlux handlers
+     */
+    private TypeMirror responseType() {
+        return processingEnv.getElementUtils().getTypeElement(
+                reactive ? "org.springframework.http.server.reactive.ServerHttpResponse" : "javax.servlet.http.HttpServletResponse").asType();
+    }
+
+    private void addExceptions(MethodSpec.Builder builder, List<ExcelMethodModel> methods) {
         boolean ioExceptionIncluded = false;
-        for (TypeMirror throwType : method.getMethodElement().getThrownTypes()) {
-            if (processingEnv.getTypeUtils()
-                    .isSubtype(processingEnv.getElementUtils().getTypeElement("java.io.IOException").asType(), throwType)) {
-                ioExceptionIncluded = true;
+        for (ExcelMethodModel method : methods) {
+            for (TypeMirror throwType : method.getMethodElement().getThrownTypes()) {
+                if (processingEnv.getTypeUtils()
+                        .isSubtype(processingEnv.getElementUtils().getTypeElement("java.io.IOException").asType(), throwType)) {
+                    ioExceptionIncluded = true;
+                }
+                builder.addException(TypeName.get(throwType));
             }
-            builder.addException(TypeName.get(throwType));
         }
         if (!ioExceptionIncluded) {
             builder.addException(TypeName.get(processingEnv.getElementUtils().getTypeElement("java.io.IOException").asType()));
         }
-        // Response Header
-        if (!"".equals(method.getAnnotation().fileName())) {
-            String fileName = method.getAnnotation().fileName();
-            if (fileName.contains(REPLACE_CACHE_FILE_TIMESTAMP)) {
-                fileName = "String.format(\"" + fileName.replace(REPLACE_CACHE_FILE_TIMESTAMP, "%1$d") + "\",System.currentTimeMillis())";
-                builder.addStatement("$1L.setHeader(\"Content-Disposition\",\"attachment;filename=\"+ $2L +\".xlsx\")", servletRespName,
-                        fileName);
-            } else {
-                builder.addStatement("$1L.setHeader(\"Content-Disposition\",\"attachment;filename=$2L.xlsx\")", servletRespName, fileName);
-            }
+    }
+
+    /**
+     * Adds Content-Disposition and Content-Type headers, taken from the resolved 'format' variable if formatted
+     */
+    private void addResponseHeaders(MethodSpec.Builder builder, String fileName, String servletRespName, boolean formatted) {
+        String extension = formatted ? "\".\"+format.getExtension()" : "\".xlsx\"";
+        String setHeader = reactive ? servletRespName + ".getHeaders().set" : servletRespName + ".setHeader";
+        builder.addStatement("$1L(\"Content-Disposition\",\"attachment;filename=\"+ $2L +$3L)", setHeader,
+                fileNameExpression(fileName), extension);
+        String contentType = formatted ? "format.getContentType()" : "\"application/msexcel\"";
+        if (reactive) {
+            builder.addStatement("$1L(\"Content-Type\",$2L)", setHeader, contentType);
         } else {
-            builder.addStatement("$1L.setHeader(\"Content-Disposition\",\"attachment;filename=\"+System.currentTimeMillis()+\".xlsx\")",
-                    servletRespName);
+            builder.addStatement("$1L.setContentType($2L)", servletRespName, contentType);
         }
-        builder.addStatement("$1L.setContentType(\"application/msexcel\")", servletRespName);
-        // Cache
-        if (method.getAnnotation().caches().length > 0) {
-            int index = 0;
-            for (Cacheable conf : method.getAnnotation().caches()) {
-                builder.addCode("$1Lif($2L) {\n", index == 0 ? "" : "else ", conf.condition());
-                builder.addStatement("$1T cacheFile = $2T.newestFile(\"$3L\")", File.class, FileUtils.class, conf.cacheDir());
-                builder.addCode("if(cacheFile != null) {\n");
-                builder.addStatement("long timestamp = Long.parseLong(cacheFile.getName())");
-                builder.addCode("if(!$1L.$2L) {\n", controller.getRefName(method.getRef()), conf.checkUpdateMethod());
-                builder.addCode("try($1T fis=new $1T(cacheFile)) {\n" +
-                        "$2T output = $3L.getOutputStream();\nbyte[] b=new byte[1024];\nint length;\n" +
-                        "while((length=fis.read(b))>0){\noutput.write(b,0,length);\n}\n" +
-                        "output.flush();\n}\n", FileInputStream.class, OutputStream.class, servletRespName);
-                builder.addCode("return;}\n");
-                builder.addCode("}\n");
-                builder.addCode("}\n");
-                index++;
-            }
+    }
+
+    /**
+     * @return expression of the download file name without extension, '{timestamp}' is replaced with the current time
+     */
+    private static CodeBlock fileNameExpression(String fileName) {
+        if ("".equals(fileName)) {
+            return CodeBlock.of("System.currentTimeMillis()");
+        } else if (fileName.contains(REPLACE_CACHE_FILE_TIMESTAMP)) {
+            return CodeBlock.of("String.format($1S,System.currentTimeMillis())", fileName.replace(REPLACE_CACHE_FILE_TIMESTAMP, "%1$d"));
+        }
+        return CodeBlock.of("$1S", fileName);
+    }
+
+    /**
+     * Starts servlet async processing and opens the export task submitted to {@link ExportExecutor}, the following
+     * statements run on the export thread until {@link #endAsync(MethodSpec.Builder, String)}
+     */
+    private void beginAsync(MethodSpec.Builder builder, String servletReqName) {
+        builder.addStatement("$1T asyncContext = $2L.startAsync()", ClassName.get("javax.servlet", "AsyncContext"), servletReqName);
+        builder.addStatement("$1T asyncConfig = configProvider.getIfAvailable()", ExcelExportConfig.class);
+        builder.addStatement("asyncContext.setTimeout(asyncConfig == null ? 0 : asyncConfig.getAsyncTimeout())");
+        // The container recycles the response once the context times out or fails, the export must stop touching it
+        ClassName asyncEvent = ClassName.get("javax.servlet", "AsyncEvent");
+        builder.addStatement("$1T asyncGuard = new $1T()", AsyncExportGuard.class);
+        builder.addCode("asyncContext.addListener(new $1T() {\n$>", ClassName.get("javax.servlet", "AsyncListener"));
+        for (String event : new String[]{"onComplete", "onTimeout", "onError"}) {
+            builder.addCode("@$1T\npublic void $2L($3T event) {\n$>asyncGuard.end();\n$<}\n\n", Override.class, event, asyncEvent);
+        }
+        builder.addCode("@$1T\npublic void onStartAsync($2T event) {\n}\n$<});\n", Override.class, asyncEvent);
+        builder.addCode("try {\n$>exportExecutorProvider.getIfAvailable($1T::getDefault).execute(() -> {\n$>try {\n$>",
+                ExportExecutor.class);
+    }
+
+    /**
+     * Closes the export task: failures before the response is committed are answered with 500, and with 503 if the
+     * executor rejects the export, in which case the permit is released at once
+     */
+    private void endAsync(MethodSpec.Builder builder, String servletRespName) {
+        builder.addCode("$<} catch ($1T e) {\n$>if (!asyncGuard.isEnded() && !$2L.isCommitted()) {\n$>$2L.reset();\n" +
+                        "$2L.setStatus($3T.SC_INTERNAL_SERVER_ERROR);\n$<}\nthrow e;\n$<} finally {\n$>" +
+                        "if (asyncGuard.finish()) {\n$>asyncContext.complete();\n$<}\n$<}\n" +
+                        "$<});\n$<} catch ($4T e) {\n$>permit.close();\n$2L.sendError($3T.SC_SERVICE_UNAVAILABLE);\nasyncContext.complete();\n$<}\n",
+                Exception.class, servletRespName, ClassName.get("javax.servlet.http", "HttpServletResponse"),
+                RejectedExecutionException.class);
+    }
+
+    /**
+     * @return expression of the output stream of the response, guarded against the end of the async context if async
+     */
+    private static String responseOutput(String servletRespName, boolean async) {
+        return async ? "asyncGuard.guard(" + servletRespName + ".getOutputStream())" : servletRespName + ".getOutputStream()";
+    }
+
+    /**
+     * Admits the export through {@link ExportGovernor}, rejected exports are answered with 503. The following statements
+     * run with the permit held until {@link #endAdmission(MethodSpec.Builder)}
+     */
+    private void beginAdmission(MethodSpec.Builder builder, ExcelMethodModel method, ControllerModel controller,
+                                String servletRespName) {
+        acquirePermit(builder, method, controller, servletRespName);
+        builder.beginControlFlow("try");
+    }
+
+    /**
+     * Acquires the export permit, rejected exports are answered with 503
+     */
+    private void acquirePermit(MethodSpec.Builder builder, ExcelMethodModel method, ControllerModel controller,
+                               String servletRespName) {
+        builder.addStatement("$1T.Permit permit", ExportGovernor.class);
+        builder.beginControlFlow("try");
+        builder.addStatement("permit = $1L", acquireStatement(method, estimateExpression(method, controller)));
+        builder.nextControlFlow("catch ($1T e)", ExportRejectedException.class);
+        builder.addStatement("$1L.reset()", servletRespName);
+        builder.addStatement("$1L.sendError($2T.SC_SERVICE_UNAVAILABLE, e.getMessage())", servletRespName,
+                ClassName.get("javax.servlet.http", "HttpServletResponse"));
+        builder.addStatement("return");
+        builder.endControlFlow();
+    }
+
+    private void endAdmission(MethodSpec.Builder builder) {
+        builder.nextControlFlow("finally");
+        builder.addStatement("permit.close()");
+        builder.endControlFlow();
+    }
+
+    /**
+     * @param estimate expression of the estimated row count
+     * @return statement acquiring the export permit with the endpoint limit and row estimate of the api
+     */
+    private CodeBlock acquireStatement(ExcelMethodModel method, String estimate) {
+        return CodeBlock.of("exportGovernorProvider.getIfAvailable($1T::getDefault).acquire($2S, $3L, $4L)", ExportGovernor.class,
+                method.getAnnotation().value(), method.getAnnotation().maxConcurrent(), estimate);
+    }
+
+    /**
+     * @return expression of the estimated row count of the api, -1 if no estimate method
+     */
+    private static String estimateExpression(ExcelMethodModel method, ControllerModel controller) {
+        String estimateMethod = method.getAnnotation().estimateMethod();
+        return "".equals(estimateMethod) ? "-1" : controller.getRefName(method.getRef()) + "." + estimateMethod;
+    }
+
+    /**
+     * Adds statements that get the data method's result and compose the sheet model: styleBuilder, columns, categories and rows
+     */
+    private void addSheetStatements(MethodSpec.Builder builder, ExcelMethodModel method, ControllerModel controller) {
+        if (method.getAnnotation().paging().length > 0) {
+            addPagedSheetStatements(builder, method, controller, method.getAnnotation().paging()[0]);
+            return;
         }
         // Get Controller's result
-        String params = method.getMethodElement().getParameters().stream().map(param -> {
-            ParamIgnore ignore = param.getAnnotation(ParamIgnore.class);
-            return ignore == null ? param.getSimpleName().toString() : ignore.value();
-        }).reduce((p1, p2) -> p1 + "," + p2).orElse("");
         builder.addStatement("$1L result = $2L.$3L($4L)", method.getMethodElement().getReturnType().toString(),
-                controller.getRefName(method.getRef()), method.getMethodElement().getSimpleName().toString(), params);
+                controller.getRefName(method.getRef()), method.getMethodElement().getSimpleName().toString(), dataMethodArgs(method));
         // Parse Excel Sheet Element
         StringBuilder sheetAccessBuilder = new StringBuilder("result");
         DeclaredType returnType = ((DeclaredType) method.getMethodElement().getReturnType());
@@ -262,31 +844,78 @@ public class ExcelExportProcessor extends AbstractProcessor {
         // Parse Excel Result Detail
         DeclaredType sheetType = (DeclaredType) sheetListType.getTypeArguments().get(0);
         parseSheet(builder, sheetType);
-        // Compose Excel Exporter
-        if (method.getAnnotation().caches().length > 0) { //
-            int index = 0;
-            for (Cacheable conf : method.getAnnotation().caches()) {
-                builder.addCode("$1Lif($2L) {\n", index == 0 ? "" : "else ", conf.condition());
-                builder.addStatement("long maxTimestamp = $1L.$2L", controller.getRefName(method.getRef()), conf.timestampMethod());
-                builder.addStatement("$1T cacheFile = $2T.file(\"$3L\",maxTimestamp)", File.class, FileUtils.class, conf.cacheDir());
-                builder.addCode("try($1T fos=new $1T(cacheFile)) {\n" +
-                                "new $2T(styleBuilder.build(),columns,categories,dataset,fos).exportExcel();\n}\n",
-                        FileOutputStream.class, ExportExcel.class);
-                builder.addCode("try($1T fis=new $1T(cacheFile)) {\n" +
-                        "$2T output = $3L.getOutputStream();\nbyte[] b=new byte[1024];\nint length;\n" +
-                        "while((length=fis.read(b))>0){\noutput.write(b,0,length);\n}\n" +
-                        "output.flush();\n}\n", FileInputStream.class, OutputStream.class, servletRespName);
-                builder.addCode("\n} else {\n");
-                builder.addStatement("new $1T(styleBuilder.build(),columns,categories,dataset,$2L.getOutputStream()).exportExcel()",
-                        ExportExcel.class, servletRespName);
-                builder.addCode("\n}");
-                index++;
+    }
+
+    /**
+     * The data method is called for each page inside the fetcher lambda, whose parameter is the page number
+     */
+    private void addPagedSheetStatements(MethodSpec.Builder builder, ExcelMethodModel method, ControllerModel controller,
+                                         Paging paging) {
+        if (method.getAnnotation().caches().length > 0) {
+            error("Cacheable is not supported by paged excel api " + method.getAnnotation().value());
+        }
+        Set<String> names = new HashSet<>();
+        for (VariableElement variable : method.getMethodElement().getParameters()) {
+            names.add(variable.getSimpleName().toString());
+        }
+        if (!names.contains(paging.pageParam()) || !names.contains(paging.sizeParam())) {
+            error("Paging parameters " + paging.pageParam() + " and " + paging.sizeParam() + " not found in " + method.getMethodElement());
+        }
+        StringBuilder sheetAccessBuilder = new StringBuilder("result");
+        DeclaredType sheetListType = findSheet((DeclaredType) method.getMethodElement().getReturnType(), sheetAccessBuilder);
+        DeclaredType sheetType = (DeclaredType) sheetListType.getTypeArguments().get(0);
+        builder.addCode("$1T<$2L> sheet = new $1T<>($3L, $4L -> {\n$>", PagedIterator.class, sheetType, paging.firstPage(),
+                paging.pageParam());
+        builder.addStatement("$1L result = $2L.$3L($4L)", method.getMethodElement().getReturnType().toString(),
+                controller.getRefName(method.getRef()), method.getMethodElement().getSimpleName().toString(), dataMethodArgs(method));
+        builder.addStatement("return $1T.page($2L, $3L)", PagedIterator.class, sheetAccessBuilder.toString(),
+                "".equals(paging.hasNext()) ? paging.pageSize() : paging.hasNext());
+        builder.addCode("$<});\n");
+        parseSheet(builder, sheetType);
+    }
+
+    /**
+     * @return arguments of the data method call, ignored parameters are replaced by their values and paging parameters by
+     * the page number and size
+     */
+    private static String dataMethodArgs(ExcelMethodModel method) {
+        Paging paging = method.getAnnotation().paging().length > 0 ? method.getAnnotation().paging()[0] : null;
+        return method.getMethodElement().getParameters().stream().map(param -> {
+            String name = param.getSimpleName().toString();
+            if (paging != null && name.equals(paging.pageParam())) {
+                return name;
+            } else if (paging != null && name.equals(paging.sizeParam())) {
+                return String.valueOf(paging.pageSize());
             }
-        } else {
-            builder.addStatement("new $1T(styleBuilder.build(),columns,categories,dataset,$2L.getOutputStream()).exportExcel()",
-                    ExportExcel.class, servletRespName);
+            ParamIgnore ignore = param.getAnnotation(ParamIgnore.class);
+            return ignore == null ? name : ignore.value();
+        }).reduce((p1, p2) -> p1 + "," + p2).orElse("");
+    }
+
+    /**
+     * @return whether the parameter is filled in by paging instead of the api
+     */
+    private static boolean isPagingParam(ExcelMethodModel method, VariableElement variable) {
+        if (method.getAnnotation().paging().length == 0) {
+            return false;
+        }
+        Paging paging = method.getAnnotation().paging()[0];
+        String name = variable.getSimpleName().toString();
+        return name.equals(paging.pageParam()) || name.equals(paging.sizeParam());
+    }
+
+    private void addExportStatements(MethodSpec.Builder builder, ExcelMethodModel method, String output) {
+        builder.addStatement("$1T exporter = new $1T(styleBuilder.build(),columns,categories,rows,$2L)", ExportExcel.class, output);
+        builder.addStatement("exporter.setConfig(config)");
+        addCompressionStatement(builder, method);
+        builder.addStatement("exporter.exportExcel()");
+    }
+
+    private void addCompressionStatement(MethodSpec.Builder builder, ExcelMethodModel method) {
+        if (method.getAnnotation().compression().length > 0) {
+            builder.addStatement("exporter.setCompression($1T.$2L)", ExcelExportConfig.Compression.class,
+                    method.getAnnotation().compression()[0].name());
         }
-        return builder.build();
     }
 
     private List<AnnotationSpec> buildAnnotations(AnnotationDef[] annDefs) {
@@ -404,6 +1033,15 @@ public class ExcelExportProcessor extends AbstractProcessor {
         } else {
             builder.addCode("if (config != null) {\n styleBuilder.setFreezeHeader(config.isFreezeHeader());\n}\n");
         }
+        builder.addCode("if (config != null) {\n styleBuilder.setDateFormat(config.getDateFormat());\n}\n");
+        if (sheetAnn.autoWidth().length > 0) {
+            if (sheetAnn.autoWidth()[0]) {
+                builder.addStatement("styleBuilder.setAutoWidthRows(config == null ? $1L : config.getWidthSampleRows())",
+                        new ExcelExportConfig().getWidthSampleRows());
+            }
+        } else {
+            builder.addCode("if (config != null && config.isAutoWidth()) {\n styleBuilder.setAutoWidthRows(config.getWidthSampleRows());\n}\n");
+        }
         // Headers
         int offset = sheetAnn.indexIncluded() ? 1 : 0;
         builder.addStatement("$1T[] columns = new $1T[$2L]", com.dream.spring.excel.Column.class, sheetAnn.headers().length + offset);
@@ -430,9 +1068,11 @@ public class ExcelExportProcessor extends AbstractProcessor {
                 }
                 headTitle += "+" + note;
             }
-            builder.addStatement("columns[$1L] = $2T.builder($3L).setWidth($4L).setHeaderStyle($5L).setStyle($6L).build()", i + offset,
+            CodeBlock stringStrategy = column == null || column.stringStrategy().length == 0 ? CodeBlock.of("") :
+                    CodeBlock.of(".setStringStrategy($1T.StringStrategy.$2L)", ExcelExportConfig.class, column.stringStrategy()[0].name());
+            builder.addStatement("columns[$1L] = $2T.builder($3L).setWidth($4L).setHeaderStyle($5L).setStyle($6L)$7L.build()", i + offset,
                     com.dream.spring.excel.Column.class, headTitle, header.width(),
-                    parseStyle(header.style()), column == null ? "null" : parseStyle(column.style()));
+                    parseStyle(header.style()), column == null ? "null" : parseStyle(column.style()), stringStrategy);
         }
         // Categories
         builder.addStatement("$1T[] categories = new $1T[$2L]", HeaderCategory.class, sheetAnn.categories().length);
@@ -443,24 +1083,26 @@ public class ExcelExportProcessor extends AbstractProcessor {
                     category.end() + offset, parseStyle(category.style()));
         }
         // Data
-        builder.addStatement("$1T<$2T<Integer, $3T>> dataset = new $4T<>()", List.class, Map.class, CellData.class, ArrayList.class);
         builder.addStatement("$1T<String,$2T> cellStyleCache=new $3T<>()", Map.class, CustomStyle.class, HashMap.class);
-        builder.addCode("int i = 1;\nfor($1L line : sheet) {\n", sheetType);
-        builder.addStatement("$1T<Integer,$2T> item = new $3T<>()", Map.class, CellData.class, HashMap.class);
+        builder.addStatement("$1T<$2L> lines = sheet.iterator()", Iterator.class, sheetType);
+        builder.addCode("$1T rows = new $1T() {\nint i = 1;\n", RowSource.class);
+        builder.addCode("@Override\npublic boolean fill($1T item) {\n", RowBuffer.class);
+        builder.addCode("if (!lines.hasNext()) {\nreturn false;\n}\n");
+        builder.addStatement("$1L line = lines.next()", sheetType);
         if (sheetAnn.indexIncluded()) {
-            builder.addStatement("item.put(0,$1T.builder(String.valueOf(i)).build())", CellData.class);
+            builder.addStatement("item.set(0, String.valueOf(i))");
         }
         for (int i = 0; i < sheetAnn.headers().length; i++) {
             Header header = sheetAnn.headers()[i];
             Column column = columns[i];
             String commonCode;
             if (column != null && column.i18nSupport()) {
-                commonCode = "item.put($1L,$2T.builder(" + String.format(i18nMethod, "$3T.$4L(line$5L)") + ")";
+                commonCode = "item.set($1L, " + String.format(i18nMethod, "$2L.$3L(line$4L)");
             } else {
-                commonCode = "item.put($1L,$2T.builder($3L.$4L(line$5L))";
+                commonCode = "item.set($1L, $2L.$3L(line$4L)";
             }
             if (column == null) {
-                builder.addStatement(commonCode + ".build())", i + offset, CellData.class, StringUtils.class.getName(), "valueOf",
+                builder.addStatement(commonCode + ")", i + offset, StringUtils.class.getName(), "valueOf",
                         parseFieldGet(header.field()));
             } else {
                 String className = StringUtils.class.getName();
@@ -481,13 +1123,21 @@ public class ExcelExportProcessor extends AbstractProcessor {
                     builder.addCode("}\n");
                     index++;
                 }
-                builder.addStatement(commonCode + ".setType($6L).setStyle(cellStyle$7L).build())", i + offset,
-                        CellData.class, className, method, parseFieldGet(header.field()),
-                        CellType.class.getName() + "." + column.type().name(), i);
+                String typedSetter = StringUtils.class.getName().equals(className) && !column.i18nSupport() ?
+                        typedSetter(findFieldType(sheetType, header.field()), column.type()) : null;
+                if (typedSetter != null) {
+                    // Numbers, booleans and dates are set as typed values without String conversion
+                    builder.addStatement("item.$1L($2L, line$3L, cellStyle$4L)", typedSetter, i + offset, parseFieldGet(header.field()), i);
+                } else {
+                    builder.addStatement(commonCode + ", $5L, cellStyle$6L)", i + offset,
+                            className, method, parseFieldGet(header.field()),
+                            CellType.class.getName() + "." + column.type().name(), i);
+                }
             }
         }
-        builder.addStatement("dataset.add(item)");
-        builder.addCode("i++;\n}\n");
+        builder.addStatement("i++");
+        builder.addStatement("return true");
+        builder.addCode("}\n};\n");
     }
 
     private static String parseFieldGet(String fieldStr) {
@@ -517,6 +1167,52 @@ public class ExcelExportProcessor extends AbstractProcessor {
         return element.getAnnotation(Column.class);
     }
 
+    private TypeMirror findFieldType(TypeMirror type, String fieldStr) {
+        for (String field : fieldStr.split("[.]")) {
+            type = processingEnv.getTypeUtils().asMemberOf((DeclaredType) type, findChild(type, field));
+        }
+        return type;
+    }
+
+    /**
+     * Finds the {@link RowBuffer} setter of typed values for the field type and the column's cell type
+     *
+     * @return setter name, or null if the value should be set as String
+     */
+    private String typedSetter(TypeMirror fieldType, CellType cellType) {
+        if (cellType == CellType.NUMERIC) {
+            switch (fieldType.getKind()) {
+                case LONG:
+                case INT:
+                case SHORT:
+                case BYTE:
+                    return "setLong";
+                case FLOAT:
+                case DOUBLE:
+                    return "setDouble";
+                case DECLARED:
+                    if (isSubtype(fieldType, "java.lang.Number")) {
+                        return "setNumber";
+                    } else if (isSubtype(fieldType, "java.util.Date")) {
+                        return "setDate";
+                    }
+                    return null;
+                default:
+                    return null;
+            }
+        } else if (cellType == CellType.BOOLEAN) {
+            if (fieldType.getKind() == TypeKind.BOOLEAN || (fieldType.getKind() == TypeKind.DECLARED &&
+                    isSubtype(fieldType, "java.lang.Boolean"))) {
+                return "setBoolean";
+            }
+        }
+        return null;
+    }
+
+    private boolean isSubtype(TypeMirror type, String className) {
+        return processingEnv.getTypeUtils().isSubtype(type, processingEnv.getElementUtils().getTypeElement(className).asType());
+    }
+
     private Element findChild(TypeMirror type, String field) {
         List<Element> elements = new ArrayList<>();
         composeAllElements(processingEnv.getTypeUtils().asElement(type), elements);
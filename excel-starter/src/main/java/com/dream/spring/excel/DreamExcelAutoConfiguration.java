@@ -18,13 +18,18 @@ package com.dream.spring.excel;
 
 import com.dream.spring.excel.bean.ExcelExportConfig;
 import com.dream.spring.excel.bean.ExcelI18n;
+import com.dream.spring.excel.importation.ImportExecutor;
+import com.dream.spring.excel.xlsx.DeflatedOutput;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnClass;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.io.File;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 
@@ -44,6 +49,25 @@ public class DreamExcelAutoConfiguration {
     public DreamExcelAutoConfiguration(DreamExcelProperties properties) {
         this.properties = properties;
         FileUtils.setCacheRoot(properties.getCacheDir());
+        configureTempFiles(properties.getTemp());
+        DeflatedOutput.setDefaultExecutor(DeflatedOutput.newExecutor(properties.getExport().getDeflateThreads()));
+    }
+
+    private void configureTempFiles(DreamExcelProperties.TempProperties temp) {
+        TempFileManager manager = TempFileManager.getDefault();
+        if (temp.getDir() != null && !"".equals(temp.getDir())) {
+            manager.setDirectory(new File(temp.getDir()));
+        }
+        manager.setQuota(temp.getQuota());
+        manager.setQuotaPolicy(temp.getQuotaPolicy());
+        manager.setQueueTimeout(temp.getQueueTimeout());
+        manager.setOrphanAge(temp.getOrphanAge());
+        if (temp.isPoiStrategy()) {
+            manager.installPoiStrategy();
+        }
+        if (temp.getReapInterval() > 0) {
+            manager.startReaper(temp.getReapInterval());
+        }
     }
 
     @Bean
@@ -51,6 +75,77 @@ public class DreamExcelAutoConfiguration {
         return properties.getExport();
     }
 
+    /**
+     * Bounded executor of async export apis, sized by '<i>dream.excel.export.async-*</i>'
+     *
+     * @param contextPropagator propagates context of the request thread into exports
+     * @return export executor
+     */
+    @ConditionalOnMissingBean(ExportExecutor.class)
+    @Bean(destroyMethod = "shutdown")
+    public ExportExecutor exportExecutor(ObjectProvider<ContextPropagator> contextPropagator) {
+        return new ExportExecutor(properties.getExport().getAsyncThreads(), properties.getExport().getAsyncQueueCapacity(),
+                contextPropagator.getIfAvailable());
+    }
+
+    /**
+     * Propagates the locale context and request attributes of Spring MVC into export stages
+     *
+     * @return context propagator
+     */
+    @ConditionalOnMissingBean(ContextPropagator.class)
+    @ConditionalOnClass(name = "org.springframework.web.context.request.RequestContextHolder")
+    @Bean
+    public ContextPropagator contextPropagator() {
+        return new SpringContextPropagator();
+    }
+
+    /**
+     * Bounded executor of pipeline stages and sheets of exports, sized by '<i>dream.excel.export.stage-threads</i>'
+     *
+     * @param contextPropagator propagates context of the exporting thread into stages
+     * @return stage executor
+     */
+    @ConditionalOnMissingBean(StageExecutor.class)
+    @Bean(destroyMethod = "shutdown")
+    public StageExecutor stageExecutor(ObjectProvider<ContextPropagator> contextPropagator) {
+        return new StageExecutor(properties.getExport().getStageThreads(), contextPropagator.getIfAvailable());
+    }
+
+    /**
+     * Admission control of exports, configured by '<i>dream.excel.export.max-concurrent-exports</i>' and the queue and fast
+     * lane properties
+     *
+     * @return export governor
+     */
+    @ConditionalOnMissingBean(ExportGovernor.class)
+    @Bean
+    public ExportGovernor exportGovernor() {
+        return new ExportGovernor(properties.getExport());
+    }
+
+    @ConditionalOnMissingBean(ExportJobManager.class)
+    @Bean
+    public ExportJobManager exportJobManager() {
+        return new ExportJobManager(properties.getExport());
+    }
+
+    /**
+     * Bounded executor of the write stage of imports, configured by '<i>dream.excel.import.*</i>'. It's also made the
+     * default of import threads, so they share it without being set one.
+     *
+     * @return import executor
+     */
+    @ConditionalOnMissingBean(ImportExecutor.class)
+    @Bean(destroyMethod = "shutdown")
+    public ImportExecutor importExecutor() {
+        DreamExcelProperties.ImportProperties imports = properties.getImport();
+        ImportExecutor executor = new ImportExecutor(imports.getWriteThreads(), imports.getWriteQueueCapacity(),
+                imports.getRejectionPolicy(), imports.isVirtualThreads());
+        ImportExecutor.setDefault(executor);
+        return executor;
+    }
+
     /**
      * Suggests to implement and inject {@link ExcelI18n} object by yourself
      *
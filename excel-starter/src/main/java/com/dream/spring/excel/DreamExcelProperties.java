@@ -18,6 +18,7 @@ package com.dream.spring.excel;
 
 import com.dream.spring.excel.bean.ExcelExportConfig;
 import com.dream.spring.excel.bean.ExcelI18n;
+import com.dream.spring.excel.importation.ImportExecutor;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 
 /**
@@ -41,6 +42,16 @@ public class DreamExcelProperties {
      */
     private String cacheDir = ".";
 
+    /**
+     * Temp files of in-flight exports
+     */
+    private TempProperties temp = new TempProperties();
+
+    /**
+     * Write stage of imports
+     */
+    private ImportProperties importation = new ImportProperties();
+
     public ExcelExportConfig getExport() {
         return export;
     }
@@ -57,6 +68,164 @@ public class DreamExcelProperties {
         this.cacheDir = cacheDir;
     }
 
+    public TempProperties getTemp() {
+        return temp;
+    }
+
+    public ImportProperties getImport() {
+        return importation;
+    }
+
+    public static class TempProperties {
+
+        /**
+         * Directory of export temp files, defaults to 'dream-excel' under 'java.io.tmpdir'
+         */
+        private String dir;
+
+        /**
+         * Disk quota in bytes of temp files of in-flight exports, 0 for unlimited
+         */
+        private long quota;
+
+        /**
+         * Policy for exports over the quota
+         */
+        private TempFileManager.QuotaPolicy quotaPolicy = TempFileManager.QuotaPolicy.QUEUE;
+
+        /**
+         * Max time in milliseconds that an export is queued for the quota
+         */
+        private long queueTimeout = 30 * 1000;
+
+        /**
+         * Age in milliseconds after which orphaned temp files are deleted
+         */
+        private long orphanAge = 60 * 60 * 1000;
+
+        /**
+         * Interval in milliseconds of reaping orphaned temp files, 0 to disable
+         */
+        private long reapInterval = 10 * 60 * 1000;
+
+        /**
+         * If true, POI temp files are created through the lease of the export, replacing the POI temp file strategy
+         * installed before. Disable it to keep your own strategy.
+         */
+        private boolean poiStrategy = true;
+
+        public String getDir() {
+            return dir;
+        }
+
+        public void setDir(String dir) {
+            this.dir = dir;
+        }
+
+        public long getQuota() {
+            return quota;
+        }
+
+        public void setQuota(long quota) {
+            this.quota = quota;
+        }
+
+        public TempFileManager.QuotaPolicy getQuotaPolicy() {
+            return quotaPolicy;
+        }
+
+        public void setQuotaPolicy(TempFileManager.QuotaPolicy quotaPolicy) {
+            this.quotaPolicy = quotaPolicy;
+        }
+
+        public long getQueueTimeout() {
+            return queueTimeout;
+        }
+
+        public void setQueueTimeout(long queueTimeout) {
+            this.queueTimeout = queueTimeout;
+        }
+
+        public long getOrphanAge() {
+            return orphanAge;
+        }
+
+        public void setOrphanAge(long orphanAge) {
+            this.orphanAge = orphanAge;
+        }
+
+        public long getReapInterval() {
+            return reapInterval;
+        }
+
+        public void setReapInterval(long reapInterval) {
+            this.reapInterval = reapInterval;
+        }
+
+        public boolean isPoiStrategy() {
+            return poiStrategy;
+        }
+
+        public void setPoiStrategy(boolean poiStrategy) {
+            this.poiStrategy = poiStrategy;
+        }
+    }
+
+    public static class ImportProperties {
+
+        /**
+         * Max count of bundles written at once, shared by all imports
+         */
+        private int writeThreads = ImportExecutor.DEFAULT_THREADS;
+
+        /**
+         * Max count of bundles waiting for a write thread, 0 for none
+         */
+        private int writeQueueCapacity = ImportExecutor.DEFAULT_QUEUE_CAPACITY;
+
+        /**
+         * Policy for bundles over the queue capacity
+         */
+        private ImportExecutor.RejectionPolicy rejectionPolicy = ImportExecutor.RejectionPolicy.CALLER_RUNS;
+
+        /**
+         * Writes on virtual threads, requires JDK 21+
+         */
+        private boolean virtualThreads;
+
+        public int getWriteThreads() {
+            return writeThreads;
+        }
+
+        public void setWriteThreads(int writeThreads) {
+            this.writeThreads = writeThreads;
+        }
+
+        public int getWriteQueueCapacity() {
+            return writeQueueCapacity;
+        }
+
+        public void setWriteQueueCapacity(int writeQueueCapacity) {
+            this.writeQueueCapacity = writeQueueCapacity;
+        }
+
+        public ImportExecutor.RejectionPolicy getRejectionPolicy() {
+            return rejectionPolicy;
+        }
+
+        public void setRejectionPolicy(ImportExecutor.RejectionPolicy rejectionPolicy) {
+            this.rejectionPolicy = rejectionPolicy;
+        }
+
+        public boolean isVirtualThreads() {
+            return virtualThreads;
+        }
+
+        public void setVirtualThreads(boolean virtualThreads) {
+            this.virtualThreads = virtualThreads;
+        }
+    }
+
     public static class I18nProperties {
 
         /**
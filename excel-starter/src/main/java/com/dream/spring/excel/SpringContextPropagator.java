@@ -0,0 +1,50 @@
+/*
+ * Copyright 2020 the original author or authors.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      https://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.dream.spring.excel;
+
+import org.springframework.context.i18n.LocaleContext;
+import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Propagates the locale context and request attributes of Spring MVC into export stages, so that data methods, converters
+ * and i18n (eg: {@code MessageSource} lookups with {@link LocaleContextHolder#getLocale()}) see the request they run for.
+ * Other thread-bound state, eg: transactions or security context, is not propagated.
+ *
+ * @author DreamJM
+ */
+public class SpringContextPropagator implements ContextPropagator {
+
+    @Override
+    public Runnable wrap(Runnable task) {
+        LocaleContext localeContext = LocaleContextHolder.getLocaleContext();
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        return () -> {
+            LocaleContext previousLocaleContext = LocaleContextHolder.getLocaleContext();
+            RequestAttributes previousRequestAttributes = RequestContextHolder.getRequestAttributes();
+            LocaleContextHolder.setLocaleContext(localeContext);
+            RequestContextHolder.setRequestAttributes(requestAttributes);
+            try {
+                task.run();
+            } finally {
+                LocaleContextHolder.setLocaleContext(previousLocaleContext);
+                RequestContextHolder.setRequestAttributes(previousRequestAttributes);
+            }
+        };
+    }
+}
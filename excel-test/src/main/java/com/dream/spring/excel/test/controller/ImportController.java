@@ -116,6 +116,8 @@ public class ImportController {
                         };
                     }
                 }));
+        // Rows are streamed, so large files don't need the heap of the whole workbook
+        thread.setStreaming(true);
         // Just for test
         thread.run();
         return thread.getStatus().toString();
@@ -16,7 +16,9 @@
 
 package com.dream.spring.excel.test.controller;
 
+import com.dream.spring.excel.ExportFormat;
 import com.dream.spring.excel.annotation.*;
+import com.dream.spring.excel.bean.ExcelExportConfig;
 import com.dream.spring.excel.test.annotation.ChildValue;
 import com.dream.spring.excel.test.annotation.TestAnnotation;
 import com.dream.spring.excel.test.model.Component;
@@ -62,7 +64,7 @@ public class TestController {
     }
 
     @ApiOperation("Cache Test")
-    @ExcelExport(value = "/api/excel/cache/test", fileName = "cache_{timestamp}",
+    @ExcelExport(value = "/api/excel/cache/test", fileName = "cache_{timestamp}", formats = {ExportFormat.CSV, ExportFormat.TSV}, async = true,
             caches = @Cacheable(cacheDir = "hello", condition = "param1 == null", checkUpdateMethod = "isTestUpdated(timestamp)", timestampMethod = "getTimestamp(sheet)"))
     @GetMapping("/api/cache/test")
     public Result<PageResult<Test>> cacheTest(@RequestParam(required = false) String param1,
@@ -78,6 +80,41 @@ public class TestController {
         return new Result<>(page);
     }
 
+    @ApiOperation("Paged Tests")
+    @ExcelExport(value = "/api/excel/paged/test", fileName = "paged_{timestamp}", estimateMethod = "countPagedTests(param1)", job = true,
+            paging = @Paging(pageSize = 4, hasNext = "result.getData().getPageNum() < result.getData().getPages()"))
+    @GetMapping("/api/paged/test")
+    public Result<PageResult<Test>> pagedTest(@RequestParam(required = false) String param1, @RequestParam int pageNum,
+                                              @RequestParam int pageSize) {
+        Date date = new Date();
+        int total = 10;
+        List<Test> tests = new ArrayList<>();
+        for (int i = (pageNum - 1) * pageSize + 1; i <= Math.min(pageNum * pageSize, total); i++) {
+            tests.add(new Test("paged" + i, "world" + i, (i - 1) % 2 + 1, date, new Component("child" + i, "childValue" + i)));
+        }
+        PageResult<Test> page = new PageResult<>(pageNum, pageSize, (total + pageSize - 1) / pageSize, (long) total, tests);
+        return new Result<>(page);
+    }
+
+    @ApiOperation("Report Tests")
+    @ExcelExport(value = "/api/excel/report", fileName = "report_{timestamp}", compression = ExcelExportConfig.Compression.FASTEST,
+            async = true, maxConcurrent = 2)
+    @GetMapping("/api/report/tests")
+    public Result<PageResult<Test>> reportTests(@RequestParam(required = false) String param1) {
+        return test(param1, -1, null, null);
+    }
+
+    @ApiOperation("Report Cache Tests")
+    @ExcelExport(value = "/api/excel/report", order = 1)
+    @GetMapping("/api/report/cache/tests")
+    public Result<PageResult<Test>> reportCacheTests(@RequestParam(required = false) String param1) {
+        return cacheTest(param1, null, null);
+    }
+
+    public long countPagedTests(String param1) {
+        return 10;
+    }
+
     public long getTimestamp(List<Test> sheet) {
         long maxTimestamp = 0;
         for (Test test : sheet) {
@@ -1,6 +1,7 @@
 package com.dream.spring.excel.test.model;
 
 import com.dream.spring.excel.annotation.*;
+import com.dream.spring.excel.bean.ExcelExportConfig;
 import com.dream.spring.excel.test.util.ConverterUtils;
 import org.apache.poi.ss.usermodel.IndexedColors;
 
@@ -20,7 +21,7 @@ public class Test extends BaseTest {
 
     private String name;
 
-    @Column(converter = @Converter(clazz = ConverterUtils.class, method = "formatType"),
+    @Column(converter = @Converter(clazz = ConverterUtils.class, method = "formatType"), stringStrategy = ExcelExportConfig.StringStrategy.SHARED,
             cellStyles = @CellItemStyle(condition = "{value} == 1", style = @CellStyle(backgroundColor = IndexedColors.BLUE, fontColor = IndexedColors.WHITE)))
     private int type;
 